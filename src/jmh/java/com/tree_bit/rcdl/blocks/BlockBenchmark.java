@@ -0,0 +1,87 @@
+package com.tree_bit.rcdl.blocks;
+
+import com.tree_bit.rcdl.blocks.dv.Orientation16;
+import com.tree_bit.rcdl.blocks.dv.OrientationNESW;
+import com.tree_bit.rcdl.blocks.entities.SignEntity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interning of blocks.
+ *
+ * <p>
+ * Warm lookups hit the caches/tables, the miss variant creates a new tile
+ * entity for each lookup so both caches have to create new instances. The
+ * cold variant measures the first lookup of all block ids in a new JVM
+ * (including the initialization of the state tables).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("javadoc")
+public class BlockBenchmark {
+
+    private BlockData data;
+    private int counter;
+
+    @Setup
+    public void setUp() {
+        this.data = Repeater.getInstance(OrientationNESW.West, Repeater.Delay.D3);
+    }
+
+    @Benchmark
+    public Block getInstanceDefault() {
+        return Block.getInstance(BlockID.REPEATER_OFF);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Block getInstanceDefault32() {
+        return Block.getInstance(BlockID.REPEATER_OFF);
+    }
+
+    @Benchmark
+    public Block getInstanceWarm() {
+        return Block.getInstance(BlockID.REPEATER_OFF, this.data);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Block getInstanceWarmMax() {
+        return Block.getInstance(BlockID.REPEATER_OFF, this.data);
+    }
+
+    @Benchmark
+    public Block getInstanceMiss() {
+        final String[] text = {Integer.toString(this.counter++), "", "", ""};
+        return Block.getInstance(BlockID.STANDING_SIGN, StandingSign.getInstance(Orientation16.E, new SignEntity(text)));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(10)
+    public void getInstanceCold(final Blackhole bh) {
+        for (final BlockID id : BlockID.values()) {
+            bh.consume(Block.getInstance(id));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.tree_bit.rcdl.blocks;
+
+import com.tree_bit.rcdl.blocks.dv.IOrientationEnum;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of all block states into their data values. Run with
+ * {@code -prof gc} to verify that the encode loop doesn't allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("javadoc")
+public class BlockDataBenchmark {
+
+    private BlockData[] data;
+
+    @Setup
+    public void setUp() {
+        this.data = new BlockData[Block.getStateCount()];
+        for (int i = 0; i < this.data.length; i++) {
+            this.data[i] = Block.fromStateId(i).getData();
+        }
+    }
+
+    @Benchmark
+    public int getDataValue() {
+        int sum = 0;
+        for (final BlockData bd : this.data) {
+            sum += bd.getDataValue();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void getOrientation(final Blackhole bh) {
+        for (final BlockData bd : this.data) {
+            if (bd instanceof Repeater) {
+                bh.consume(bd.get(IOrientationEnum.class));
+            }
+        }
+    }
+
+    @Benchmark
+    public int getDataCopy() {
+        int sum = 0;
+        for (final BlockData bd : this.data) {
+            sum += bd.getData().asSet().size();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,71 @@
+package com.tree_bit.rcdl.blocks;
+
+import com.tree_bit.rcdl.blocks.Repeater.Delay;
+import com.tree_bit.rcdl.blocks.dv.IDataValueEnum;
+import com.tree_bit.rcdl.blocks.dv.OrientationNESW;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the construction of BlockData instances on a cache miss by the
+ * registered factories with the former reflective construction. Also
+ * measures the lookup of interned default instances.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("javadoc")
+public class BlockDataFactoryBenchmark {
+
+    private final IDataValueEnum[] values = {OrientationNESW.East, Delay.D3};
+
+    @Benchmark
+    public Repeater factory() {
+        return BlockDataFactory.create(Repeater.class, this.values, null);
+    }
+
+    @Benchmark
+    public Repeater reflective() throws ReflectiveOperationException {
+        final Constructor<Repeater> construct = Repeater.class.getDeclaredConstructor(IDataValueEnum[].class);
+        construct.setAccessible(true);
+        return construct.newInstance(new Object[] {this.values});
+    }
+
+    @Benchmark
+    public Repeater factoryDefault() {
+        return BlockDataFactory.create(Repeater.class);
+    }
+
+    @Benchmark
+    public Repeater reflectiveDefault() throws ReflectiveOperationException {
+        final Constructor<Repeater> construct = Repeater.class.getDeclaredConstructor();
+        construct.setAccessible(true);
+        return construct.newInstance();
+    }
+
+    @Benchmark
+    public Repeater getDefaultInstance() {
+        return BlockDataFactory.getDefaultInstance(Repeater.class);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Repeater getDefaultInstanceMax() {
+        return BlockDataFactory.getDefaultInstance(Repeater.class);
+    }
+}
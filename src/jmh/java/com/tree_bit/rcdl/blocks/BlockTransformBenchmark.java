@@ -0,0 +1,105 @@
+package com.tree_bit.rcdl.blocks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rotating and mirroring all states of one block id per BlockData subclass.
+ * The block variants use the precomputed transition tables, the data
+ * variants the rotation/mirroring implemented by each subclass.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("javadoc")
+public class BlockTransformBenchmark {
+
+    /** One block id of each BlockData subclass */
+    @Param({"STONE", "WOOL", "STONE_SLAB", "STONE_SLAB_2", "TORCH", "REDSTONE_WIRE", "STANDING_SIGN", "WALL_SIGN", "REPEATER_OFF"})
+    public String block;
+
+    private final Set<Axis> plain = EnumSet.of(Axis.X, Axis.Y);
+
+    /** States which can be rotated around Y */
+    private Block[] rotatable;
+
+    /** States which can be mirrored at the XY plain */
+    private Block[] mirrorable;
+
+    @Setup
+    public void setUp() {
+        final BlockID id = BlockID.valueOf(this.block);
+        final List<Block> rotate = new ArrayList<>();
+        final List<Block> mirror = new ArrayList<>();
+        for (int i = 0; i < Block.getStateCount(); i++) {
+            final Block b = Block.fromStateId(i);
+            if (b.getBlock() != id) {
+                continue;
+            }
+            if (Block.rotateStateId(i, Axis.Y, 90) != Block.INVALID_STATE_ID) {
+                rotate.add(b);
+            }
+            if (Block.mirrorStateId(i, this.plain) != Block.INVALID_STATE_ID) {
+                mirror.add(b);
+            }
+        }
+        this.rotatable = rotate.toArray(new Block[rotate.size()]);
+        this.mirrorable = mirror.toArray(new Block[mirror.size()]);
+    }
+
+    @Benchmark
+    public void rotate(final Blackhole bh) {
+        for (final Block b : this.rotatable) {
+            bh.consume(b.rotate(Axis.Y, 90));
+        }
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void rotateMax(final Blackhole bh) {
+        for (final Block b : this.rotatable) {
+            bh.consume(b.rotate(Axis.Y, 90));
+        }
+    }
+
+    @Benchmark
+    public void rotateData(final Blackhole bh) {
+        for (final Block b : this.rotatable) {
+            bh.consume(b.getData().rotate(Axis.Y, 90));
+        }
+    }
+
+    @Benchmark
+    public void mirror(final Blackhole bh) {
+        for (final Block b : this.mirrorable) {
+            bh.consume(b.mirror(this.plain));
+        }
+    }
+
+    @Benchmark
+    public void mirrorData(final Blackhole bh) {
+        for (final Block b : this.mirrorable) {
+            bh.consume(b.getData().mirror(this.plain));
+        }
+    }
+}
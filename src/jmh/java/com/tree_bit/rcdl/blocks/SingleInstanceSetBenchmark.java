@@ -0,0 +1,68 @@
+package com.tree_bit.rcdl.blocks;
+
+import com.tree_bit.rcdl.blocks.Repeater.Delay;
+import com.tree_bit.rcdl.blocks.dv.Color;
+import com.tree_bit.rcdl.blocks.dv.IDataValueEnum;
+import com.tree_bit.rcdl.blocks.dv.IOrientationEnum;
+import com.tree_bit.rcdl.blocks.dv.OrientationNESW;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adding and reading values of a SingleInstanceSet as done by BlockData.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("javadoc")
+public class SingleInstanceSetBenchmark {
+
+    private SingleInstanceSet<IDataValueEnum> set;
+
+    @Setup
+    public void setUp() {
+        this.set = new SingleInstanceSet<>(IOrientationEnum.class);
+        this.set.add(OrientationNESW.North);
+        this.set.add(Delay.D1);
+    }
+
+    @Benchmark
+    public SingleInstanceSet<IDataValueEnum> addReplace() {
+        this.set.add(Delay.D3);
+        return this.set;
+    }
+
+    @Benchmark
+    public SingleInstanceSet<IDataValueEnum> addConstraint() {
+        this.set.add(OrientationNESW.East);
+        return this.set;
+    }
+
+    @Benchmark
+    public SingleInstanceSet<IDataValueEnum> addNew() {
+        final SingleInstanceSet<IDataValueEnum> s = new SingleInstanceSet<>(IOrientationEnum.class);
+        s.add(OrientationNESW.North);
+        s.add(Delay.D1);
+        s.add(Color.Red);
+        return s;
+    }
+
+    @Benchmark
+    public Delay get() {
+        return this.set.get(Delay.class);
+    }
+}
@@ -0,0 +1,94 @@
+package com.tree_bit.rcdl.schematic;
+
+import org.jnbt.CompoundTag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Neighbourhood queries (3x3 chunks around a position moving randomly by one
+ * chunk) on a full region, through a cache with a budget of 64 chunks and,
+ * as baseline, directly from the region reader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("javadoc")
+public class ChunkCacheBenchmark {
+
+    private Path dir;
+    private Path region;
+    private RegionReader reader;
+    private ChunkCache cache;
+    private final Random random = new Random(1);
+    private int x = 16;
+    private int z = 16;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.dir = Files.createTempDirectory("cache-bench");
+        this.region = this.dir.resolve("r.0.0.mca");
+        try (RegionWriter w = RegionWriter.open(this.region)) {
+            for (int i = 0; i < RegionReader.CHUNKS; i++) {
+                w.writeChunk(i & 31, i >>> 5, RegionBenchmark.chunk(i & 31, i >>> 5));
+            }
+        }
+        this.reader = RegionReader.open(this.region);
+        this.cache = new ChunkCache(this.dir, 64 * ChunkCache.weigh(RegionBenchmark.chunk(0, 0)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.region);
+        Files.deleteIfExists(this.dir);
+    }
+
+    private void move() {
+        this.x = Math.max(1, Math.min(30, (this.x + this.random.nextInt(3)) - 1));
+        this.z = Math.max(1, Math.min(30, (this.z + this.random.nextInt(3)) - 1));
+    }
+
+    @Benchmark
+    public int neighbourhoodCached() throws IOException {
+        this.move();
+        int n = 0;
+        for (int dz = -1; dz <= 1; dz++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                final CompoundTag chunk = this.cache.get(this.x + dx, this.z + dz);
+                n += (chunk == null) ? 0 : chunk.getValue().size();
+            }
+        }
+        return n;
+    }
+
+    @Benchmark
+    public int neighbourhoodUncached() throws IOException {
+        this.move();
+        int n = 0;
+        for (int dz = -1; dz <= 1; dz++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                final CompoundTag chunk = this.reader.readChunk(this.x + dx, this.z + dz);
+                n += (chunk == null) ? 0 : chunk.getValue().size();
+            }
+        }
+        return n;
+    }
+}
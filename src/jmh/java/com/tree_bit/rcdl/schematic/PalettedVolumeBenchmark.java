@@ -0,0 +1,83 @@
+package com.tree_bit.rcdl.schematic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion between the legacy layout and the paletted storage of a
+ * 128x128x128 volume and the per block read access, reported as time per
+ * block.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("javadoc")
+public class PalettedVolumeBenchmark {
+
+    private static final int SIZE = 128;
+    private static final int VOLUME = SIZE * SIZE * SIZE;
+
+    /** Block distribution (see SyntheticSchematic) */
+    @Param({"mixed", "random"})
+    public String distribution;
+
+    private SchematicVolume volume;
+    private PalettedVolume paletted;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SyntheticSchematic schematic = SyntheticSchematic.generate(SIZE + "x" + SIZE + "x" + SIZE, this.distribution);
+        this.volume = new SchematicVolume(SIZE, SIZE, SIZE, schematic.blocks, schematic.data);
+        this.paletted = PalettedVolume.of(this.volume);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VOLUME)
+    public PalettedVolume fromLegacy() {
+        return PalettedVolume.of(this.volume);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VOLUME)
+    public SchematicVolume toLegacy() {
+        return this.paletted.toVolume();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VOLUME)
+    public int getRaw() {
+        final PalettedVolume v = this.paletted;
+        int sum = 0;
+        for (int i = 0; i < VOLUME; i++) {
+            sum += v.getRaw(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VOLUME)
+    public int getRawLegacy() {
+        final SchematicVolume v = this.volume;
+        int sum = 0;
+        for (int i = 0; i < VOLUME; i++) {
+            sum += (v.getId(i) << 4) | v.getMeta(i);
+        }
+        return sum;
+    }
+}
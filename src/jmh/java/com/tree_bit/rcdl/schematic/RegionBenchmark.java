@@ -0,0 +1,146 @@
+package com.tree_bit.rcdl.schematic;
+
+import org.jnbt.ByteArrayTag;
+import org.jnbt.CompoundTag;
+import org.jnbt.IntTag;
+import org.jnbt.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random chunk access of a full region (1024 chunks with 64 KiB of block
+ * data each) and chunk updates: in place with a commit, 64 chunks with one
+ * commit and, as baseline, rewriting the whole region. Offline compaction
+ * of the region, copying or recompressing the stored chunks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("javadoc")
+public class RegionBenchmark {
+
+    private Path dir;
+    private Path region;
+    private Path copy;
+    private Path compacted;
+    private CompoundTag[] chunks;
+    private RegionReader reader;
+    private RegionWriter writer;
+    private final Random random = new Random(1);
+
+    static CompoundTag chunk(final int x, final int z) {
+        final byte[] blocks = new byte[1 << 16];
+        final Random random = new Random((x * 32) + z);
+        for (int i = 0; i < blocks.length; i++) {
+            // Layers of few block types with some noise
+            blocks[i] = (byte) ((random.nextInt(10) == 0) ? random.nextInt(100) : (i >> 12));
+        }
+        final Map<String, Tag> level = new HashMap<>();
+        level.put("xPos", new IntTag("xPos", x));
+        level.put("zPos", new IntTag("zPos", z));
+        level.put("Blocks", new ByteArrayTag("Blocks", blocks));
+        return new CompoundTag("", Collections.<String, Tag> singletonMap("Level", new CompoundTag("Level", level)));
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.dir = Files.createTempDirectory("region-bench");
+        this.region = this.dir.resolve("r.0.0.mca");
+        this.copy = this.dir.resolve("r.1.0.mca");
+        this.chunks = new CompoundTag[RegionReader.CHUNKS];
+        try (RegionWriter w = RegionWriter.open(this.region)) {
+            for (int i = 0; i < RegionReader.CHUNKS; i++) {
+                this.chunks[i] = chunk(i & 31, i >>> 5);
+                w.writeChunk(i & 31, i >>> 5, this.chunks[i]);
+            }
+        }
+        this.compacted = this.dir.resolve("r.2.0.mca");
+        Files.copy(this.region, this.compacted);
+        this.reader = RegionReader.open(this.region);
+        this.writer = RegionWriter.open(this.region);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.writer.close();
+        Files.deleteIfExists(this.region);
+        Files.deleteIfExists(this.copy);
+        Files.deleteIfExists(this.compacted);
+        Files.deleteIfExists(this.dir);
+    }
+
+    @Benchmark
+    public RegionReader openRegion() throws IOException {
+        return RegionReader.open(this.region);
+    }
+
+    @Benchmark
+    public CompoundTag readRandomChunk() throws IOException {
+        final int i = this.random.nextInt(RegionReader.CHUNKS);
+        return this.reader.readChunk(i & 31, i >>> 5);
+    }
+
+    @Benchmark
+    public CompoundTag openAndReadOneChunk() throws IOException {
+        final int i = this.random.nextInt(RegionReader.CHUNKS);
+        return RegionReader.open(this.region).readChunk(i & 31, i >>> 5);
+    }
+
+    @Benchmark
+    public void writeOneChunk() throws IOException {
+        final int i = this.random.nextInt(RegionReader.CHUNKS);
+        this.writer.writeChunk(i & 31, i >>> 5, this.chunks[i]);
+        this.writer.commit();
+    }
+
+    @Benchmark
+    public void write64Chunks() throws IOException {
+        for (int n = 0; n < 64; n++) {
+            final int i = this.random.nextInt(RegionReader.CHUNKS);
+            this.writer.writeChunk(i & 31, i >>> 5, this.chunks[i]);
+        }
+        this.writer.commit();
+    }
+
+    @Benchmark
+    public void rewriteRegion() throws IOException {
+        Files.deleteIfExists(this.copy);
+        try (RegionWriter w = RegionWriter.open(this.copy)) {
+            for (int i = 0; i < RegionReader.CHUNKS; i++) {
+                w.writeChunk(i & 31, i >>> 5, this.chunks[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public RegionCompactor.Result compactRegion() throws IOException {
+        return new RegionCompactor().compact(this.compacted);
+    }
+
+    @Benchmark
+    public RegionCompactor.Result recompressRegion() throws IOException {
+        return new RegionCompactor(1).compact(this.compacted);
+    }
+}
@@ -0,0 +1,119 @@
+package com.tree_bit.rcdl.schematic;
+
+import com.tree_bit.rcdl.blocks.Block;
+import com.tree_bit.rcdl.blocks.BlockID;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-voxel access of a 128x128x128 volume, reported as time per block: the
+ * typed and raw coordinate accessors compared to a hand written loop over the
+ * arrays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("javadoc")
+public class SchematicVolumeBenchmark {
+
+    private static final int SIZE = 128;
+    private static final int VOLUME = SIZE * SIZE * SIZE;
+
+    private SchematicVolume volume;
+    private final Block stone = Block.getInstance(BlockID.STONE);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SyntheticSchematic schematic = SyntheticSchematic.generate(SIZE + "x" + SIZE + "x" + SIZE, "mixed");
+        this.volume = new SchematicVolume(SIZE, SIZE, SIZE, schematic.blocks, schematic.data);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VOLUME)
+    public int getBlock() {
+        final SchematicVolume v = this.volume;
+        int count = 0;
+        for (int y = 0; y < SIZE; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    if (v.getBlock(x, y, z) == this.stone) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VOLUME)
+    public int getId() {
+        final SchematicVolume v = this.volume;
+        int sum = 0;
+        for (int y = 0; y < SIZE; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    sum += v.getId(x, y, z) + v.getMeta(x, y, z);
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VOLUME)
+    public int getIdByIndex() {
+        final SchematicVolume v = this.volume;
+        int sum = 0;
+        for (int i = 0; i < VOLUME; i++) {
+            sum += v.getId(i) + v.getMeta(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VOLUME)
+    public int rawArrays() {
+        final byte[] blocks = this.volume.getBlocks();
+        final byte[] data = this.volume.getData();
+        int sum = 0;
+        for (int y = 0; y < SIZE; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    final int i = (((y * SIZE) + z) * SIZE) + x;
+                    sum += (blocks[i] & 0xFF) + (data[i] & 0x0F);
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VOLUME)
+    public void setBlock() {
+        final SchematicVolume v = this.volume;
+        for (int y = 0; y < SIZE; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    v.setBlock(x, y, z, v.getBlock(x, y, z));
+                }
+            }
+        }
+    }
+}
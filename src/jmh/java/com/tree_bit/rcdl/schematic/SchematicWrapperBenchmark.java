@@ -0,0 +1,180 @@
+package com.tree_bit.rcdl.schematic;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Throughput of loading, accessing and saving schematics of realistic sizes.
+ *
+ * <p>
+ * Besides the time per operation the auxiliary counters report the processed
+ * megabytes per second: {@code rawMB} counts the uncompressed block and data
+ * arrays, {@code fileMB} the compressed file. Run with {@code -prof gc} for
+ * the allocation per operation.
+ *
+ * <p>
+ * The input file uses the MCEdit tag order (the header fields precede the
+ * arrays).
+ *
+ * <p>
+ * The {@code saveParallel} variants compress on the common fork join pool;
+ * compare them to {@code save} and {@code saveFastest} on a machine with
+ * several cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@SuppressWarnings("javadoc")
+public class SchematicWrapperBenchmark {
+
+    /** Width x height x length */
+    @Param({"64x64x64", "256x256x256", "512x256x512"})
+    public String size;
+
+    /** Block distribution (see SyntheticSchematic) */
+    @Param({"mixed", "random"})
+    public String distribution;
+
+    private Path dir;
+    private String file;
+    private String target;
+    private SchematicWrapper loaded;
+    private byte[] blocks;
+    private SchematicLoader loader;
+    private long rawSize;
+    private long fileSize;
+
+    /**
+     * Processed megabytes (reported per second).
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+
+        public double rawMB;
+        public double fileMB;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.rawMB = 0;
+            this.fileMB = 0;
+        }
+
+        void add(final SchematicWrapperBenchmark benchmark) {
+            this.rawMB += benchmark.rawSize / 1e6;
+            this.fileMB += benchmark.fileSize / 1e6;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final SyntheticSchematic schematic = SyntheticSchematic.generate(this.size, this.distribution);
+        this.dir = Files.createTempDirectory("schematic-bench");
+        this.file = this.dir.resolve("in.schematic").toString();
+        this.target = this.dir.resolve("out.schematic").toString();
+        schematic.writeMCEdit(Paths.get(this.file));
+
+        this.loaded = new SchematicWrapper(this.file);
+        this.blocks = schematic.blocks;
+        this.loader = new SchematicLoader(ESchematicFields.WIDTH, ESchematicFields.HEIGHT, ESchematicFields.LENGTH)
+                .into(ESchematicFields.BLOCKS, new byte[schematic.blocks.length]).into(ESchematicFields.DATA, new byte[schematic.data.length]);
+        this.rawSize = schematic.rawSize();
+        this.fileSize = new File(this.file).length();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.dir.resolve("in.schematic"));
+        Files.deleteIfExists(this.dir.resolve("out.schematic"));
+        Files.deleteIfExists(this.dir);
+    }
+
+    @Benchmark
+    public SchematicWrapper load(final Bytes bytes) throws IOException {
+        final SchematicWrapper wrapper = new SchematicWrapper(this.file);
+        bytes.add(this);
+        return wrapper;
+    }
+
+    @Benchmark
+    public LoadedSchematic loadStreaming(final Bytes bytes) throws IOException {
+        final LoadedSchematic schematic = this.loader.load(Paths.get(this.file));
+        bytes.add(this);
+        return schematic;
+    }
+
+    @Benchmark
+    public SchematicHeader probeHeader() throws IOException {
+        return SchematicHeader.read(Paths.get(this.file));
+    }
+
+    @Benchmark
+    public void save(final Bytes bytes) throws IOException {
+        this.loaded.saveChangesToFile(this.target);
+        bytes.add(this);
+    }
+
+    @Benchmark
+    public void saveFastest(final Bytes bytes) throws IOException {
+        this.loaded.saveChangesToFile(Paths.get(this.target), Deflater.BEST_SPEED);
+        bytes.add(this);
+    }
+
+    @Benchmark
+    public void saveParallel(final Bytes bytes) throws IOException {
+        this.loaded.saveChangesToFile(Paths.get(this.target), Deflater.DEFAULT_COMPRESSION, ForkJoinPool.commonPool());
+        bytes.add(this);
+    }
+
+    @Benchmark
+    public void saveParallelFastest(final Bytes bytes) throws IOException {
+        this.loaded.saveChangesToFile(Paths.get(this.target), Deflater.BEST_SPEED, ForkJoinPool.commonPool());
+        bytes.add(this);
+    }
+
+    @Benchmark
+    public void saveSmallest(final Bytes bytes) throws IOException {
+        this.loaded.saveChangesToFile(Paths.get(this.target), Deflater.BEST_COMPRESSION);
+        bytes.add(this);
+    }
+
+    @Benchmark
+    public byte[] readBlocks() {
+        return this.loaded.readBlocks();
+    }
+
+    @Benchmark
+    public byte[] readData() {
+        return this.loaded.readData();
+    }
+
+    @Benchmark
+    public SchematicWrapper writeBlocks() {
+        this.loaded.writeBlocks(this.blocks);
+        return this.loaded;
+    }
+}
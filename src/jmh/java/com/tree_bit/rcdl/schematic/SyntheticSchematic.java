@@ -0,0 +1,153 @@
+package com.tree_bit.rcdl.schematic;
+
+import com.tree_bit.rcdl.blocks.Block;
+
+import org.jnbt.ByteArrayTag;
+import org.jnbt.CompoundTag;
+import org.jnbt.ListTag;
+import org.jnbt.NBTOutputStream;
+import org.jnbt.ShortTag;
+import org.jnbt.StringTag;
+import org.jnbt.Tag;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generator of synthetic schematics for benchmarks. The block arrays use the
+ * schematic order (index = (y * length + z) * width + x).
+ */
+final class SyntheticSchematic {
+
+    private static final int AIR = 0;
+    private static final int STONE = 1;
+    private static final int GRASS = 2;
+    private static final int DIRT = 3;
+    private static final int[] ORES = {14, 15, 16, 56};
+
+    final int width;
+    final int height;
+    final int length;
+    final byte[] blocks;
+    final byte[] data;
+
+    private SyntheticSchematic(final int width, final int height, final int length) {
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.blocks = new byte[width * height * length];
+        this.data = new byte[this.blocks.length];
+    }
+
+    /**
+     * Parses a size of the form 'width x height x length'.
+     *
+     * @param size Size (e.g. '64x64x64')
+     * @param distribution 'mixed' (terrain with ores, caves and structures)
+     *        or 'random' (uniformly distributed block states)
+     * @return Schematic
+     */
+    static SyntheticSchematic generate(final String size, final String distribution) {
+        final String[] dims = size.split("x");
+        final SyntheticSchematic s =
+                new SyntheticSchematic(Integer.parseInt(dims[0]), Integer.parseInt(dims[1]), Integer.parseInt(dims[2]));
+        switch (distribution) {
+            case "mixed":
+                s.fillMixed(new Random(42));
+                break;
+            case "random":
+                s.fillRandom(new Random(42));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        }
+        return s;
+    }
+
+    /**
+     * Returns the number of uncompressed bytes of the block and data arrays.
+     *
+     * @return Size in bytes
+     */
+    long rawSize() {
+        return (long) this.blocks.length + this.data.length;
+    }
+
+    /**
+     * Writes this schematic as MCEdit file (tag order: dimensions, materials,
+     * entity lists, blocks, data).
+     *
+     * @param path File
+     * @throws IOException if the file can't be written
+     */
+    void writeMCEdit(final Path path) throws IOException {
+        final Map<String, Tag> tags = new LinkedHashMap<>();
+        tags.put("Width", new ShortTag("Width", (short) this.width));
+        tags.put("Height", new ShortTag("Height", (short) this.height));
+        tags.put("Length", new ShortTag("Length", (short) this.length));
+        tags.put("Materials", new StringTag("Materials", "Alpha"));
+        tags.put("Entities", new ListTag("Entities", CompoundTag.class, Collections.<Tag>emptyList()));
+        tags.put("TileEntities", new ListTag("TileEntities", CompoundTag.class, Collections.<Tag>emptyList()));
+        tags.put("Blocks", new ByteArrayTag("Blocks", this.blocks));
+        tags.put("Data", new ByteArrayTag("Data", this.data));
+        try (NBTOutputStream out = new NBTOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeTag(new CompoundTag("Schematic", tags));
+        }
+    }
+
+    private void fillMixed(final Random random) {
+        final int[] stateIds = new int[Block.getStateCount()];
+        for (int i = 0; i < stateIds.length; i++) {
+            stateIds[i] = i;
+        }
+        final int ground = (this.height * 2) / 5;
+        for (int y = 0; y < this.height; y++) {
+            for (int z = 0; z < this.length; z++) {
+                for (int x = 0; x < this.width; x++) {
+                    final int index = ((y * this.length) + z) * this.width + x;
+                    final int r = random.nextInt(100);
+                    if (y < ground - 4) {
+                        if (r < 5) {
+                            this.set(index, AIR, 0);
+                        } else if (r < 7) {
+                            this.set(index, ORES[random.nextInt(ORES.length)], 0);
+                        } else {
+                            this.set(index, STONE, 0);
+                        }
+                    } else if (y < ground) {
+                        this.set(index, DIRT, 0);
+                    } else if (y == ground) {
+                        this.set(index, GRASS, 0);
+                    } else if (r < 10) {
+                        this.setState(index, random.nextInt(stateIds.length));
+                    } else {
+                        this.set(index, AIR, 0);
+                    }
+                }
+            }
+        }
+    }
+
+    private void fillRandom(final Random random) {
+        final int states = Block.getStateCount();
+        for (int i = 0; i < this.blocks.length; i++) {
+            this.setState(i, random.nextInt(states));
+        }
+    }
+
+    private void setState(final int index, final int stateId) {
+        final Block block = Block.fromStateId(stateId);
+        this.set(index, block.getBlock().getId(), block.getData().getDataValue());
+    }
+
+    private void set(final int index, final int id, final int meta) {
+        this.blocks[index] = (byte) id;
+        this.data[index] = (byte) meta;
+    }
+}
@@ -0,0 +1,99 @@
+package com.tree_bit.rcdl.schematic;
+
+import com.tree_bit.rcdl.blocks.Axis;
+import com.tree_bit.rcdl.blocks.Block;
+import com.tree_bit.rcdl.blocks.PlacementInvalidException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rotation and mirroring of whole volumes: the table driven transform on the
+ * common pool and on a single thread compared to transforming each block with
+ * {@link Block#rotate(Axis, int)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@SuppressWarnings("javadoc")
+public class VolumeTransformBenchmark {
+
+    /** Width x height x length */
+    @Param({"128x128x128", "256x256x256"})
+    public String size;
+
+    private SchematicVolume volume;
+    private ForkJoinPool single;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SyntheticSchematic schematic = SyntheticSchematic.generate(this.size, "mixed");
+        this.volume = new SchematicVolume(schematic.width, schematic.height, schematic.length, schematic.blocks, schematic.data);
+        this.single = new ForkJoinPool(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.single.shutdown();
+    }
+
+    @Benchmark
+    public SchematicVolume rotate90() {
+        return VolumeTransform.rotateY(90).apply(this.volume);
+    }
+
+    @Benchmark
+    public SchematicVolume rotate90Single() {
+        return VolumeTransform.rotateY(90).apply(this.volume, this.single);
+    }
+
+    @Benchmark
+    public SchematicVolume rotate180() {
+        return VolumeTransform.rotateY(180).apply(this.volume);
+    }
+
+    @Benchmark
+    public SchematicVolume mirrorX() {
+        return VolumeTransform.mirror(Axis.plain(Axis.Z, Axis.Y)).apply(this.volume);
+    }
+
+    @Benchmark
+    public SchematicVolume rotate90PerBlock() {
+        final SchematicVolume v = this.volume;
+        final int w = v.getWidth();
+        final int l = v.getLength();
+        final SchematicVolume target = new SchematicVolume(l, v.getHeight(), w);
+        for (int y = 0; y < v.getHeight(); y++) {
+            for (int z = 0; z < l; z++) {
+                for (int x = 0; x < w; x++) {
+                    final Block block = v.getBlock(x, y, z);
+                    Block rotated;
+                    try {
+                        rotated = block.rotate(Axis.Y, 90);
+                    } catch (final PlacementInvalidException e) {
+                        rotated = block;
+                    }
+                    target.setBlock(l - 1 - z, y, x, rotated);
+                }
+            }
+        }
+        return target;
+    }
+}
@@ -0,0 +1,94 @@
+package com.tree_bit.rcdl.schematic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Scan of a world with 4 regions of 256 chunks (64 KiB of block data each):
+ * callback with one worker and with a worker per available processor, and
+ * the stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("javadoc")
+public class WorldScannerBenchmark {
+
+    private static final int REGIONS = 4;
+
+    private Path world;
+    private ExecutorService executor;
+    private WorldScanner single;
+    private WorldScanner parallel;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.world = Files.createTempDirectory("scan-bench");
+        for (int r = 0; r < REGIONS; r++) {
+            try (RegionWriter w = RegionWriter.open(this.world.resolve("region/r." + r + ".0.mca"))) {
+                for (int i = 0; i < 256; i++) {
+                    w.writeChunk(i & 31, i >>> 5, RegionBenchmark.chunk((r * 32) + (i & 31), i >>> 5));
+                }
+            }
+        }
+        final int processors = Runtime.getRuntime().availableProcessors();
+        this.executor = Executors.newFixedThreadPool(processors);
+        this.single = new WorldScanner(this.executor, 1, WorldScanner.DEFAULT_QUEUE_CAPACITY);
+        this.parallel = new WorldScanner(this.executor, processors, WorldScanner.DEFAULT_QUEUE_CAPACITY);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.executor.shutdown();
+        final List<Path> regions = RegionReader.findRegions(this.world);
+        for (final Path region : regions) {
+            Files.delete(region);
+        }
+        Files.deleteIfExists(this.world.resolve("region"));
+        Files.deleteIfExists(this.world);
+    }
+
+    @Benchmark
+    public long scanSingle() throws IOException {
+        final LongAdder tags = new LongAdder();
+        this.single.scan(this.world, c -> tags.add(c.getTag().getValue().size()));
+        return tags.sum();
+    }
+
+    @Benchmark
+    public long scanParallel() throws IOException {
+        final LongAdder tags = new LongAdder();
+        this.parallel.scan(this.world, c -> tags.add(c.getTag().getValue().size()));
+        return tags.sum();
+    }
+
+    @Benchmark
+    public long streamParallel() throws IOException {
+        try (Stream<WorldScanner.Chunk> chunks = this.parallel.stream(this.world)) {
+            return chunks.mapToInt(c -> c.getTag().getValue().size()).sum();
+        }
+    }
+}
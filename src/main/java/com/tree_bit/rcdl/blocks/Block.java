@@ -3,7 +3,7 @@ package com.tree_bit.rcdl.blocks;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.base.Objects;
-import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 
@@ -36,13 +36,45 @@ public final class Block implements Comparable<Block> {
         }
     }
 
+    /**
+     * Table of all blocks indexed by their state id. (Lazy initialization
+     * holder)
+     */
+    private static class States {
+
+        static final Block[] table = BlockStateRegistry.createBlocks();
+
+        private States() {}
+    }
+
+    /**
+     * Rotation and mirror transition tables of all states. (Lazy
+     * initialization holder)
+     */
+    private static class Transitions {
+
+        /** [axis][quarter turns - 1][state id] */
+        static final int[][][] rotations = BlockStateRegistry.createRotations(States.table);
+        /** [axis orthogonal to the plain][state id] */
+        static final int[][] mirrors = BlockStateRegistry.createMirrors(States.table);
+
+        private Transitions() {}
+    }
+
+    /**
+     * State id returned by the primitive methods if there is no valid block
+     * state.
+     */
+    public static final int INVALID_STATE_ID = -1;
+
     private final BlockID block;
     private final BlockData data;
+    private final int stateId;
 
     private static final LoadingCache<DataKey<BlockID, BlockData, ?>, Block> cache;
 
     static {
-        final LoadingCache<DataKey<BlockID, BlockData, ?>, Block> c = CacheBuilder.newBuilder().weakValues().build(new Loader());
+        final LoadingCache<DataKey<BlockID, BlockData, ?>, Block> c = CacheMetrics.newCacheBuilder().build(new Loader());
         if (c != null) {
             cache = c;
         } else {
@@ -53,6 +85,7 @@ public final class Block implements Comparable<Block> {
     private Block(final BlockID block, final BlockData data) {
         this.block = block;
         this.data = data;
+        this.stateId = BlockStateRegistry.getStateId(block, data);
     }
 
     /**
@@ -78,11 +111,126 @@ public final class Block implements Comparable<Block> {
      * @param block Id of the block
      * @return Instance of a block
      */
+    @SuppressWarnings("null")
     public static Block getInstance(final BlockID block) {
         final Class<? extends BlockData> clazz = block.getDataClass();
         final BlockData data = BlockDataFactory.getDefaultInstance(clazz);
 
-        return cache.getUnchecked(DataKey.of(block, data));
+        // Default data is always a block state -> lock-free table lookup
+        return States.table[BlockStateRegistry.getStateId(block, data)];
+    }
+
+    /**
+     * Returns the cache interning the instances (for statistics).
+     *
+     * @return Cache
+     */
+    static Cache<?, ?> getCache() {
+        return cache;
+    }
+
+    /**
+     * Gets the block with the given state id.
+     *
+     * <p>
+     * Tile entities are not part of the block state. The returned block has the
+     * default tile entity of its data class.
+     *
+     * @param stateId State id of the block
+     * @return Instance of a block
+     *
+     * @throws IllegalArgumentException if no block with the given state id
+     *         exists
+     * @see #getStateId()
+     */
+    @SuppressWarnings("null")
+    public static Block fromStateId(final int stateId) {
+        final Block[] table = States.table;
+        if ((stateId < 0) || (stateId >= table.length)) {
+            throw new IllegalArgumentException("Invalid state id: " + stateId + " (Allowed: 0 - " + (table.length - 1) + ")");
+        }
+        return table[stateId];
+    }
+
+    /**
+     * Gets the block with the given raw block id and data value, as saved in
+     * the 'Blocks' and 'Data' arrays of a schematic.
+     *
+     * <p>
+     * The lookup uses a precomputed table and does not allocate. Data values
+     * of blocks without special data ({@link GenericBlockData}) are ignored.
+     *
+     * @param id Raw block id in [0, 256) (use {@code blocks[i] & 0xFF})
+     * @param meta Raw data value in [0, 16) (use {@code data[i] & 0x0F})
+     * @return Instance of a block
+     *
+     * @throws IllegalArgumentException if the combination does not represent
+     *         a valid block
+     * @see #rawToStateId(int, int)
+     */
+    @SuppressWarnings("null")
+    public static Block fromRaw(final int id, final int meta) {
+        final int stateId = BlockStateRegistry.getStateId(id, meta);
+        if (stateId < 0) {
+            throw new IllegalArgumentException("Invalid raw block: id=" + id + " data=" + meta);
+        }
+        return States.table[stateId];
+    }
+
+    /**
+     * Returns the state id of the given raw block id and data value, as saved
+     * in the 'Blocks' and 'Data' arrays of a schematic. This is the primitive
+     * variant of {@link #fromRaw(int, int)}.
+     *
+     * @param id Raw block id in [0, 256)
+     * @param meta Raw data value in [0, 16)
+     * @return State id or {@link #INVALID_STATE_ID} if the combination does not
+     *         represent a valid block
+     */
+    public static int rawToStateId(final int id, final int meta) {
+        return BlockStateRegistry.getStateId(id, meta);
+    }
+
+    /**
+     * Returns the raw block id and data value of the given state id, as saved
+     * in the 'Blocks' and 'Data' arrays of a schematic. This is the inverse of
+     * {@link #rawToStateId(int, int)}.
+     *
+     * @param stateId State id of the block
+     * @return Raw combination {@code (id << 4) | meta}, the block id is
+     *         {@code raw >>> 4} and the data value {@code raw & 0x0F}
+     *
+     * @throws IllegalArgumentException if no block with the given state id
+     *         exists
+     */
+    public static int stateIdToRaw(final int stateId) {
+        fromStateId(stateId);
+        return BlockStateRegistry.getRaw(stateId);
+    }
+
+    /**
+     * Returns the number of block states. Valid state ids are in the range
+     * [0, getStateCount()).
+     *
+     * @return Number of block states
+     */
+    public static int getStateCount() {
+        return BlockStateRegistry.size();
+    }
+
+    /**
+     * Returns the state id of this block. Each valid combination of block id
+     * and data values has a unique and dense state id, which can be converted
+     * back by {@link #fromStateId(int)}.
+     *
+     * <p>
+     * Tile entities are not part of the block state. Blocks which only differ
+     * in their tile entity have the same state id.
+     *
+     * @return State id
+     */
+    public int getStateId() {
+        return this.stateId;
     }
 
     /**
@@ -125,6 +273,14 @@ public final class Block implements Comparable<Block> {
      *         would be invalid
      */
     public Block mirror(final Set<Axis> plain) {
+        final int normal = normalOf(plain);
+        if ((normal >= 0) && this.isState()) {
+            final int id = Transitions.mirrors[normal][this.stateId];
+            if (id != INVALID_STATE_ID) {
+                return States.table[id];
+            }
+        }
+        // Invalid mirroring or tile entity -> throws or keeps the tile entity
         try {
             return getInstance(this.block, this.data.mirror(plain));
         } catch (final UnsupportedOperationException e) {
@@ -145,6 +301,14 @@ public final class Block implements Comparable<Block> {
      *         would be invalid
      */
     public final Block rotate(final Axis axis, final int degree) {
+        final int turns = quarterTurnsOf(degree);
+        if ((turns > 0) && this.isState()) {
+            final int id = Transitions.rotations[axis.ordinal()][turns - 1][this.stateId];
+            if (id != INVALID_STATE_ID) {
+                return States.table[id];
+            }
+        }
+        // Invalid rotation or tile entity -> throws or keeps the tile entity
         try {
             return getInstance(this.block, this.data.rotate(axis, degree));
         } catch (final UnsupportedOperationException e) {
@@ -152,6 +316,98 @@ public final class Block implements Comparable<Block> {
         }
     }
 
+    /**
+     * Returns the state id of the block with the given state id after the
+     * rotation at the given axis by the given amount of degree. (Axis viewed
+     * from +infinity to -infinity/zero)
+     *
+     * <p>
+     * Rotations by 90, 180 and 270 degree are read from precomputed tables.
+     *
+     * @param stateId State id of the block
+     * @param axis Axis of rotation
+     * @param degree Degree
+     * @return State id after the rotation or {@link #INVALID_STATE_ID} if the
+     *         rotation is invalid for this block
+     *
+     * @throws IllegalArgumentException if no block with the given state id
+     *         exists
+     * @see #rotate(Axis, int)
+     */
+    public static int rotateStateId(final int stateId, final Axis axis, final int degree) {
+        final Block b = fromStateId(stateId);
+        final int turns = quarterTurnsOf(degree);
+        if (turns > 0) {
+            return Transitions.rotations[axis.ordinal()][turns - 1][stateId];
+        }
+        try {
+            return b.rotate(axis, degree).getStateId();
+        } catch (final PlacementInvalidException | IllegalArgumentException e) {
+            return INVALID_STATE_ID;
+        }
+    }
+
+    /**
+     * Returns the state id of the block with the given state id after
+     * mirroring at the given plain. The transitions are read from
+     * precomputed tables.
+     *
+     * @param stateId State id of the block
+     * @param plain Mirror at the given plain
+     * @return State id after the mirroring or {@link #INVALID_STATE_ID} if the
+     *         mirroring is invalid for this block
+     *
+     * @throws IllegalArgumentException if no block with the given state id
+     *         exists or the plain is invalid
+     * @see #mirror(Set)
+     */
+    public static int mirrorStateId(final int stateId, final Set<Axis> plain) {
+        fromStateId(stateId);
+        final int normal = normalOf(Axis.checkPlain(plain));
+        return Transitions.mirrors[normal][stateId];
+    }
+
+    /**
+     * Returns whether this block is the block of its state id. This is not the
+     * case for blocks with a tile entity different from the default one.
+     *
+     * @return true if this block is returned by {@link #fromStateId(int)}
+     */
+    private boolean isState() {
+        return States.table[this.stateId] == this;
+    }
+
+    /**
+     * Returns the number of quarter turns of the given degree which are
+     * covered by the transition tables.
+     *
+     * @param degree Degree
+     * @return 1, 2 or 3 for 90, 180 or 270 degree, otherwise 0
+     */
+    private static int quarterTurnsOf(final int degree) {
+        if ((degree == 90) || (degree == 180) || (degree == 270)) {
+            return degree / 90;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the ordinal of the axis orthogonal to the given plain.
+     *
+     * @param plain Plain
+     * @return Ordinal of the axis or -1 if the plain is invalid
+     */
+    private static int normalOf(final Set<Axis> plain) {
+        if (plain.size() == 2) {
+            for (final Axis axis : Axis.values()) {
+                if (!plain.contains(axis)) {
+                    return axis.ordinal();
+                }
+            }
+        }
+        return -1;
+    }
+
     @Override
     public int compareTo(final Block o) {
         final Block b = checkNotNull(o);
@@ -52,6 +52,11 @@ public abstract class BlockData {
 
     private final SingleInstanceSet<IDataValueEnum> data;
 
+    /** Combined data value (computed at construction) */
+    private final int dataValue;
+
+    /** Orientation data value or {@link Orientation#NONE} */
+    private final IOrientationEnum orientation;
 
     @Nullable
     private final TileEntity entity;
@@ -69,9 +74,9 @@ public abstract class BlockData {
      * a default Data object. Additional a constructor which accepts an
      * {@link IDataValueEnum} array has to exist. The validity of the array
      * should be checked by
-     * {@link #validateDV(IDataValueEnum[], Class, Class...)}. A default
-     * instance of each class should be registered at the
-     * {@link BlockDataFactory}
+     * {@link #validateDV(IDataValueEnum[], Class, Class...)}. The constructors
+     * of each class have to be registered at the {@link BlockDataFactory} in
+     * a static initializer.
      *
      * @param entity Tile entity
      * @param data Data values
@@ -80,6 +85,8 @@ public abstract class BlockData {
     protected BlockData(@Nullable final TileEntity entity, final Set<IDataValueEnum> data) {
         this.data = SingleInstanceSet.copyOf(data, IOrientationEnum.class);
         this.entity = entity;
+        this.dataValue = combine(this.data);
+        this.orientation = findOrientation(this.data);
     }
 
     /**
@@ -94,9 +101,9 @@ public abstract class BlockData {
      * a default Data object. Additional a constructor which accepts an
      * {@link IDataValueEnum} array has to exist. The validity of the array
      * should be checked by
-     * {@link #validateDV(IDataValueEnum[], Class, Class...)}. A default
-     * instance of each class should be registered at the
-     * {@link BlockDataFactory}
+     * {@link #validateDV(IDataValueEnum[], Class, Class...)}. The constructors
+     * of each class have to be registered at the {@link BlockDataFactory} in
+     * a static initializer.
      *
      * @param data Data values
      */
@@ -116,9 +123,9 @@ public abstract class BlockData {
      * a default Data object. Additional a constructor which accepts an
      * {@link IDataValueEnum} array has to exist. The validity of the array
      * should be checked by
-     * {@link #validateDV(IDataValueEnum[], Class, Class...)}. A default
-     * instance of each class should be registered at the
-     * {@link BlockDataFactory}
+     * {@link #validateDV(IDataValueEnum[], Class, Class...)}. The constructors
+     * of each class have to be registered at the {@link BlockDataFactory} in
+     * a static initializer.
      *
      * @param data Data values
      */
@@ -139,9 +146,9 @@ public abstract class BlockData {
      * a default Data object. Additional a constructor which accepts an
      * {@link IDataValueEnum} array has to exist. The validity of the array
      * should be checked by
-     * {@link #validateDV(IDataValueEnum[], Class, Class...)}. A default
-     * instance of each class should be registered at the
-     * {@link BlockDataFactory}
+     * {@link #validateDV(IDataValueEnum[], Class, Class...)}. The constructors
+     * of each class have to be registered at the {@link BlockDataFactory} in
+     * a static initializer.
      *
      * @param entity Tile entity
      * @param data Data values
@@ -150,6 +157,8 @@ public abstract class BlockData {
     protected BlockData(@Nullable final TileEntity entity, final IDataValueEnum... data) {
         this.data = SingleInstanceSet.copyOf(Arrays.asList(data), IOrientationEnum.class);
         this.entity = entity;
+        this.dataValue = combine(this.data);
+        this.orientation = findOrientation(this.data);
     }
 
     /**
@@ -174,7 +183,7 @@ public abstract class BlockData {
      *         the allowed step
      */
     public final BlockData rotate(final Axis axis, final int degree) {
-        return this.setData(this.getOrientation().rotateDegree(axis, degree));
+        return this.setData(this.orientation.rotateDegree(axis, degree));
     }
 
     /**
@@ -193,7 +202,7 @@ public abstract class BlockData {
      * @throws UnsupportedOperationException if the axes are not supported
      */
     public final BlockData mirror(final Set<Axis> plain) {
-        return this.setData(this.getOrientation().mirror(plain));
+        return this.setData(this.orientation.mirror(plain));
     }
 
     /**
@@ -205,6 +214,35 @@ public abstract class BlockData {
         return SingleInstanceSet.copyOf(this.data.asSet());
     }
 
+    /**
+     * Returns the data value of the given class (or a subtype of it) without
+     * copying the data of this block.
+     *
+     * @param clazz Class of the data value
+     * @return Data value
+     *
+     * @throws IllegalArgumentException if this block has no data value of the
+     *         given class
+     */
+    public final <X extends IDataValueEnum> X get(final Class<X> clazz) {
+        for (final IDataValueEnum dv : this.data) {
+            if (clazz.isInstance(dv)) {
+                return clazz.cast(dv);
+            }
+        }
+        throw new IllegalArgumentException("No data value of class " + clazz.getName() + " in " + this);
+    }
+
+    /**
+     * Returns the data values of this block without a defensive copy. The
+     * returned values must not be modified.
+     *
+     * @return Data values of the block
+     */
+    final Iterable<IDataValueEnum> getDataValues() {
+        return this.data;
+    }
+
     /**
      * Returns the TileEntity of this block.
      *
@@ -220,14 +258,22 @@ public abstract class BlockData {
 
     @SuppressWarnings("null")
     // Classes are not null
-    private IOrientationEnum getOrientation() {
-        final ImmutableSet<IOrientationEnum> instances = this.data.getInstancesOf(IOrientationEnum.class);
+    private static IOrientationEnum findOrientation(final SingleInstanceSet<IDataValueEnum> data) {
+        final ImmutableSet<IOrientationEnum> instances = data.getInstancesOf(IOrientationEnum.class);
         if (instances.isEmpty()) {
             return Orientation.NONE;
         }
         return instances.asList().get(0);
     }
 
+    private static int combine(final SingleInstanceSet<IDataValueEnum> data) {
+        int sum = 0;
+        for (final IDataValueEnum dv : data) {
+            sum += dv.getDataValue();
+        }
+        return sum;
+    }
+
     /**
      * Sets a data value of this BlockData to the given value.
      *
@@ -245,20 +291,17 @@ public abstract class BlockData {
         if (newData.equals(this.getData())) {
             return this;
         }
-        return BlockDataFactory.getInstance(this.getClass(), newData.asSet());
+        return BlockDataFactory.getInstance(this.getClass(), this.entity, newData.asSet());
     }
 
     /**
-     * Returns the combined data value for this block data.
+     * Returns the combined data value for this block data. The value is
+     * computed at construction, so this method doesn't allocate.
      *
      * @return Combined data value
      */
-    final int getDataValue() {
-        int sum = 0;
-        for (final IDataValueEnum data : this.getData()) {
-            sum += data.getDataValue();
-        }
-        return sum;
+    public final int getDataValue() {
+        return this.dataValue;
     }
 
     @Override
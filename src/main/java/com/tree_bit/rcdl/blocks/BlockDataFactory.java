@@ -3,21 +3,24 @@ package com.tree_bit.rcdl.blocks;
 import com.tree_bit.rcdl.blocks.dv.IDataValueEnum;
 import com.tree_bit.rcdl.blocks.entities.TileEntity;
 
-import com.google.common.cache.CacheBuilder;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import org.eclipse.jdt.annotation.Nullable;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Factory class for BlockData instances.
@@ -28,6 +31,19 @@ import java.util.Set;
  * type: IDataValueEnum[] <br>
  * If the given data values are invalid for the block data type, a
  * IllegalArgumentException should be thrown.
+ *
+ * <p>
+ * The constructors are registered by each class in its static initializer
+ * with {@link #registerFactory(Class, Supplier, Function)}, so no reflection
+ * is necessary to create new instances.
+ *
+ * <p>
+ * By default instances are interned by a weak cache. If the system property
+ * {@value #CANONICAL_PROPERTY} is set to {@code true}, all instances of
+ * classes without tile entity are created at startup and held in strongly
+ * referenced tables instead (see {@link DataLayout}). Looking up an instance
+ * is then an index computation and instances are guaranteed to be canonical
+ * (comparable by {@code ==}). Classes with tile entity always use the cache.
  */
 class BlockDataFactory {
 
@@ -40,36 +56,41 @@ class BlockDataFactory {
             final Class<? extends BlockData> clazz = key.getRow();
             final ImmutableSet<IDataValueEnum> dv = key.getColumn();
             final TileEntity entity = key.getLayer();
-            return create(clazz, dv, entity);
+            return create(clazz, dv.toArray(new IDataValueEnum[0]), entity);
         }
 
-        private static <T extends BlockData> T create(final Class<T> clazz, final ImmutableSet<IDataValueEnum> dv, @Nullable final TileEntity entity) {
+    }
 
-            try {
-                if (entity == null) {
-                    final Constructor<T> construct = clazz.getDeclaredConstructor(IDataValueEnum[].class);
-                    construct.setAccessible(true);
-                    return construct.newInstance(new Object[] {dv.toArray(new IDataValueEnum[0])});
-                }
-                // Else with TileEntity
-                final Constructor<T> construct = clazz.getDeclaredConstructor(IDataValueEnum[].class, TileEntity.class);
-                construct.setAccessible(true);
-                return construct.newInstance(new Object[] {dv.toArray(new IDataValueEnum[0]), entity});
-
-            } catch (NoSuchMethodException | SecurityException | InstantiationException | IllegalAccessException | IllegalArgumentException
-                    | InvocationTargetException e) {
-                throw new AssertionError("Class: " + clazz + " DV: " + dv.toString(), e);
-            }
+    /**
+     * Constructors of a BlockData class.
+     *
+     * @param <T> BlockData class
+     */
+    private static final class Factory<T extends BlockData> {
+
+        private final Supplier<T> defaultFactory;
+        private final Function<IDataValueEnum[], T> factory;
+        @Nullable
+        private final BiFunction<IDataValueEnum[], TileEntity, T> entityFactory;
+
+        Factory(final Supplier<T> defaultFactory, final Function<IDataValueEnum[], T> factory,
+                @Nullable final BiFunction<IDataValueEnum[], TileEntity, T> entityFactory) {
+            this.defaultFactory = defaultFactory;
+            this.factory = factory;
+            this.entityFactory = entityFactory;
         }
-
     }
 
+    /** System property enabling the canonical mode */
+    static final String CANONICAL_PROPERTY = "com.tree_bit.rcdl.blocks.canonical";
+
+    private static final boolean canonical = Boolean.getBoolean(CANONICAL_PROPERTY);
 
     private static final LoadingCache<DataKey<Class<? extends BlockData>, ImmutableSet<IDataValueEnum>, TileEntity>, BlockData> cache;
 
     static {
         final LoadingCache<DataKey<Class<? extends BlockData>, ImmutableSet<IDataValueEnum>, TileEntity>, BlockData> c =
-                CacheBuilder.newBuilder().weakValues().build(new Loader());
+                CacheMetrics.newCacheBuilder().build(new Loader());
         if (c != null) {
             cache = c;
         } else {
@@ -77,20 +98,124 @@ class BlockDataFactory {
         }
     }
 
-    private static final Map<Class<? extends BlockData>, BlockData> defaults = new HashMap<>();
+    /** Default instance of each class (published safely by ClassValue) */
+    private static final ClassValue<BlockData> defaults = new ClassValue<BlockData>() {
 
+        @SuppressWarnings("unchecked")
+        // Only used for subtypes of BlockData
+        @Override
+        protected BlockData computeValue(final Class<?> type) {
+            final BlockData instance = create((Class<? extends BlockData>) type);
+            // Intern it (the cache/table returns one instance per key)
+            return getInstance(instance.getClass(), instance.getTileEntity().orElse(null), instance.getData().asSet());
+        }
+    };
+
+    private static final Map<Class<? extends BlockData>, Factory<?>> factories = new ConcurrentHashMap<>();
+
+    /**
+     * Returns whether the canonical mode is enabled.
+     *
+     * @return true if instances without tile entity are held in canonical
+     *         tables
+     */
+    static boolean isCanonical() {
+        return canonical;
+    }
+
+    /**
+     * Returns the cache interning the instances (for statistics).
+     *
+     * @return Cache
+     */
+    static Cache<?, ?> getCache() {
+        return cache;
+    }
+
+    /**
+     * Registers the constructors of a BlockData class. This has to be called
+     * in the static initializer of each supported class.
+     *
+     * @param clazz Class of a subtype of BlockData
+     * @param defaultFactory Constructor creating the default data object
+     * @param factory Constructor accepting an IDataValueEnum array
+     */
+    static <T extends BlockData> void registerFactory(final Class<T> clazz, final Supplier<T> defaultFactory,
+            final Function<IDataValueEnum[], T> factory) {
+        factories.put(clazz, new Factory<>(defaultFactory, factory, null));
+    }
+
+    /**
+     * Registers the constructors of a BlockData class with a tile entity. This
+     * has to be called in the static initializer of each supported class.
+     *
+     * @param clazz Class of a subtype of BlockData
+     * @param defaultFactory Constructor creating the default data object
+     * @param factory Constructor accepting an IDataValueEnum array
+     * @param entityFactory Constructor accepting an IDataValueEnum array and a
+     *        tile entity
+     */
+    static <T extends BlockData> void registerFactory(final Class<T> clazz, final Supplier<T> defaultFactory,
+            final Function<IDataValueEnum[], T> factory, final BiFunction<IDataValueEnum[], TileEntity, T> entityFactory) {
+        factories.put(clazz, new Factory<>(defaultFactory, factory, entityFactory));
+    }
 
     @SuppressWarnings("unchecked")
-    private static <T extends BlockData> T equalOrThis(final Class<T> clazz, final T instance, final Collection<IDataValueEnum> dataValues) {
-        // Defensive copy
-        final SingleInstanceSet<IDataValueEnum> dv = SingleInstanceSet.copyOf(dataValues);
-        final BlockData current = cache.getIfPresent(DataKey.of(clazz, dv.asSet()));
-        if (instance.equals(current)) {
-            return (T) current;
+    // Cast is safe (checked by registerFactory)
+    private static <T extends BlockData> Factory<T> getFactory(final Class<T> clazz) {
+        Factory<?> f = factories.get(clazz);
+        if (f == null) {
+            // Factories are registered by the static initializer of the class
+            try {
+                Class.forName(clazz.getName(), true, clazz.getClassLoader());
+            } catch (final ClassNotFoundException e) {
+                throw new AssertionError(e);
+            }
+            f = factories.get(clazz);
+            if (f == null) {
+                throw new AssertionError("No factory registered for: " + clazz);
+            }
+        }
+        return (Factory<T>) f;
+    }
+
+    /**
+     * Creates a new default BlockData instance of the given class without
+     * using the cache.
+     *
+     * @param clazz Class of a subtype of BlockData
+     * @return New instance
+     */
+    static <T extends BlockData> T create(final Class<T> clazz) {
+        return getFactory(clazz).defaultFactory.get();
+    }
+
+    /**
+     * Creates a new BlockData instance of the given class without using the
+     * cache.
+     *
+     * @param clazz Class of a subtype of BlockData
+     * @param dv Data values
+     * @param entity Tile entity or null
+     * @return New instance
+     *
+     * @throws IllegalArgumentException if the given data values are invalid for
+     *         the given class
+     */
+    @SuppressWarnings("null")
+    static <T extends BlockData> T create(final Class<T> clazz, final IDataValueEnum[] dv, @Nullable final TileEntity entity) {
+        final Factory<T> f = getFactory(clazz);
+        if (entity == null) {
+            return f.factory.apply(dv);
         }
-        return instance;
+        // Else with TileEntity
+        if (f.entityFactory == null) {
+            throw new IllegalArgumentException("Class: " + clazz + " doesn't support tile entities. Given: " + entity);
+        }
+        return f.entityFactory.apply(dv, entity);
     }
 
+
     /**
      * Registers an BlockData instance of the given class with the given data
      * values.
@@ -149,11 +274,28 @@ class BlockDataFactory {
     // Return value of map can be null
     static <T extends BlockData> T getInstance(final Class<T> clazz, @Nullable final TileEntity entity, final Collection<IDataValueEnum> dataValues) {
 
+        if (canonical && (entity == null)) {
+            final DataLayout layout = DataLayout.of(clazz);
+            final int index = layout.indexOf(dataValues);
+            if (index >= 0) {
+                final BlockData bd = layout.getCanonical(index);
+                if (bd != null) {
+                    return clazz.cast(bd);
+                }
+            }
+        }
+
         // Defensive copy
         final ImmutableSet<IDataValueEnum> dv = SingleInstanceSet.copyOf(dataValues).asSet();
 
         final DataKey<Class<? extends BlockData>, ImmutableSet<IDataValueEnum>, TileEntity> key = DataKey.of(clazz, dv, entity);
-        final BlockData bd = cache.getUnchecked(key);
+        final BlockData bd;
+        try {
+            bd = cache.getUnchecked(key);
+        } catch (final UncheckedExecutionException e) {
+            // Rethrow IllegalArgumentException of invalid data values
+            throw Throwables.propagate(e.getCause());
+        }
         if (bd.getClass() == clazz) {
             return clazz.cast(bd);
         }
@@ -198,95 +340,18 @@ class BlockDataFactory {
     }
 
     /**
-     * Registers an BlockData instance of the given class with the given data
-     * values as default. An existing default reference will be overwritten. If
-     * no data values are given, they are extracted from the instance.
-     *
-     * <p>
-     * If an equal instance was already registered the equal one will be used as
-     * default.
-     *
-     * @param clazz Class of a subtype of BlockData
-     * @param instance Instance
-     * @param dataValues Data values
-     */
-    @SuppressWarnings("null")
-    static <T extends BlockData> void registerDefault(final Class<T> clazz, final T instance, @Nullable final TileEntity entity,
-            final IDataValueEnum... dataValues) {
-        Collection<IDataValueEnum> dv;
-        if (dataValues.length == 0) {
-            dv = instance.getData().asSet();
-        } else {
-            dv = Arrays.asList(dataValues);
-        }
-        BlockDataFactory.registerDefault(clazz, instance, entity, dv);
-    }
-
-    static <T extends BlockData> void registerDefault(final Class<T> clazz, final T instance, final IDataValueEnum... dataValues) {
-        registerDefault(clazz, instance, instance.getTileEntity().orElse(null), dataValues);
-    }
-
-    /**
-     * Registers an BlockData instance of the given class with the given data
-     * values as default. An existing default reference will be overwritten.
+     * Returns the default BlockData instance of the given class.
      *
      * <p>
-     * If an equal instance was already registered the equal one will be used as
-     * default.
-     *
-     * @param clazz Class of a subtype of BlockData
-     * @param instance Instance
-     * @param dataValues Collection of data values
-     */
-    static <T extends BlockData> void registerDefault(final Class<T> clazz, final T instance, @Nullable final TileEntity entity,
-            final Collection<IDataValueEnum> dataValues) {
-        final T instanceReg = BlockDataFactory.equalOrThis(clazz, instance, dataValues);
-        register(clazz, instanceReg, entity, dataValues);
-        defaults.put(clazz, instanceReg);
-    }
-
-    /**
-     * Returns the default BlockData instance of the given class.
+     * The lookup is lock-free. On the first access the default instance is
+     * created and interned like any other instance, so concurrent first
+     * accesses return the same instance.
      *
      * @param clazz Class of a subtype of BlockData
      * @return BlockData of the given class with the default data values
      */
-    @SuppressWarnings({"unused", "null"})
-    // Cast is safe
     static <T extends BlockData> T getDefaultInstance(final Class<T> clazz) {
-
-        BlockData bd = defaults.get(clazz);
-        if (bd == null) {
-            // Create new instance if not existing
-            synchronized (BlockDataFactory.class) {
-                bd = defaults.get(clazz);
-                if (bd == null) {
-                    try {
-                        final Constructor<T> construct = clazz.getDeclaredConstructor();
-                        construct.setAccessible(true);
-                        final T instance = construct.newInstance();
-                        // Check if equal instance was already existing?
-                        // Y: Register existing as default and return.
-                        // N: Register new one and return.
-                        @SuppressWarnings("unchecked")
-                        // Cast is safe
-                        final T existingInstance = (T) cache.getUnchecked(DataKey.of(clazz, instance.getData().asSet(), null));
-                        if (instance.equals(existingInstance)) {
-                            BlockDataFactory.registerDefault(clazz, existingInstance);
-                            return existingInstance;
-                        }
-                        BlockDataFactory.registerDefault(clazz, instance);
-                        return instance;
-                    } catch (NoSuchMethodException | SecurityException | InstantiationException | IllegalAccessException | IllegalArgumentException
-                            | InvocationTargetException e) {
-                        throw new AssertionError(e);
-                    }
-                }
-            }
-        } else if (bd.getClass() == clazz) {
-            return clazz.cast(bd);
-        }
-        throw new AssertionError();
+        return clazz.cast(defaults.get(clazz));
     }
 
 }
@@ -2,6 +2,8 @@ package com.tree_bit.rcdl.blocks;
 
 import com.google.common.base.Objects;
 
+import java.util.Locale;
+
 /**
  * Mapping of block names to id.
  */
@@ -81,11 +83,11 @@ public enum BlockID {
     /** Wool */
     WOOL(35, ColorBlock.class),
     /** Technical piston block */
-    PISTON_MOVING_PIECE(36),
+    PISTON_MOVING_PIECE(36, "piston_extension"),
     /** Dandelion */
     YELLOW_FLOWER(37),
     /** Poppy */
-    RED_ROSE(38),
+    RED_ROSE(38, "red_flower"),
     /** Brown mushroom */
     BROWN_MUSHROOM(39),
     /** Red mushroom */
@@ -133,7 +135,7 @@ public enum BlockID {
     /** Furnace */
     FURNACE(61),
     /** Burning furnace */
-    BURNING_FURNACE(62),
+    BURNING_FURNACE(62, "lit_furnace"),
     /** Standing sign block */
     STANDING_SIGN(63, StandingSign.class),
     /** Oak door block */
@@ -149,17 +151,17 @@ public enum BlockID {
     /** lever */
     LEVER(69),
     /** Stone pressure plate */
-    STONE_PLATE(70),
+    STONE_PLATE(70, "stone_pressure_plate"),
     /** Iron door block */
     IRON_DOOR(71),
     /** Wooden pressure plate */
-    WOODEN_PLATE(72),
+    WOODEN_PLATE(72, "wooden_pressure_plate"),
     /** Redstone ore */
     REDSTONE_ORE(73),
     /** Glowing redstone ore */
-    GLOWING_REDSTONE_ORE(74),
+    GLOWING_REDSTONE_ORE(74, "lit_redstone_ore"),
     /** Redstone torch (off) */
-    REDSTONE_TORCH_OFF(75, Torch.class),
+    REDSTONE_TORCH_OFF(75, "unlit_redstone_torch", Torch.class),
     /** Redstone torch (on) */
     REDSTONE_TORCH(76, Torch.class),
     /** Stone button */
@@ -175,7 +177,7 @@ public enum BlockID {
     /** Clay */
     CLAY(82),
     /** Sugar Canes */
-    SUGAR_CANES(83),
+    SUGAR_CANES(83, "reeds"),
     /** Jukebox */
     JUKEBOX(84),
     /** Oak fence */
@@ -191,13 +193,13 @@ public enum BlockID {
     /** Nether portal */
     PORTAL(90),
     /** Jack o'Lantern */
-    JACK_O_LANTERN(91),
+    JACK_O_LANTERN(91, "lit_pumpkin"),
     /** Cake */
     CAKE(92),
     /** Redstone repeater (off) */
-    REPEATER_OFF(93, Repeater.class),
+    REPEATER_OFF(93, "unpowered_repeater", Repeater.class),
     /** Redstone repeater (on) */
-    REPEATER_ON(94, Repeater.class),
+    REPEATER_ON(94, "powered_repeater", Repeater.class),
     /** Stained glass */
     STAINED_GLASS(95, ColorBlock.class),
     /** Wooden trapdoor */
@@ -207,9 +209,9 @@ public enum BlockID {
     /** Stone brick */
     STONEBRICK(98),
     /** Red mushroom cap */
-    RED_MUSHROOM_CAP(99),
+    RED_MUSHROOM_CAP(99, "red_mushroom_block"),
     /** Brown mushroom cap */
-    BROWN_MUSHROOM_CAP(100),
+    BROWN_MUSHROOM_CAP(100, "brown_mushroom_block"),
     /** Iron bars */
     IRON_BARS(101),
     /** Glass pane */
@@ -241,7 +243,7 @@ public enum BlockID {
     /** Nether wart */
     NETHER_WART(115),
     /** Enchantment table */
-    ENCHANTMENT_TABLE(116),
+    ENCHANTMENT_TABLE(116, "enchanting_table"),
     /** Brewing stand */
     BREWING_STAND(117),
     /** Cauldron */
@@ -255,13 +257,13 @@ public enum BlockID {
     /** Dragon egg */
     DRAGON_EGG(122),
     /** Redstone lamp (off) */
-    REDSTONE_LAMP_OFF(123),
+    REDSTONE_LAMP_OFF(123, "redstone_lamp"),
     /** Redstone lamp (on) */
-    REDSTONE_LAMP_ON(124),
+    REDSTONE_LAMP_ON(124, "lit_redstone_lamp"),
     /** Double wood slab */
-    DOUBLE_WOOD_SLAB(125),
+    DOUBLE_WOOD_SLAB(125, "double_wooden_slab"),
     /** Wood slab */
-    WOOD_SLAB(126),
+    WOOD_SLAB(126, "wooden_slab"),
     /** Cocoa */
     COCOA(127),
     /** Sandstone stairs */
@@ -303,13 +305,13 @@ public enum BlockID {
     /** Trapped chest */
     TRAPPED_CHEST(146),
     /** Weighted pressure plate (light) */
-    GOLD_PLATE(147),
+    GOLD_PLATE(147, "light_weighted_pressure_plate"),
     /** Weighted pressure plate (heavy) */
-    IRON_PLATE(148),
+    IRON_PLATE(148, "heavy_weighted_pressure_plate"),
     /** Redstone comparator (off) */
-    REDSTONE_COMPARATOR_OFF(149),
+    REDSTONE_COMPARATOR_OFF(149, "unpowered_comparator"),
     /** Redstone comparator (on) */
-    REDSTONE_COMPARATOR_ON(150),
+    REDSTONE_COMPARATOR_ON(150, "powered_comparator"),
     /** Daylight sensor */
     DAYLIGHT_DETECTOR(151),
     /** Redstone block */
@@ -327,13 +329,13 @@ public enum BlockID {
     /** Dropper */
     DROPPER(158),
     /** Stained clay */
-    STAINED_CLAY(159, ColorBlock.class),
+    STAINED_CLAY(159, "stained_hardened_clay", ColorBlock.class),
     /** Stained glass pane */
     STAINED_GLASS_PANE(160, ColorBlock.class),
     /** Leaves 2 */
-    LEAVES_2(161),
+    LEAVES_2(161, "leaves2"),
     /** Log 2 */
-    LOG_2(162),
+    LOG_2(162, "log2"),
     /** Acacia wood stairs */
     ACACIA_STAIRS(163),
     /** Dark oak wood stairs */
@@ -371,9 +373,9 @@ public enum BlockID {
     /** Red sandstone stairs */
     RED_SANDSTONE_STAIRS(180),
     /** Double stone slabs 2 */
-    DOUBLE_STONE_SLAB_2(181),
+    DOUBLE_STONE_SLAB_2(181, "double_stone_slab2"),
     /** Stone slabs 2 */
-    STONE_SLAB_2(182, HalfSlab2.class),
+    STONE_SLAB_2(182, "stone_slab2", HalfSlab2.class),
     /** Spruce fence gate */
     SPRUCE_FENCE_GATE(183),
     /** Birch fence gate */
@@ -405,7 +407,34 @@ public enum BlockID {
     /** Dark oak door */
     DARK_OAK_DOOR(197);
 
+    /** Number of possible block ids (including the AddBlocks range) */
+    private static final int ID_COUNT = 4096;
+
+    private static final String PREFIX = "minecraft:";
+
+    private static final BlockID[] byId = new BlockID[ID_COUNT];
+
+    /** Open addressing hash table of all accepted names (lower case) */
+    private static final String[] nameKeys;
+    private static final BlockID[] nameValues;
+
+    static {
+        for (final BlockID block : values()) {
+            byId[block.id] = block;
+        }
+
+        // Enum names and Minecraft names, load factor <= 0.25
+        final int size = Integer.highestOneBit(values().length * 2 * 4) << 1;
+        nameKeys = new String[size];
+        nameValues = new BlockID[size];
+        for (final BlockID block : values()) {
+            putName(block.name().toLowerCase(Locale.ENGLISH), block);
+            putName(block.minecraftName, block);
+        }
+    }
+
     private final int id;
+    private final String minecraftName;
     private final Class<? extends BlockData> dataClass;
 
     private BlockID(final int id) {
@@ -414,18 +443,115 @@ public enum BlockID {
 
     private BlockID(final int id, final Class<? extends BlockData> dataClass) {
         this.id = id;
+        this.minecraftName = this.name().toLowerCase(Locale.ENGLISH);
+        this.dataClass = dataClass;
+    }
+
+    private BlockID(final int id, final String minecraftName) {
+        this(id, minecraftName, GenericBlockData.class);
+    }
+
+    private BlockID(final int id, final String minecraftName, final Class<? extends BlockData> dataClass) {
+        this.id = id;
+        this.minecraftName = minecraftName;
         this.dataClass = dataClass;
     }
 
+    /**
+     * Returns the block id with the given numeric id.
+     *
+     * <p>
+     * The lookup is a single array access.
+     *
+     * @param id Numeric block id in [0, 4096)
+     * @return Block id
+     *
+     * @throws IllegalArgumentException if there is no block with the given id
+     */
+    public static BlockID fromId(final int id) {
+        if ((id >= 0) && (id < ID_COUNT)) {
+            final BlockID block = byId[id];
+            if (block != null) {
+                return block;
+            }
+        }
+        throw new IllegalArgumentException("Unknown block id: " + id);
+    }
+
+    /**
+     * Returns the block id with the given name. Accepted are the names of
+     * this enum (e.g. 'STONE', 'REPEATER_OFF') and the Minecraft names with
+     * or without namespace (e.g. 'minecraft:stone', 'unpowered_repeater').
+     * The name is not case sensitive.
+     *
+     * <p>
+     * The lookup uses a precomputed hash table and does not allocate.
+     *
+     * @param name Name of the block
+     * @return Block id
+     *
+     * @throws IllegalArgumentException if there is no block with the given
+     *         name
+     */
+    public static BlockID fromName(final String name) {
+        final int offset = name.regionMatches(true, 0, PREFIX, 0, PREFIX.length()) ? PREFIX.length() : 0;
+        final int length = name.length() - offset;
+        final int mask = nameKeys.length - 1;
+        for (int i = hash(name, offset) & mask;; i = (i + 1) & mask) {
+            final String key = nameKeys[i];
+            if (key == null) {
+                throw new IllegalArgumentException("Unknown block name: " + name);
+            }
+            if ((key.length() == length) && name.regionMatches(true, offset, key, 0, length)) {
+                return nameValues[i];
+            }
+        }
+    }
+
+    private static void putName(final String name, final BlockID block) {
+        final int mask = nameKeys.length - 1;
+        int i = hash(name, 0) & mask;
+        while (nameKeys[i] != null) {
+            if (nameKeys[i].equals(name)) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        nameKeys[i] = name;
+        nameValues[i] = block;
+    }
+
+    /**
+     * Case insensitive hash of a name starting at the given offset.
+     */
+    private static int hash(final String name, final int offset) {
+        int h = 0;
+        for (int i = offset; i < name.length(); i++) {
+            h = (31 * h) + Character.toLowerCase(name.charAt(i));
+        }
+        // Spread the bits (like HashMap)
+        return h ^ (h >>> 16);
+    }
+
     /**
      * Returns the block id.
      *
      * @return Block id
      */
-    int getId() {
+    public int getId() {
         return this.id;
     }
 
+    /**
+     * Returns the Minecraft name of this block including the namespace. (e.g.
+     * 'minecraft:stone')
+     *
+     * @return Minecraft name
+     */
+    public String getMinecraftName() {
+        return PREFIX + this.minecraftName;
+    }
+
     /**
      * Returns the data class of this block.
      *
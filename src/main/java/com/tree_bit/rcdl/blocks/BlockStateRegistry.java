@@ -0,0 +1,188 @@
+package com.tree_bit.rcdl.blocks;
+
+import com.tree_bit.rcdl.blocks.dv.IDataValueEnum;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Global registry assigning every valid combination of a {@link BlockID} and
+ * the data values of its {@link BlockData} a dense state id.
+ *
+ * <p>
+ * The state ids of a block id form a continuous range. Inside this range the
+ * data values are encoded by the {@link DataLayout} of the data class, so the
+ * state id of a block can be computed without any lookup.
+ *
+ * <p>
+ * Tile entities are not part of a block state. Blocks which only differ in
+ * their tile entity share the same state id.
+ *
+ * <p>
+ * Additionally a table for decoding raw block ids and data values (as saved
+ * in schematic files) into state ids is precomputed. Transition tables for
+ * rotating and mirroring states are created on demand.
+ */
+final class BlockStateRegistry {
+
+    private static final BlockID[] ids = BlockID.values();
+
+    /** First state id of each block id (indexed by ordinal) */
+    private static final int[] offsets = new int[ids.length + 1];
+
+    /** Number of raw block ids */
+    static final int RAW_IDS = 256;
+
+    /** Number of raw data values */
+    static final int RAW_DATA_VALUES = 16;
+
+    /** State id of each raw combination {@code (id << 4) | meta}, -1 if invalid */
+    private static final int[] rawStates = new int[RAW_IDS * RAW_DATA_VALUES];
+
+    /** Raw combination {@code (id << 4) | meta} of each state id */
+    private static final short[] raws;
+
+    static {
+        for (int i = 0; i < ids.length; i++) {
+            offsets[i + 1] = offsets[i] + DataLayout.of(ids[i].getDataClass()).size();
+        }
+        raws = new short[offsets[ids.length]];
+
+        Arrays.fill(rawStates, -1);
+        for (int i = 0; i < ids.length; i++) {
+            final DataLayout layout = DataLayout.of(ids[i].getDataClass());
+            final int rawId = ids[i].getId() << 4;
+            for (int j = 0; j < layout.size(); j++) {
+                int meta = 0;
+                for (final IDataValueEnum dv : layout.valuesOf(j)) {
+                    meta += dv.getDataValue();
+                }
+                if (meta >= RAW_DATA_VALUES) {
+                    throw new AssertionError("Data value out of range: " + ids[i] + " " + Arrays.toString(layout.valuesOf(j)));
+                }
+                raws[offsets[i] + j] = (short) (rawId | meta);
+                // First state wins if multiple states share a data value
+                if (rawStates[rawId | meta] < 0) {
+                    rawStates[rawId | meta] = offsets[i] + j;
+                }
+            }
+            // Data values of generic blocks are not modeled -> ignore them
+            if (ids[i].getDataClass() == GenericBlockData.class) {
+                Arrays.fill(rawStates, rawId, rawId + RAW_DATA_VALUES, offsets[i]);
+            }
+        }
+    }
+
+    private BlockStateRegistry() {}
+
+    /**
+     * Returns the number of registered states.
+     *
+     * @return Number of states
+     */
+    static int size() {
+        return offsets[ids.length];
+    }
+
+    /**
+     * Computes the state id of the given block id and data.
+     *
+     * @param block Block id
+     * @param data Block data matching the data class of the block id
+     * @return State id
+     */
+    static int getStateId(final BlockID block, final BlockData data) {
+        return offsets[block.ordinal()] + DataLayout.of(block.getDataClass()).indexOf(data);
+    }
+
+    /**
+     * Returns the state id of the given raw block id and data value.
+     *
+     * @param id Raw block id in [0, 256)
+     * @param meta Raw data value in [0, 16)
+     * @return State id or -1 if the combination has no state
+     */
+    static int getStateId(final int id, final int meta) {
+        if ((id < 0) || (id >= RAW_IDS) || (meta < 0) || (meta >= RAW_DATA_VALUES)) {
+            return -1;
+        }
+        return rawStates[(id << 4) | meta];
+    }
+
+    /**
+     * Returns the raw block id and data value of the given state id.
+     *
+     * @param stateId State id in [0, size)
+     * @return Raw combination {@code (id << 4) | meta}
+     */
+    static int getRaw(final int stateId) {
+        return raws[stateId];
+    }
+
+    /**
+     * Creates a table containing the block of each state id.
+     *
+     * @return Table indexed by state id
+     */
+    static Block[] createBlocks() {
+        final Block[] blocks = new Block[size()];
+        for (final BlockID id : ids) {
+            final DataLayout layout = DataLayout.of(id.getDataClass());
+            for (int i = 0; i < layout.size(); i++) {
+                blocks[offsets[id.ordinal()] + i] = Block.getInstance(id, layout.dataOf(i));
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Creates the rotation transition tables of all states.
+     *
+     * @param blocks Table containing the block of each state id
+     * @return Table [axis][quarter turns - 1][state id] containing the state id
+     *         after rotating by 90, 180 or 270 degree or -1 if the rotation is
+     *         invalid
+     */
+    static int[][][] createRotations(final Block[] blocks) {
+        final Axis[] axes = Axis.values();
+        final int[][][] rotations = new int[axes.length][3][blocks.length];
+        for (final Axis axis : axes) {
+            for (int turns = 1; turns <= 3; turns++) {
+                final int[] table = rotations[axis.ordinal()][turns - 1];
+                for (int i = 0; i < blocks.length; i++) {
+                    try {
+                        table[i] = getStateId(blocks[i].getBlock(), blocks[i].getData().rotate(axis, turns * 90));
+                    } catch (final UnsupportedOperationException | IllegalArgumentException e) {
+                        table[i] = -1;
+                    }
+                }
+            }
+        }
+        return rotations;
+    }
+
+    /**
+     * Creates the mirror transition tables of all states.
+     *
+     * @param blocks Table containing the block of each state id
+     * @return Table [axis orthogonal to the plain][state id] containing the
+     *         state id after mirroring or -1 if the mirroring is invalid
+     */
+    static int[][] createMirrors(final Block[] blocks) {
+        final Axis[] axes = Axis.values();
+        final int[][] mirrors = new int[axes.length][blocks.length];
+        for (final Axis normal : axes) {
+            final Set<Axis> plain = EnumSet.complementOf(EnumSet.of(normal));
+            final int[] table = mirrors[normal.ordinal()];
+            for (int i = 0; i < blocks.length; i++) {
+                try {
+                    table[i] = getStateId(blocks[i].getBlock(), blocks[i].getData().mirror(plain));
+                } catch (final UnsupportedOperationException | IllegalArgumentException e) {
+                    table[i] = -1;
+                }
+            }
+        }
+        return mirrors;
+    }
+}
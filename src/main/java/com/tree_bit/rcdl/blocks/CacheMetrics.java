@@ -0,0 +1,203 @@
+package com.tree_bit.rcdl.blocks;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Statistics of the caches interning {@link Block} and {@link BlockData}
+ * instances.
+ *
+ * <p>
+ * By default the caches hold their values by weak references, so unused
+ * instances can be collected (and have to be created again on the next
+ * lookup). If the system property {@value #STRONG_PROPERTY} is set to
+ * {@code true}, the values are strongly referenced instead and never evicted.
+ *
+ * <p>
+ * The statistics can be read directly or published as MBeans by
+ * {@link #registerMBeans()} (domain {@value #DOMAIN}).
+ */
+public final class CacheMetrics implements CacheMetricsMXBean {
+
+    /** System property enabling strongly referenced cache values */
+    public static final String STRONG_PROPERTY = "com.tree_bit.rcdl.blocks.strongCache";
+
+    /** JMX domain of the MBeans */
+    public static final String DOMAIN = "com.tree_bit.rcdl.blocks";
+
+    private static final boolean strong = Boolean.getBoolean(STRONG_PROPERTY);
+
+    private final String name;
+    private final Cache<?, ?> cache;
+
+    private CacheMetrics(final String name, final Cache<?, ?> cache) {
+        this.name = name;
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the statistics of the {@link Block} cache.
+     *
+     * @return Statistics
+     */
+    public static CacheMetrics forBlocks() {
+        return new CacheMetrics("Block", Block.getCache());
+    }
+
+    /**
+     * Returns the statistics of the {@link BlockData} cache.
+     *
+     * @return Statistics
+     */
+    public static CacheMetrics forBlockData() {
+        return new CacheMetrics("BlockData", BlockDataFactory.getCache());
+    }
+
+    /**
+     * Registers the MBeans of both caches at the platform MBean server. Does
+     * nothing for already registered MBeans.
+     *
+     * @throws IllegalStateException if the registration fails
+     */
+    public static void registerMBeans() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (final CacheMetrics metrics : new CacheMetrics[] {forBlocks(), forBlockData()}) {
+            try {
+                server.registerMBean(metrics, metrics.getObjectName());
+            } catch (final InstanceAlreadyExistsException e) {
+                // Already registered
+            } catch (final JMException e) {
+                throw new IllegalStateException("Can't register MBean of cache " + metrics.name, e);
+            }
+        }
+    }
+
+    /**
+     * Removes the MBeans of both caches from the platform MBean server. Does
+     * nothing for MBeans which aren't registered.
+     *
+     * @throws IllegalStateException if the removal fails
+     */
+    public static void unregisterMBeans() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (final CacheMetrics metrics : new CacheMetrics[] {forBlocks(), forBlockData()}) {
+            try {
+                server.unregisterMBean(metrics.getObjectName());
+            } catch (final InstanceNotFoundException e) {
+                // Not registered
+            } catch (final JMException e) {
+                throw new IllegalStateException("Can't unregister MBean of cache " + metrics.name, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the name under which the MBean of this cache is registered.
+     *
+     * @return Object name
+     *
+     * @throws IllegalStateException if the name is malformed
+     */
+    public ObjectName getObjectName() {
+        try {
+            return new ObjectName(DOMAIN + ":type=Cache,name=" + this.name);
+        } catch (final JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates a cache builder for the interning caches of this package,
+     * recording statistics and using weak or strong values depending on
+     * {@value #STRONG_PROPERTY}.
+     *
+     * @return Cache builder
+     */
+    static CacheBuilder<Object, Object> newCacheBuilder() {
+        final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+        return strong ? builder : builder.weakValues();
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public boolean isWeakValues() {
+        return !strong;
+    }
+
+    @Override
+    public long getSize() {
+        return this.cache.size();
+    }
+
+    @Override
+    public long getHitCount() {
+        return this.stats().hitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return this.stats().missCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        return this.stats().hitRate();
+    }
+
+    @Override
+    public long getLoadCount() {
+        return this.stats().loadCount();
+    }
+
+    @Override
+    public long getLoadExceptionCount() {
+        return this.stats().loadExceptionCount();
+    }
+
+    @Override
+    public long getTotalLoadTime() {
+        return this.stats().totalLoadTime();
+    }
+
+    @Override
+    public double getAverageLoadPenalty() {
+        return this.stats().averageLoadPenalty();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return this.stats().evictionCount();
+    }
+
+    /**
+     * Returns a snapshot of the current statistics. The counters are
+     * cumulative since the cache was created, use
+     * {@link CacheStats#minus(CacheStats)} to get the statistics of an
+     * interval.
+     *
+     * @return Statistics
+     */
+    public CacheStats stats() {
+        return this.cache.stats();
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this).add("name", this.name).add("weakValues", this.isWeakValues()).add("size", this.getSize())
+                .add("stats", this.stats()).toString();
+    }
+}
@@ -0,0 +1,87 @@
+package com.tree_bit.rcdl.blocks;
+
+/**
+ * JMX view of the statistics of one interning cache.
+ *
+ * @see CacheMetrics
+ */
+public interface CacheMetricsMXBean {
+
+    /**
+     * Returns the name of the cache.
+     *
+     * @return Name
+     */
+    String getName();
+
+    /**
+     * Returns whether the cache holds its values by weak references.
+     *
+     * @return true if values may be collected by the garbage collector
+     */
+    boolean isWeakValues();
+
+    /**
+     * Returns the approximate number of entries.
+     *
+     * @return Number of entries
+     */
+    long getSize();
+
+    /**
+     * Returns the number of lookups which returned a cached value.
+     *
+     * @return Number of hits
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of lookups which had to create a new value.
+     *
+     * @return Number of misses
+     */
+    long getMissCount();
+
+    /**
+     * Returns the ratio of hits to lookups.
+     *
+     * @return Hit rate in [0, 1] (1 if there were no lookups)
+     */
+    double getHitRate();
+
+    /**
+     * Returns the number of created values.
+     *
+     * @return Number of loads
+     */
+    long getLoadCount();
+
+    /**
+     * Returns the number of failed value creations.
+     *
+     * @return Number of failed loads
+     */
+    long getLoadExceptionCount();
+
+    /**
+     * Returns the total time spent creating values.
+     *
+     * @return Time in nanoseconds
+     */
+    long getTotalLoadTime();
+
+    /**
+     * Returns the average time spent creating a value.
+     *
+     * @return Time in nanoseconds
+     */
+    double getAverageLoadPenalty();
+
+    /**
+     * Returns the number of removed entries. For weak caches this includes
+     * values collected by the garbage collector.
+     *
+     * @return Number of evictions
+     */
+    long getEvictionCount();
+}
@@ -30,6 +30,10 @@ import javax.annotation.concurrent.Immutable;
 @Immutable
 public final class ColorBlock extends BlockData {
 
+    static {
+        BlockDataFactory.registerFactory(ColorBlock.class, ColorBlock::new, ColorBlock::new);
+    }
+
     private ColorBlock(final Color color) {
         super(color);
     }
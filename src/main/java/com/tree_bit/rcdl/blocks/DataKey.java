@@ -102,6 +102,7 @@ class DataKey<R, C, L> {
         int result = 1;
         result = (prime * result) + ((this.column == null) ? 0 : this.column.hashCode());
         result = (prime * result) + ((this.row == null) ? 0 : this.row.hashCode());
+        result = (prime * result) + ((this.layer == null) ? 0 : this.layer.hashCode());
         return result;
     }
 
@@ -0,0 +1,204 @@
+package com.tree_bit.rcdl.blocks;
+
+import com.tree_bit.rcdl.blocks.dv.IDataValueEnum;
+import com.tree_bit.rcdl.blocks.entities.TileEntity;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Layout of the data values of one BlockData class.
+ *
+ * <p>
+ * Each data value enum of the class is a dimension of the layout. A
+ * combination of data values is encoded as an index in a mixed radix system
+ * (one digit per dimension, dimensions ordered by the enum class name).
+ *
+ * <p>
+ * If the canonical mode of the {@link BlockDataFactory} is enabled, the
+ * layout of a class without tile entity additionally holds the canonical
+ * instance of each combination.
+ */
+final class DataLayout {
+
+    private static final ClassValue<DataLayout> layouts = new ClassValue<DataLayout>() {
+
+        @SuppressWarnings({"unchecked", "synthetic-access"})
+        @Override
+        protected DataLayout computeValue(final Class<?> type) {
+            return new DataLayout(BlockDataFactory.create((Class<? extends BlockData>) type));
+        }
+    };
+
+    static {
+        // Enumerate all instances at startup
+        if (BlockDataFactory.isCanonical()) {
+            for (final BlockID id : BlockID.values()) {
+                layouts.get(id.getDataClass());
+            }
+        }
+    }
+
+    private final Class<? extends BlockData> dataClass;
+    private final Class<?>[] dimensions;
+    private final IDataValueEnum[][] constants;
+    private final int[] strides;
+    private final int size;
+    @Nullable
+    private final TileEntity entity;
+    @Nullable
+    private final BlockData[] instances;
+
+    private DataLayout(final BlockData defaultInstance) {
+        final List<Class<?>> dims = new ArrayList<>();
+        for (final IDataValueEnum dv : defaultInstance.getDataValues()) {
+            dims.add(((Enum<?>) dv).getDeclaringClass());
+        }
+        dims.sort(Comparator.comparing(Class::getName));
+
+        this.dataClass = defaultInstance.getClass();
+        this.dimensions = dims.toArray(new Class<?>[dims.size()]);
+        this.constants = new IDataValueEnum[this.dimensions.length][];
+        this.strides = new int[this.dimensions.length];
+        this.entity = defaultInstance.getTileEntity().orElse(null);
+
+        int stride = 1;
+        for (int i = 0; i < this.dimensions.length; i++) {
+            this.constants[i] = (IDataValueEnum[]) this.dimensions[i].getEnumConstants();
+            this.strides[i] = stride;
+            stride *= this.constants[i].length;
+        }
+        this.size = stride;
+
+        if (BlockDataFactory.isCanonical() && (this.entity == null)) {
+            this.instances = this.createInstances();
+        } else {
+            this.instances = null;
+        }
+    }
+
+    /**
+     * Returns the layout of the given BlockData class.
+     *
+     * @param clazz Class of a subtype of BlockData
+     * @return Layout
+     */
+    @SuppressWarnings("null")
+    static DataLayout of(final Class<? extends BlockData> clazz) {
+        return layouts.get(clazz);
+    }
+
+    /**
+     * Returns the number of data value combinations of this layout.
+     *
+     * @return Number of combinations
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the index of the data values of the given instance.
+     *
+     * @param data BlockData of the class of this layout
+     * @return Index in [0, size)
+     */
+    int indexOf(final BlockData data) {
+        return this.indexOf(data.getDataValues());
+    }
+
+    /**
+     * Returns the index of the given data values. The data values have to
+     * contain exactly one value of each dimension of this layout.
+     *
+     * @param data Data values
+     * @return Index in [0, size) or -1 if the data values don't match this
+     *         layout
+     */
+    int indexOf(final Iterable<? extends IDataValueEnum> data) {
+        int index = 0;
+        int found = 0;
+        outer: for (final IDataValueEnum dv : data) {
+            if (dv instanceof Enum) {
+                final Class<?> dim = ((Enum<?>) dv).getDeclaringClass();
+                for (int i = 0; i < this.dimensions.length; i++) {
+                    if ((this.dimensions[i] == dim) && ((found & (1 << i)) == 0)) {
+                        index += ((Enum<?>) dv).ordinal() * this.strides[i];
+                        found |= 1 << i;
+                        continue outer;
+                    }
+                }
+            }
+            return -1;
+        }
+        if (found != ((1 << this.dimensions.length) - 1)) {
+            return -1;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the data values encoded by the given index.
+     *
+     * @param index Index in [0, size)
+     * @return Data values
+     */
+    IDataValueEnum[] valuesOf(final int index) {
+        final IDataValueEnum[] values = new IDataValueEnum[this.dimensions.length];
+        for (int i = 0; i < this.dimensions.length; i++) {
+            values[i] = this.constants[i][(index / this.strides[i]) % this.constants[i].length];
+        }
+        return values;
+    }
+
+    /**
+     * Returns the interned BlockData instance encoded by the given index. Tile
+     * entity carrying classes get the tile entity of their default instance.
+     *
+     * @param index Index in [0, size)
+     * @return BlockData instance
+     */
+    BlockData dataOf(final int index) {
+        return BlockDataFactory.getInstance(this.dataClass, this.entity, Arrays.asList(this.valuesOf(index)));
+    }
+
+    /**
+     * Returns the canonical instance encoded by the given index, if the
+     * canonical mode is enabled and the class has no tile entity.
+     *
+     * @param index Index in [0, size)
+     * @return Canonical instance or null
+     */
+    @Nullable
+    BlockData getCanonical(final int index) {
+        final BlockData[] table = this.instances;
+        return (table != null) ? table[index] : null;
+    }
+
+    /**
+     * Returns whether this layout holds canonical instances.
+     *
+     * @return true if {@link #getCanonical(int)} returns instances
+     */
+    boolean isCanonical() {
+        return this.instances != null;
+    }
+
+    /**
+     * Creates a new instance of each combination of data values of this
+     * layout.
+     *
+     * @return Instances indexed by their index
+     */
+    BlockData[] createInstances() {
+        final BlockData[] table = new BlockData[this.size];
+        for (int i = 0; i < this.size; i++) {
+            table[i] = BlockDataFactory.create(this.dataClass, this.valuesOf(i), this.entity);
+        }
+        return table;
+    }
+}
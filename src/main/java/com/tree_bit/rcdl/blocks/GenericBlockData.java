@@ -44,6 +44,10 @@ public final class GenericBlockData extends BlockData {
         }
     }
 
+    static {
+        BlockDataFactory.registerFactory(GenericBlockData.class, GenericBlockData::new, GenericBlockData::new);
+    }
+
     private GenericBlockData() {
         super(Data.NONE);
     }
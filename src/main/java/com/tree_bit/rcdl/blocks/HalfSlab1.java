@@ -28,6 +28,10 @@ import javax.annotation.concurrent.Immutable;
 @Immutable
 public final class HalfSlab1 extends BlockData {
 
+    static {
+        BlockDataFactory.registerFactory(HalfSlab1.class, HalfSlab1::new, HalfSlab1::new);
+    }
+
     private HalfSlab1(final SlabType1 type, final SlabPosition position) {
         super(type, position);
     }
@@ -28,6 +28,10 @@ import javax.annotation.concurrent.Immutable;
 @Immutable
 public final class HalfSlab2 extends BlockData {
 
+    static {
+        BlockDataFactory.registerFactory(HalfSlab2.class, HalfSlab2::new, HalfSlab2::new);
+    }
+
     private HalfSlab2(final SlabType2 type, final SlabPosition position) {
         super(type, position);
     }
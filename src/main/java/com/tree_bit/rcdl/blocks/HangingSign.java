@@ -28,6 +28,10 @@ import com.tree_bit.rcdl.blocks.entities.TileEntity;
  */
 public class HangingSign extends BlockData {
 
+    static {
+        BlockDataFactory.registerFactory(HangingSign.class, HangingSign::new, HangingSign::new, HangingSign::new);
+    }
+
     private HangingSign() {
         super(SignEntity.empty(), SignOrientation.North);
     }
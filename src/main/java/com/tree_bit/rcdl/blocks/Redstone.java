@@ -76,6 +76,10 @@ public final class Redstone extends BlockData {
         }
     }
 
+    static {
+        BlockDataFactory.registerFactory(Redstone.class, Redstone::new, Redstone::new);
+    }
+
     private Redstone() {
         super(PowerLevel.L0, DummyOrientation.NONE);
     }
@@ -52,6 +52,10 @@ public final class Repeater extends BlockData {
         }
     }
 
+    static {
+        BlockDataFactory.registerFactory(Repeater.class, Repeater::new, Repeater::new);
+    }
+
     private Repeater(final OrientationNESW orientation, final Delay delay) {
         super(orientation, delay);
     }
@@ -2,32 +2,51 @@ package com.tree_bit.rcdl.blocks;
 
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
 
 import org.eclipse.jdt.annotation.Nullable;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Set;
 
 /**
  * Set that can contain a maximum of one instance per class.
  *
+ * <p>
+ * The set is optimized for a small number of elements (like the data values
+ * of a block): The values are held in an array of the exact size and the
+ * constraints in an array, which is shared between all sets created with the
+ * same single constraint.
+ *
  * @param <T> Type
  */
 final class SingleInstanceSet<T> implements Iterable<T> {
 
-    private final Map<Class<? extends T>, T> map = new HashMap<>();
+    private static final Class<?>[] NO_CONSTRAINTS = new Class<?>[0];
+
+    private static final Object[] EMPTY = new Object[0];
+
+    /** Shared constraint arrays of sets with a single constraint */
+    private static final ClassValue<Class<?>[]> singleConstraints = new ClassValue<Class<?>[]>() {
+
+        @Override
+        protected Class<?>[] computeValue(final Class<?> type) {
+            return new Class<?>[] {type};
+        }
+    };
+
+    /** Values (at most one per class, no null values) */
+    private Object[] values = EMPTY;
 
-    private final Set<Class<? extends T>> constraints;
+    private final Class<?>[] constraints;
 
     /**
      * Creates an empty SingleInstanceSet.
      */
     public SingleInstanceSet() {
-        this.constraints = new HashSet<>();
+        this.constraints = NO_CONSTRAINTS;
     }
 
     /**
@@ -52,7 +71,13 @@ final class SingleInstanceSet<T> implements Iterable<T> {
      *        allowed
      */
     public SingleInstanceSet(final Set<Class<? extends T>> constraints) {
-        this.constraints = constraints;
+        if (constraints.isEmpty()) {
+            this.constraints = NO_CONSTRAINTS;
+        } else if (constraints.size() == 1) {
+            this.constraints = singleConstraints.get(constraints.iterator().next());
+        } else {
+            this.constraints = constraints.toArray(new Class<?>[constraints.size()]);
+        }
     }
 
     /**
@@ -76,9 +101,7 @@ final class SingleInstanceSet<T> implements Iterable<T> {
      * @param constraint Class where only one subtype instance is allowed
      */
     public SingleInstanceSet(final Class<? extends T> constraint) {
-        final Set<Class<? extends T>> set = new HashSet<>();
-        set.add(constraint);
-        this.constraints = set;
+        this.constraints = singleConstraints.get(constraint);
     }
 
     /**
@@ -87,28 +110,48 @@ final class SingleInstanceSet<T> implements Iterable<T> {
      *
      * @param value Value
      */
-    @SuppressWarnings({"unchecked", "null"})
     public void add(final T value) {
-        final Class<? extends T> clazz = (Class<? extends T>) value.getClass();
-        final Class<? extends T> theConstraint = this.checkConstraints(value);
+        final Class<?> theConstraint = this.checkConstraints(value);
         if (theConstraint != null) {
             this.removeAllInstances(theConstraint);
         }
-        this.map.put(clazz, value);
+        final Class<?> clazz = value.getClass();
+        final Object[] current = this.values;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].getClass() == clazz) {
+                current[i] = value;
+                return;
+            }
+        }
+        final Object[] added = Arrays.copyOf(current, current.length + 1);
+        added[current.length] = value;
+        this.values = added;
     }
 
-    private void removeAllInstances(final Class<? extends T> clazz) {
-        for (final Iterator<T> it = this.map.values().iterator(); it.hasNext();) {
-            final T value = it.next();
-            if (clazz.isInstance(value)) {
-                it.remove();
+    private void removeAllInstances(final Class<?> clazz) {
+        final Object[] current = this.values;
+        int count = 0;
+        for (final Object value : current) {
+            if (!clazz.isInstance(value)) {
+                count++;
+            }
+        }
+        if (count == current.length) {
+            return;
+        }
+        final Object[] remaining = new Object[count];
+        int i = 0;
+        for (final Object value : current) {
+            if (!clazz.isInstance(value)) {
+                remaining[i++] = value;
             }
         }
+        this.values = remaining;
     }
 
     @Nullable
-    private Class<? extends T> checkConstraints(final T obj) {
-        for (final Class<? extends T> constraint : this.constraints) {
+    private Class<?> checkConstraints(final T obj) {
+        for (final Class<?> constraint : this.constraints) {
             if (constraint.isInstance(obj)) {
                 return constraint;
             }
@@ -116,20 +159,34 @@ final class SingleInstanceSet<T> implements Iterable<T> {
         return null;
     }
 
+    /**
+     * Returns the number of values in this set.
+     *
+     * @return Number of values
+     */
+    public int size() {
+        return this.values.length;
+    }
+
     /**
      * Returns an immutable Java Collections set representation of this set.
      *
      * @return Set
      */
-    @SuppressWarnings("null")
+    @SuppressWarnings({"null", "unchecked"})
+    // Only values of type T are added
     public ImmutableSet<T> asSet() {
-        return ImmutableSet.copyOf(this.map.values());
+        return (ImmutableSet<T>) ImmutableSet.copyOf(this.values);
     }
 
-    @SuppressWarnings("null")
+    /**
+     * Returns an unmodifiable iterator over the values of this set.
+     */
+    @SuppressWarnings({"null", "unchecked"})
+    // Only values of type T are added
     @Override
     public Iterator<T> iterator() {
-        return this.map.values().iterator();
+        return (Iterator<T>) Iterators.forArray(this.values);
     }
 
     /**
@@ -137,15 +194,17 @@ final class SingleInstanceSet<T> implements Iterable<T> {
      *
      * @param clazz Class of the value
      * @return Value
+     *
+     * @throws IllegalArgumentException if this set contains no value of the
+     *         given class
      */
-    @SuppressWarnings("unchecked")
-    // Cast is safe
     public <X extends T> X get(final Class<X> clazz) {
-        final T ret = this.map.get(clazz);
-        if (ret.getClass() == clazz) {
-            return (X) ret;
+        for (final Object value : this.values) {
+            if (value.getClass() == clazz) {
+                return clazz.cast(value);
+            }
         }
-        throw new AssertionError("Can't cast " + ret + " to " + clazz.getName());
+        throw new IllegalArgumentException("No value of class " + clazz.getName() + " in " + this);
     }
 
     /**
@@ -154,17 +213,16 @@ final class SingleInstanceSet<T> implements Iterable<T> {
      * @param clazz Class
      * @return Set containing the values
      */
-    @SuppressWarnings({"null", "unchecked"})
-    // Cast is safe
+    @SuppressWarnings("null")
     // set is never null
     public <X extends T> ImmutableSet<X> getInstancesOf(final Class<X> clazz) {
-        final Set<X> set = new HashSet<>();
-        for (final T v : this.map.values()) {
-            if (clazz.isInstance(v)) {
-                set.add((X) v);
+        final ImmutableSet.Builder<X> builder = ImmutableSet.builder();
+        for (final Object value : this.values) {
+            if (clazz.isInstance(value)) {
+                builder.add(clazz.cast(value));
             }
         }
-        return ImmutableSet.copyOf(set);
+        return builder.build();
     }
 
     /**
@@ -172,10 +230,11 @@ final class SingleInstanceSet<T> implements Iterable<T> {
      *
      * @return Collection of constraints
      */
-    @SuppressWarnings("null")
+    @SuppressWarnings({"null", "unchecked"})
     // Set is not null
+    // Only constraints of type Class<? extends T> are added
     public Collection<Class<? extends T>> getConstraints() {
-        return ImmutableSet.copyOf(this.constraints);
+        return ImmutableSet.copyOf((Class<? extends T>[]) this.constraints);
     }
 
     /**
@@ -184,8 +243,9 @@ final class SingleInstanceSet<T> implements Iterable<T> {
      * @param collection Collection
      * @return Set
      */
+    @SuppressWarnings("null")
     public static <E> SingleInstanceSet<E> copyOf(final Collection<E> collection) {
-        return copyOf(collection, new HashSet<>());
+        return copyOf(collection, ImmutableSet.<Class<? extends E>>of());
     }
 
     /**
@@ -212,22 +272,31 @@ final class SingleInstanceSet<T> implements Iterable<T> {
      * @param constraint Constraint class
      * @return Set
      */
-    @SuppressWarnings("null")
     public static <E> SingleInstanceSet<E> copyOf(final Collection<E> collection, final Class<? extends E> constraint) {
-        return copyOf(collection, ImmutableSet.of(constraint));
+        final SingleInstanceSet<E> set = new SingleInstanceSet<>(constraint);
+        for (final E element : collection) {
+            set.add(element);
+        }
+        return set;
     }
 
     @Override
     public String toString() {
-        return "" + Objects.toStringHelper(this).add("Constraints", this.constraints).add("Map", this.map).toString();
+        return "" + Objects.toStringHelper(this).add("Constraints", Arrays.toString(this.constraints)).add("Values", Arrays.toString(this.values))
+                .toString();
     }
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = (prime * result) + this.constraints.hashCode();
-        result = (prime * result) + this.map.hashCode();
+        // Independent of the order of values and constraints
+        int result = 0;
+        for (final Class<?> constraint : this.constraints) {
+            result += constraint.hashCode();
+        }
+        result *= 31;
+        for (final Object value : this.values) {
+            result += value.hashCode();
+        }
         return result;
     }
 
@@ -240,10 +309,27 @@ final class SingleInstanceSet<T> implements Iterable<T> {
             return false;
         }
         final SingleInstanceSet<?> other = (SingleInstanceSet<?>) obj;
-        if (!this.constraints.equals(other.constraints)) {
+        if (!containsAll(this.constraints, other.constraints)) {
             return false;
         }
-        if (!this.map.equals(other.map)) {
+        // Single instance per class -> values are equal if each value has an
+        // equal value of the same class in the other set
+        if (!containsAll(this.values, other.values)) {
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean containsAll(final Object[] a, final Object[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+        outer: for (final Object x : a) {
+            for (final Object y : b) {
+                if (x.equals(y)) {
+                    continue outer;
+                }
+            }
             return false;
         }
         return true;
@@ -28,6 +28,10 @@ import com.tree_bit.rcdl.blocks.entities.TileEntity;
  */
 public class StandingSign extends BlockData {
 
+    static {
+        BlockDataFactory.registerFactory(StandingSign.class, StandingSign::new, StandingSign::new, StandingSign::new);
+    }
+
     private StandingSign() {
         super(SignEntity.empty(), Orientation16.N);
     }
@@ -111,6 +111,10 @@ public final class Torch extends BlockData {
 
     }
 
+    static {
+        BlockDataFactory.registerFactory(Torch.class, Torch::new, Torch::new);
+    }
+
     private Torch() {
         super(TorchOrientation.Up);
     }
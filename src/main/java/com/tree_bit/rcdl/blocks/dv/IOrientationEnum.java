@@ -84,7 +84,15 @@ public interface IOrientationEnum extends IDataValueEnum {
     IOrientationEnum next(int n);
 
     /**
-     * Gets the degrees of one rotation step.
+     * Gets the smallest rotation in whole degrees accepted by
+     * {@link #rotateDegree(Axis, int)}.
+     *
+     * <p>
+     * This is usually the rotation of one step of {@link #next(int)}. If a step
+     * isn't a whole degree, it's the smallest whole multiple of the step (e.g.
+     * 45 degree for the 22.5 degree steps of {@link Orientation16}) and
+     * {@link #rotateDegree(Axis, int)} is overridden accordingly.
+     * </p>
      *
      * @return Degree
      */
@@ -11,7 +11,8 @@ import java.util.Set;
  * Enum of the cardinal directions, mapping those to their block data value.
  *
  * <p>
- * Allowed axes for rotation (multiple of 30 degree) are:
+ * Allowed axes for rotation (multiple of 45 degree, one step of
+ * {@link #rotate(Axis, int)} is 22.5 degree) are:
  * <ul>
  * <li>y</li>
  * </ul>
@@ -82,6 +83,12 @@ public enum Orientation16 implements IOrientationEnum {
         throw new UnsupportedOperationException("Can't rotate at this axis: " + axis);
     }
 
+    @Override
+    public IOrientationEnum rotateDegree(final Axis axis, final int degree) {
+        // Two steps per 45 degree
+        return this.rotate(axis, 2 * IOrientationEnum.toCount(degree, this.getStep()));
+    }
+
     @Override
     public Orientation16 mirror(final Set<Axis> plain) {
 
@@ -117,6 +124,6 @@ public enum Orientation16 implements IOrientationEnum {
 
     @Override
     public int getStep() {
-        return 30;
+        return 45;
     }
 }
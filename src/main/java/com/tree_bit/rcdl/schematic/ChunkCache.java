@@ -0,0 +1,475 @@
+package com.tree_bit.rcdl.schematic;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.CacheStats;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.jnbt.ByteArrayTag;
+import org.jnbt.CompoundTag;
+import org.jnbt.IntArrayTag;
+import org.jnbt.ListTag;
+import org.jnbt.StringTag;
+import org.jnbt.Tag;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Cache of the parsed chunks of the region files of one directory (e.g.
+ * {@code <world>/region}) with a byte budget.
+ *
+ * <p>
+ * The cache is keyed by the region file and the chunk coordinates inside it,
+ * which are both given by the world chunk coordinates. Entries are evicted in
+ * least-recently-used order as soon as the estimated heap size of the cached
+ * chunks exceeds the budget (see {@link #weigh(Tag)}). The most recently used
+ * chunk is never evicted, so a single chunk larger than the budget is still
+ * cached.
+ *
+ * <p>
+ * Changed chunks ({@link #put(int, int, CompoundTag)} or
+ * {@link #markDirty(int, int)} after changing arrays of a cached tag in
+ * place) are written back to their region files when they are evicted and by
+ * {@link #flush()} or {@link #close()}. The dirty chunks of a region are
+ * written with one {@link RegionWriter} and a single commit. If writing back
+ * fails, the chunks stay cached and dirty (the budget may be exceeded until
+ * the next successful write-back).
+ *
+ * <p>
+ * At most {@value #MAX_READERS} region files are kept mapped at the same
+ * time, the least recently used region is dropped first (its mapping is
+ * released by the garbage collector). The mappings aren't part of the
+ * budget.
+ *
+ * <p>
+ * Hits, misses, loads and evictions are counted and returned as
+ * {@link CacheStats} like the statistics of
+ * {@link com.tree_bit.rcdl.blocks.CacheMetrics}. Absent chunks aren't cached.
+ *
+ * <p>
+ * The cache is thread-safe. All operations (including loads and write-backs)
+ * are serialized by the lock of the cache. Only one cache (or writer) may
+ * change the region files of a directory at the same time.
+ */
+public final class ChunkCache implements Closeable {
+
+    /** Estimated heap size of a tag without its value */
+    private static final int TAG_OVERHEAD = 32;
+    /** Estimated heap size of a map or list entry */
+    private static final int ENTRY_OVERHEAD = 32;
+    /** Estimated heap size of an array header */
+    private static final int ARRAY_OVERHEAD = 16;
+
+    /** Maximum number of mapped region files */
+    public static final int MAX_READERS = 16;
+
+    /**
+     * A cached chunk.
+     */
+    private static final class Entry {
+
+        final int chunkX;
+        final int chunkZ;
+        CompoundTag tag;
+        long weight;
+        boolean dirty;
+
+        Entry(final int chunkX, final int chunkZ, final CompoundTag tag, final boolean dirty) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.tag = tag;
+            this.weight = weigh(tag);
+            this.dirty = dirty;
+        }
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+
+    /** Entries in access order (least recently used first) */
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    /**
+     * Readers of the regions in access order (dropped when the region is
+     * written or more than {@link #MAX_READERS} regions are used)
+     */
+    private final Map<Path, RegionReader> readers = new LinkedHashMap<Path, RegionReader>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Path, RegionReader> eldest) {
+            return this.size() > MAX_READERS;
+        }
+    };
+
+    private long weight;
+    private int dirtyCount;
+
+    private long hitCount;
+    private long missCount;
+    private long loadSuccessCount;
+    private long loadExceptionCount;
+    private long totalLoadTime;
+    private long evictionCount;
+    private long writeBackCount;
+
+    /**
+     * Creates a cache of the region files of the given directory.
+     *
+     * @param directory <b>Path</b> directory of the region files (created
+     *        when the first chunk is written)
+     * @param maxBytes <b>long</b> budget of the estimated heap size of the
+     *        cached chunks
+     *
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    public ChunkCache(final Path directory, final long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Negative budget: " + maxBytes);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    private static Long key(final int chunkX, final int chunkZ) {
+        return Long.valueOf(((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL));
+    }
+
+    private Path region(final int chunkX, final int chunkZ) {
+        return this.directory.resolve(RegionReader.fileName(chunkX, chunkZ));
+    }
+
+    /**
+     * Returns the given chunk, loading it from its region file on a miss.
+     *
+     * @param chunkX <b>int</b> world chunk x coordinate
+     * @param chunkZ <b>int</b> world chunk z coordinate
+     * @return <b>CompoundTag</b> root tag of the chunk or null if the chunk
+     *         (or its region) doesn't exist
+     * @throws IOException if the chunk can't be read or the write-back of
+     *         evicted chunks fails
+     */
+    @Nullable
+    public synchronized CompoundTag get(final int chunkX, final int chunkZ) throws IOException {
+        final Entry cached = this.entries.get(key(chunkX, chunkZ));
+        if (cached != null) {
+            this.hitCount++;
+            return cached.tag;
+        }
+        this.missCount++;
+
+        final long start = System.nanoTime();
+        @Nullable
+        final CompoundTag tag;
+        try {
+            final RegionReader reader = this.reader(this.region(chunkX, chunkZ));
+            tag = (reader == null) ? null : reader.readChunk(chunkX, chunkZ);
+        } catch (final IOException e) {
+            this.loadExceptionCount++;
+            throw e;
+        } finally {
+            this.totalLoadTime += System.nanoTime() - start;
+        }
+        if (tag == null) {
+            return null;
+        }
+        this.loadSuccessCount++;
+        this.insert(new Entry(chunkX, chunkZ, tag, false));
+        return tag;
+    }
+
+    /**
+     * Returns the given chunk if it is cached. Doesn't count as hit or miss.
+     *
+     * @param chunkX <b>int</b> world chunk x coordinate
+     * @param chunkZ <b>int</b> world chunk z coordinate
+     * @return <b>CompoundTag</b> root tag of the chunk or null if the chunk
+     *         isn't cached
+     */
+    @Nullable
+    public synchronized CompoundTag getIfPresent(final int chunkX, final int chunkZ) {
+        final Entry cached = this.entries.get(key(chunkX, chunkZ));
+        return (cached == null) ? null : cached.tag;
+    }
+
+    /**
+     * Replaces the given chunk. The chunk is written back on eviction or
+     * flush.
+     *
+     * @param chunkX <b>int</b> world chunk x coordinate
+     * @param chunkZ <b>int</b> world chunk z coordinate
+     * @param tag <b>CompoundTag</b> new root tag of the chunk
+     * @throws IOException if the write-back of evicted chunks fails (the new
+     *         chunk is cached anyway)
+     */
+    public synchronized void put(final int chunkX, final int chunkZ, final CompoundTag tag) throws IOException {
+        final Entry cached = this.entries.get(key(chunkX, chunkZ));
+        if (cached != null) {
+            this.weight -= cached.weight;
+            cached.tag = tag;
+            cached.weight = weigh(tag);
+            this.weight += cached.weight;
+            this.setDirty(cached);
+            this.evict();
+        } else {
+            this.dirtyCount++;
+            this.insert(new Entry(chunkX, chunkZ, tag, true));
+        }
+    }
+
+    /**
+     * Marks the given cached chunk as changed, e.g. after changing the block
+     * array of its tag. Its size is estimated again.
+     *
+     * @param chunkX <b>int</b> world chunk x coordinate
+     * @param chunkZ <b>int</b> world chunk z coordinate
+     * @return <b>boolean</b> true if the chunk is cached (false if it was
+     *         evicted and the change is lost)
+     * @throws IOException if the write-back of evicted chunks fails (the
+     *         chunk is marked anyway)
+     */
+    public synchronized boolean markDirty(final int chunkX, final int chunkZ) throws IOException {
+        final Entry cached = this.entries.get(key(chunkX, chunkZ));
+        if (cached == null) {
+            return false;
+        }
+        this.weight -= cached.weight;
+        cached.weight = weigh(cached.tag);
+        this.weight += cached.weight;
+        this.setDirty(cached);
+        // The arrays may have grown, the chunk itself is the most recently used
+        this.evict();
+        return true;
+    }
+
+    private void setDirty(final Entry entry) {
+        if (!entry.dirty) {
+            entry.dirty = true;
+            this.dirtyCount++;
+        }
+    }
+
+    private void insert(final Entry entry) throws IOException {
+        this.entries.put(key(entry.chunkX, entry.chunkZ), entry);
+        this.weight += entry.weight;
+        this.evict();
+    }
+
+    /**
+     * Evicts least recently used entries until the budget is kept, writing
+     * back the dirty ones first.
+     */
+    private void evict() throws IOException {
+        if (this.weight <= this.maxBytes) {
+            return;
+        }
+        // Collect the victims (all but the most recently used entry)
+        final List<Entry> victims = new ArrayList<>();
+        long remaining = this.weight;
+        final Iterator<Entry> it = this.entries.values().iterator();
+        for (int n = this.entries.size(); (n > 1) && (remaining > this.maxBytes); n--) {
+            final Entry entry = it.next();
+            victims.add(entry);
+            remaining -= entry.weight;
+        }
+        final List<Entry> dirty = new ArrayList<>();
+        for (final Entry entry : victims) {
+            if (entry.dirty) {
+                dirty.add(entry);
+            }
+        }
+        // Victims are only removed after a successful write-back
+        this.writeBack(dirty);
+        for (final Entry entry : victims) {
+            this.entries.remove(key(entry.chunkX, entry.chunkZ));
+            this.weight -= entry.weight;
+            this.evictionCount++;
+        }
+    }
+
+    /**
+     * Writes the given dirty entries to their regions (one writer and commit
+     * per region) and marks them clean.
+     */
+    private void writeBack(final List<Entry> dirty) throws IOException {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        final Map<Path, List<Entry>> byRegion = new TreeMap<>();
+        for (final Entry entry : dirty) {
+            byRegion.computeIfAbsent(this.region(entry.chunkX, entry.chunkZ), p -> new ArrayList<>()).add(entry);
+        }
+        for (final Map.Entry<Path, List<Entry>> region : byRegion.entrySet()) {
+            // The mapping of the old file mustn't be used after a truncation
+            this.readers.remove(region.getKey());
+            Files.createDirectories(this.directory);
+            try (final RegionWriter writer = RegionWriter.open(region.getKey())) {
+                for (final Entry entry : region.getValue()) {
+                    writer.writeChunk(entry.chunkX, entry.chunkZ, entry.tag);
+                }
+            }
+            for (final Entry entry : region.getValue()) {
+                entry.dirty = false;
+                this.dirtyCount--;
+                this.writeBackCount++;
+            }
+        }
+    }
+
+    @Nullable
+    private RegionReader reader(final Path region) throws IOException {
+        RegionReader reader = this.readers.get(region);
+        if ((reader == null) && Files.isRegularFile(region)) {
+            reader = RegionReader.open(region);
+            this.readers.put(region, reader);
+        }
+        return reader;
+    }
+
+    /**
+     * Writes all dirty chunks back to their region files. The chunks stay
+     * cached.
+     *
+     * @throws IOException if writing fails (the chunks of the failed region
+     *         and all later regions stay dirty)
+     */
+    public synchronized void flush() throws IOException {
+        final List<Entry> dirty = new ArrayList<>(this.dirtyCount);
+        for (final Entry entry : this.entries.values()) {
+            if (entry.dirty) {
+                dirty.add(entry);
+            }
+        }
+        this.writeBack(dirty);
+    }
+
+    /**
+     * Writes all dirty chunks back and removes all chunks from the cache.
+     * The statistics are kept.
+     *
+     * @throws IOException if writing fails (nothing is removed)
+     */
+    public synchronized void invalidateAll() throws IOException {
+        this.flush();
+        this.entries.clear();
+        this.readers.clear();
+        this.weight = 0;
+    }
+
+    /**
+     * Writes all dirty chunks back and releases the readers. The cache stays
+     * usable.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        this.flush();
+        this.readers.clear();
+    }
+
+    /**
+     * Returns the number of cached chunks.
+     *
+     * @return <b>int</b> chunks
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Returns the estimated heap size of the cached chunks.
+     *
+     * @return <b>long</b> bytes
+     */
+    public synchronized long getWeightedSize() {
+        return this.weight;
+    }
+
+    /**
+     * Returns the number of mapped region files.
+     *
+     * @return Readers
+     */
+    synchronized int getReaderCount() {
+        return this.readers.size();
+    }
+
+    /**
+     * Returns the budget of the estimated heap size.
+     *
+     * @return <b>long</b> bytes
+     */
+    public long getMaxBytes() {
+        return this.maxBytes;
+    }
+
+    /**
+     * Returns the number of cached chunks which aren't written back yet.
+     *
+     * @return <b>int</b> dirty chunks
+     */
+    public synchronized int getDirtyCount() {
+        return this.dirtyCount;
+    }
+
+    /**
+     * Returns the number of chunks written back (on eviction or flush).
+     *
+     * @return <b>long</b> written chunks
+     */
+    public synchronized long getWriteBackCount() {
+        return this.writeBackCount;
+    }
+
+    /**
+     * Returns a snapshot of the current statistics. Loads of absent chunks
+     * count as misses without a load.
+     *
+     * @return <b>CacheStats</b> cumulative statistics
+     */
+    public synchronized CacheStats stats() {
+        return new CacheStats(this.hitCount, this.missCount, this.loadSuccessCount, this.loadExceptionCount, this.totalLoadTime,
+                this.evictionCount);
+    }
+
+    /**
+     * Estimates the heap size of a tag including all nested tags.
+     *
+     * @param tag <b>Tag</b> tag
+     * @return <b>long</b> estimated bytes
+     */
+    public static long weigh(final Tag tag) {
+        long size = TAG_OVERHEAD + (2L * tag.getName().length());
+        if (tag instanceof ByteArrayTag) {
+            size += ARRAY_OVERHEAD + ((ByteArrayTag) tag).getValue().length;
+        } else if (tag instanceof IntArrayTag) {
+            size += ARRAY_OVERHEAD + (4L * ((IntArrayTag) tag).getValue().length);
+        } else if (tag instanceof StringTag) {
+            size += ARRAY_OVERHEAD + (2L * ((StringTag) tag).getValue().length());
+        } else if (tag instanceof CompoundTag) {
+            for (final Tag child : ((CompoundTag) tag).getValue().values()) {
+                size += ENTRY_OVERHEAD + weigh(child);
+            }
+        } else if (tag instanceof ListTag) {
+            for (final Tag child : ((ListTag) tag).getValue()) {
+                size += ENTRY_OVERHEAD + weigh(child);
+            }
+        }
+        return size;
+    }
+
+    @Override
+    // Can't be null (checked by Guava)
+    @SuppressWarnings("null")
+    public synchronized String toString() {
+        return Objects.toStringHelper(this).add("directory", this.directory).add("size", this.entries.size()).add("weightedSize", this.weight)
+                .add("maxBytes", this.maxBytes).add("dirty", this.dirtyCount).add("stats", this.stats()).toString();
+    }
+}
@@ -0,0 +1,129 @@
+package com.tree_bit.rcdl.schematic;
+
+import com.google.common.base.Objects;
+
+import java.util.Map;
+
+/**
+ * Fields of a schematic loaded by a {@link SchematicLoader}.
+ *
+ * <p>
+ * Byte arrays are returned as they were filled by the loader. If the caller
+ * supplied buffers they may be larger than the field, use
+ * {@link #getArrayLength(ESchematicFields)} for the number of valid bytes.
+ */
+public final class LoadedSchematic {
+
+    private final Map<ESchematicFields, Object> values;
+    private final Map<ESchematicFields, Integer> lengths;
+
+    LoadedSchematic(final Map<ESchematicFields, Object> values, final Map<ESchematicFields, Integer> lengths) {
+        this.values = values;
+        this.lengths = lengths;
+    }
+
+    /**
+     * Returns whether the given field was loaded.
+     *
+     * @param field <b>ESchematicFields</b> field
+     * @return <b>boolean</b> true if the field was requested and found
+     */
+    public boolean contains(final ESchematicFields field) {
+        return this.values.containsKey(field);
+    }
+
+    /**
+     * Returns the height of the schematic.
+     *
+     * @return <b>short</b> height
+     *
+     * @throws IllegalStateException if the field wasn't loaded
+     */
+    public short getHeight() {
+        return ((Short) this.get(ESchematicFields.HEIGHT)).shortValue();
+    }
+
+    /**
+     * Returns the width of the schematic.
+     *
+     * @return <b>short</b> width
+     *
+     * @throws IllegalStateException if the field wasn't loaded
+     */
+    public short getWidth() {
+        return ((Short) this.get(ESchematicFields.WIDTH)).shortValue();
+    }
+
+    /**
+     * Returns the length of the schematic.
+     *
+     * @return <b>short</b> length
+     *
+     * @throws IllegalStateException if the field wasn't loaded
+     */
+    public short getLength() {
+        return ((Short) this.get(ESchematicFields.LENGTH)).shortValue();
+    }
+
+    /**
+     * Returns the materials of the schematic (e.g. 'Alpha').
+     *
+     * @return <b>String</b> materials
+     *
+     * @throws IllegalStateException if the field wasn't loaded
+     */
+    public String getMaterials() {
+        return (String) this.get(ESchematicFields.MATERIALS);
+    }
+
+    /**
+     * Returns the buffer containing the block ids.
+     *
+     * @return <b>byte[]</b> blocks
+     *
+     * @throws IllegalStateException if the field wasn't loaded
+     */
+    public byte[] getBlocks() {
+        return (byte[]) this.get(ESchematicFields.BLOCKS);
+    }
+
+    /**
+     * Returns the buffer containing the data values.
+     *
+     * @return <b>byte[]</b> data values
+     *
+     * @throws IllegalStateException if the field wasn't loaded
+     */
+    public byte[] getData() {
+        return (byte[]) this.get(ESchematicFields.DATA);
+    }
+
+    /**
+     * Returns the number of valid bytes of the given byte array field.
+     *
+     * @param field <b>ESchematicFields</b> byte array field
+     * @return <b>int</b> length of the field
+     *
+     * @throws IllegalStateException if the field wasn't loaded
+     */
+    public int getArrayLength(final ESchematicFields field) {
+        final Integer length = this.lengths.get(field);
+        if (length == null) {
+            throw new IllegalStateException("Field " + field.getKey() + " wasn't loaded");
+        }
+        return length.intValue();
+    }
+
+    private Object get(final ESchematicFields field) {
+        final Object value = this.values.get(field);
+        if (value == null) {
+            throw new IllegalStateException("Field " + field.getKey() + " wasn't loaded");
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this).add("fields", this.values.keySet()).toString();
+    }
+}
@@ -0,0 +1,639 @@
+package com.tree_bit.rcdl.schematic;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.jnbt.NBTConstants;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streaming pull parser for NBT data.
+ *
+ * <p>
+ * Instead of materializing the whole tag tree (like
+ * {@link org.jnbt.NBTInputStream}) the reader returns one {@link Event} per
+ * call of {@link #next()}. Names and primitive values of the current tag are
+ * available by the getters. The payload of byte and int arrays is not read
+ * by {@link #next()}, it can be streamed into a caller supplied buffer in
+ * chunks by {@link #readBytes(byte[], int, int)} or
+ * {@link #readInts(int[], int, int)}. Unread payload is skipped by the next
+ * call of {@link #next()} without copying it.
+ *
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * try (NBTReader reader = new NBTReader(in)) {
+ *     while (reader.next() != Event.END_DOCUMENT) {
+ *         if (reader.getEvent() == Event.BYTE_ARRAY &amp;&amp; reader.getName().equals("Blocks")) {
+ *             reader.readBytes(buffer, 0, reader.getArrayLength());
+ *         }
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>
+ * The reader is not thread-safe.
+ */
+public final class NBTReader implements Closeable {
+
+    /**
+     * Events returned by {@link NBTReader#next()}.
+     */
+    public enum Event {
+        /** Start of a compound tag (children follow) */
+        START_COMPOUND,
+        /** End of the current compound tag */
+        END_COMPOUND,
+        /** Start of a list tag (elements follow) */
+        START_LIST,
+        /** End of the current list tag */
+        END_LIST,
+        /** Primitive tag (byte, short, int, long, float, double or string) */
+        VALUE,
+        /** Byte array tag (payload can be read by readBytes) */
+        BYTE_ARRAY,
+        /** Int array tag (payload can be read by readInts) */
+        INT_ARRAY,
+        /** End of the document (the root tag is complete) */
+        END_DOCUMENT
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_DEPTH = 512;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    /** Number of bytes read from the stream before the buffer content */
+    private long bufferOffset;
+
+    /** Container type (compound/list) of each open level */
+    private final byte[] containers = new byte[MAX_DEPTH];
+    /** Element type of each open list */
+    private final byte[] elementTypes = new byte[MAX_DEPTH];
+    /** Remaining elements of each open list */
+    private final int[] remaining = new int[MAX_DEPTH];
+    private int depth;
+    private boolean rootRead;
+
+    @Nullable
+    private Event event;
+    private int type = NBTConstants.TYPE_END;
+    private String name = "";
+    private long longValue;
+    private double doubleValue;
+    private String stringValue = "";
+    private int arrayLength;
+    /** Unread payload bytes of the current array */
+    private long arrayRemaining;
+    private long payloadOffset = -1;
+
+    /**
+     * Creates a new reader of a gzip compressed NBT stream (like schematic
+     * files).
+     *
+     * @param in <b>InputStream</b> compressed stream
+     * @throws IOException if the gzip header can't be read
+     */
+    public NBTReader(final InputStream in) throws IOException {
+        this(in, true);
+    }
+
+    /**
+     * Creates a new reader of a NBT stream.
+     *
+     * @param in <b>InputStream</b> stream
+     * @param gzipped <b>boolean</b> whether the stream is gzip compressed
+     * @throws IOException if the gzip header can't be read
+     */
+    public NBTReader(final InputStream in, final boolean gzipped) throws IOException {
+        this.in = gzipped ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+    }
+
+    /**
+     * Advances to the next event.
+     *
+     * @return <b>Event</b> next event
+     * @throws IOException if the stream can't be read or is malformed
+     */
+    public Event next() throws IOException {
+        this.skipArray();
+        this.payloadOffset = -1;
+        final Event next = this.readEvent();
+        this.event = next;
+        return next;
+    }
+
+    private Event readEvent() throws IOException {
+        if (this.depth == 0) {
+            if (this.rootRead) {
+                return Event.END_DOCUMENT;
+            }
+            this.rootRead = true;
+            final int rootType = this.readUnsignedByte();
+            if (rootType == NBTConstants.TYPE_END) {
+                return Event.END_DOCUMENT;
+            }
+            return this.beginTag(rootType, this.readName());
+        }
+
+        final int top = this.depth - 1;
+        if (this.containers[top] == NBTConstants.TYPE_COMPOUND) {
+            final int childType = this.readUnsignedByte();
+            if (childType == NBTConstants.TYPE_END) {
+                this.depth--;
+                this.type = NBTConstants.TYPE_COMPOUND;
+                this.name = "";
+                return Event.END_COMPOUND;
+            }
+            return this.beginTag(childType, this.readName());
+        }
+
+        if (this.remaining[top] == 0) {
+            this.depth--;
+            this.type = NBTConstants.TYPE_LIST;
+            this.name = "";
+            return Event.END_LIST;
+        }
+        this.remaining[top]--;
+        return this.beginTag(this.elementTypes[top], "");
+    }
+
+    /**
+     * Skips the children of the current compound or list tag. After this call
+     * the current event is the matching {@link Event#END_COMPOUND} or
+     * {@link Event#END_LIST}. For other events this method does nothing
+     * (array payloads are skipped by {@link #next()}).
+     *
+     * @throws IOException if the stream can't be read or is malformed
+     */
+    public void skipChildren() throws IOException {
+        if ((this.event != Event.START_COMPOUND) && (this.event != Event.START_LIST)) {
+            return;
+        }
+        final int top = this.depth - 1;
+        final int size = sizeOf(this.elementTypes[top]);
+        if ((this.event == Event.START_LIST) && (size > 0)) {
+            // List of fixed size primitives
+            this.skip((long) size * this.remaining[top]);
+            this.remaining[top] = 0;
+        }
+        while (this.depth > top) {
+            this.next();
+        }
+    }
+
+    /**
+     * Returns the current event.
+     *
+     * @return <b>Event</b> event or null before the first call of next()
+     */
+    @Nullable
+    public Event getEvent() {
+        return this.event;
+    }
+
+    /**
+     * Returns the NBT type of the current tag (see {@link NBTConstants}).
+     *
+     * @return <b>int</b> tag type
+     */
+    public int getType() {
+        return this.type;
+    }
+
+    /**
+     * Returns the name of the current tag. Elements of lists have an empty
+     * name.
+     *
+     * @return <b>String</b> name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the number of open compound and list tags. Children of the root
+     * tag have depth 1.
+     *
+     * @return <b>int</b> depth
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * Returns the number of uncompressed bytes consumed so far.
+     *
+     * @return <b>long</b> offset in the uncompressed stream
+     */
+    public long getOffset() {
+        return this.bufferOffset + this.position;
+    }
+
+    /**
+     * Returns the offset of the first payload byte of the current array tag
+     * in the uncompressed stream.
+     *
+     * @return <b>long</b> offset or -1 if the current tag is no array
+     */
+    public long getPayloadOffset() {
+        return this.payloadOffset;
+    }
+
+    /**
+     * Returns the value of the current byte tag.
+     *
+     * @return <b>byte</b> value
+     */
+    public byte getByte() {
+        this.checkType(NBTConstants.TYPE_BYTE);
+        return (byte) this.longValue;
+    }
+
+    /**
+     * Returns the value of the current short tag.
+     *
+     * @return <b>short</b> value
+     */
+    public short getShort() {
+        this.checkType(NBTConstants.TYPE_SHORT);
+        return (short) this.longValue;
+    }
+
+    /**
+     * Returns the value of the current int tag.
+     *
+     * @return <b>int</b> value
+     */
+    public int getInt() {
+        this.checkType(NBTConstants.TYPE_INT);
+        return (int) this.longValue;
+    }
+
+    /**
+     * Returns the value of the current long tag.
+     *
+     * @return <b>long</b> value
+     */
+    public long getLong() {
+        this.checkType(NBTConstants.TYPE_LONG);
+        return this.longValue;
+    }
+
+    /**
+     * Returns the value of the current float tag.
+     *
+     * @return <b>float</b> value
+     */
+    public float getFloat() {
+        this.checkType(NBTConstants.TYPE_FLOAT);
+        return (float) this.doubleValue;
+    }
+
+    /**
+     * Returns the value of the current double tag.
+     *
+     * @return <b>double</b> value
+     */
+    public double getDouble() {
+        this.checkType(NBTConstants.TYPE_DOUBLE);
+        return this.doubleValue;
+    }
+
+    /**
+     * Returns the value of the current string tag.
+     *
+     * @return <b>String</b> value
+     */
+    public String getString() {
+        this.checkType(NBTConstants.TYPE_STRING);
+        return this.stringValue;
+    }
+
+    /**
+     * Returns the number of elements of the current array or list tag.
+     *
+     * @return <b>int</b> number of elements
+     */
+    public int getArrayLength() {
+        if ((this.type != NBTConstants.TYPE_BYTE_ARRAY) && (this.type != NBTConstants.TYPE_INT_ARRAY) && (this.type != NBTConstants.TYPE_LIST)) {
+            throw new IllegalStateException("Current tag is no array: " + this.name);
+        }
+        return this.arrayLength;
+    }
+
+    /**
+     * Returns the element type of the current list tag.
+     *
+     * @return <b>int</b> element type
+     */
+    public int getElementType() {
+        this.checkType(NBTConstants.TYPE_LIST);
+        return this.elementTypes[this.depth - 1];
+    }
+
+    /**
+     * Reads up to {@code length} bytes of the payload of the current byte
+     * array tag into the given buffer.
+     *
+     * @param b <b>byte[]</b> buffer
+     * @param off <b>int</b> offset in the buffer
+     * @param length <b>int</b> maximum number of bytes
+     * @return <b>int</b> number of read bytes or -1 if the payload is
+     *         completely read
+     * @throws IOException if the stream can't be read
+     */
+    public int readBytes(final byte[] b, final int off, final int length) throws IOException {
+        this.checkType(NBTConstants.TYPE_BYTE_ARRAY);
+        if (this.arrayRemaining == 0) {
+            return -1;
+        }
+        final int toRead = (int) Math.min(length, this.arrayRemaining);
+        int read = Math.min(toRead, this.limit - this.position);
+        System.arraycopy(this.buffer, this.position, b, off, read);
+        this.position += read;
+        // Large remainder -> directly from the stream into the caller buffer
+        while (read < toRead) {
+            final int n = this.in.read(b, off + read, toRead - read);
+            if (n < 0) {
+                throw new EOFException("Byte array " + this.name + " is truncated");
+            }
+            read += n;
+            this.bufferOffset += n;
+        }
+        this.arrayRemaining -= read;
+        return read;
+    }
+
+    /**
+     * Reads up to {@code length} ints of the payload of the current int array
+     * tag into the given buffer.
+     *
+     * @param b <b>int[]</b> buffer
+     * @param off <b>int</b> offset in the buffer
+     * @param length <b>int</b> maximum number of ints
+     * @return <b>int</b> number of read ints or -1 if the payload is
+     *         completely read
+     * @throws IOException if the stream can't be read
+     */
+    public int readInts(final int[] b, final int off, final int length) throws IOException {
+        this.checkType(NBTConstants.TYPE_INT_ARRAY);
+        if (this.arrayRemaining == 0) {
+            return -1;
+        }
+        final int toRead = (int) Math.min(length, this.arrayRemaining / 4);
+        for (int i = 0; i < toRead; i++) {
+            b[off + i] = this.readIntRaw();
+        }
+        this.arrayRemaining -= 4L * toRead;
+        return toRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    private Event beginTag(final int tagType, final String tagName) throws IOException {
+        this.type = tagType;
+        this.name = tagName;
+        switch (tagType) {
+            case NBTConstants.TYPE_BYTE:
+                this.longValue = (byte) this.readUnsignedByte();
+                return Event.VALUE;
+            case NBTConstants.TYPE_SHORT:
+                this.longValue = (short) this.readUnsignedShort();
+                return Event.VALUE;
+            case NBTConstants.TYPE_INT:
+                this.longValue = this.readIntRaw();
+                return Event.VALUE;
+            case NBTConstants.TYPE_LONG:
+                this.longValue = this.readLongRaw();
+                return Event.VALUE;
+            case NBTConstants.TYPE_FLOAT:
+                this.doubleValue = Float.intBitsToFloat(this.readIntRaw());
+                return Event.VALUE;
+            case NBTConstants.TYPE_DOUBLE:
+                this.doubleValue = Double.longBitsToDouble(this.readLongRaw());
+                return Event.VALUE;
+            case NBTConstants.TYPE_STRING:
+                this.stringValue = this.readUTF();
+                return Event.VALUE;
+            case NBTConstants.TYPE_BYTE_ARRAY:
+                this.arrayLength = this.readLength();
+                this.arrayRemaining = this.arrayLength;
+                this.payloadOffset = this.getOffset();
+                return Event.BYTE_ARRAY;
+            case NBTConstants.TYPE_INT_ARRAY:
+                this.arrayLength = this.readLength();
+                this.arrayRemaining = 4L * this.arrayLength;
+                this.payloadOffset = this.getOffset();
+                return Event.INT_ARRAY;
+            case NBTConstants.TYPE_LIST:
+                final int elementType = this.readUnsignedByte();
+                this.arrayLength = this.readLength();
+                this.push(NBTConstants.TYPE_LIST, elementType, this.arrayLength);
+                return Event.START_LIST;
+            case NBTConstants.TYPE_COMPOUND:
+                this.push(NBTConstants.TYPE_COMPOUND, NBTConstants.TYPE_END, 0);
+                return Event.START_COMPOUND;
+            default:
+                throw new IOException("Invalid tag type: " + tagType);
+        }
+    }
+
+    private void push(final int container, final int elementType, final int count) throws IOException {
+        if (this.depth == MAX_DEPTH) {
+            throw new IOException("NBT nesting too deep (max " + MAX_DEPTH + ")");
+        }
+        this.containers[this.depth] = (byte) container;
+        this.elementTypes[this.depth] = (byte) elementType;
+        this.remaining[this.depth] = count;
+        this.depth++;
+    }
+
+    private void checkType(final int expected) {
+        if (this.type != expected) {
+            throw new IllegalStateException("Tag " + this.name + " has type " + this.type + ", expected " + expected);
+        }
+    }
+
+    /**
+     * Returns the payload size of fixed size primitive types.
+     *
+     * @return Size in bytes or -1 for other types
+     */
+    private static int sizeOf(final int tagType) {
+        switch (tagType) {
+            case NBTConstants.TYPE_BYTE:
+                return 1;
+            case NBTConstants.TYPE_SHORT:
+                return 2;
+            case NBTConstants.TYPE_INT:
+            case NBTConstants.TYPE_FLOAT:
+                return 4;
+            case NBTConstants.TYPE_LONG:
+            case NBTConstants.TYPE_DOUBLE:
+                return 8;
+            default:
+                return -1;
+        }
+    }
+
+    private void skipArray() throws IOException {
+        if (this.arrayRemaining > 0) {
+            this.skip(this.arrayRemaining);
+            this.arrayRemaining = 0;
+        }
+    }
+
+    private void skip(final long count) throws IOException {
+        final int buffered = (int) Math.min(count, this.limit - this.position);
+        this.position += buffered;
+        long left = count - buffered;
+        if (left == 0) {
+            return;
+        }
+        // Inflate into the (consumed) buffer, InputStream.skip of the gzip
+        // stream uses a tiny buffer
+        this.bufferOffset += this.limit;
+        this.position = 0;
+        this.limit = 0;
+        while (left > 0) {
+            final int n = this.in.read(this.buffer, 0, (int) Math.min(left, this.buffer.length));
+            if (n < 0) {
+                throw new EOFException("Unexpected end of NBT stream");
+            }
+            this.bufferOffset += n;
+            left -= n;
+        }
+    }
+
+    /**
+     * Ensures that at least {@code count} bytes are buffered.
+     */
+    private void require(final int count) throws IOException {
+        if ((this.limit - this.position) >= count) {
+            return;
+        }
+        // Move the rest to the front
+        final int rest = this.limit - this.position;
+        System.arraycopy(this.buffer, this.position, this.buffer, 0, rest);
+        this.bufferOffset += this.position;
+        this.position = 0;
+        this.limit = rest;
+        while (this.limit < count) {
+            final int n = this.in.read(this.buffer, this.limit, this.buffer.length - this.limit);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of NBT stream");
+            }
+            this.limit += n;
+        }
+    }
+
+    private int readUnsignedByte() throws IOException {
+        this.require(1);
+        return this.buffer[this.position++] & 0xFF;
+    }
+
+    private int readUnsignedShort() throws IOException {
+        this.require(2);
+        final int value = ((this.buffer[this.position] & 0xFF) << 8) | (this.buffer[this.position + 1] & 0xFF);
+        this.position += 2;
+        return value;
+    }
+
+    private int readIntRaw() throws IOException {
+        this.require(4);
+        final byte[] b = this.buffer;
+        final int p = this.position;
+        this.position += 4;
+        return ((b[p] & 0xFF) << 24) | ((b[p + 1] & 0xFF) << 16) | ((b[p + 2] & 0xFF) << 8) | (b[p + 3] & 0xFF);
+    }
+
+    private long readLongRaw() throws IOException {
+        final long high = this.readIntRaw();
+        return (high << 32) | (this.readIntRaw() & 0xFFFFFFFFL);
+    }
+
+    private int readLength() throws IOException {
+        final int length = this.readIntRaw();
+        if (length < 0) {
+            throw new IOException("Negative length of tag " + this.name + ": " + length);
+        }
+        return length;
+    }
+
+    private String readName() throws IOException {
+        return this.readUTF();
+    }
+
+    /**
+     * Reads a string in modified UTF-8 (see {@link java.io.DataInput#readUTF()}).
+     */
+    private String readUTF() throws IOException {
+        final int length = this.readUnsignedShort();
+        // Max. 65535 bytes, larger than the buffer
+        final byte[] bytes;
+        int p;
+        if (length <= this.buffer.length) {
+            this.require(length);
+            bytes = this.buffer;
+            p = this.position;
+            this.position += length;
+        } else {
+            bytes = new byte[length];
+            int read = 0;
+            while (read < length) {
+                read += this.readBytesRaw(bytes, read, length - read);
+            }
+            p = 0;
+        }
+        final int end = p + length;
+        final char[] chars = new char[length];
+        int count = 0;
+        while (p < end) {
+            final int c = bytes[p] & 0xFF;
+            if (c < 0x80) {
+                chars[count++] = (char) c;
+                p++;
+            } else if ((c >> 5) == 0x6) {
+                if ((p + 1) >= end) {
+                    throw new IOException("Malformed string");
+                }
+                chars[count++] = (char) (((c & 0x1F) << 6) | (bytes[p + 1] & 0x3F));
+                p += 2;
+            } else if ((c >> 4) == 0xE) {
+                if ((p + 2) >= end) {
+                    throw new IOException("Malformed string");
+                }
+                chars[count++] = (char) (((c & 0x0F) << 12) | ((bytes[p + 1] & 0x3F) << 6) | (bytes[p + 2] & 0x3F));
+                p += 3;
+            } else {
+                throw new IOException("Malformed string");
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private int readBytesRaw(final byte[] b, final int off, final int length) throws IOException {
+        if (this.position < this.limit) {
+            final int n = Math.min(length, this.limit - this.position);
+            System.arraycopy(this.buffer, this.position, b, off, n);
+            this.position += n;
+            return n;
+        }
+        final int n = this.in.read(b, off, length);
+        if (n < 0) {
+            throw new EOFException("Unexpected end of NBT stream");
+        }
+        this.bufferOffset += n;
+        return n;
+    }
+}
@@ -0,0 +1,518 @@
+package com.tree_bit.rcdl.schematic;
+
+import com.tree_bit.rcdl.blocks.Block;
+
+import com.google.common.base.Objects;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Compact storage of a schematic volume with a palette and bit-packed
+ * indices (like the block states of Anvil sections).
+ *
+ * <p>
+ * Each distinct combination of block id and data value used in the volume
+ * is an entry of the palette. The palette holds the raw combination
+ * {@code (id << 4) | meta} (not the state id), so unknown block ids and data
+ * values of generic blocks survive the conversion to and from the legacy
+ * 'Blocks'/'Data' layout unchanged. Use {@link #getStateId(int)} for the
+ * state id.
+ *
+ * <p>
+ * The palette indices are packed into a {@code long[]}. The number of bits
+ * per entry is the minimum for the palette size (1 to 12 bits) and grows with
+ * the palette, entries never span two longs. So a volume with up to 16
+ * distinct blocks needs half a byte per block, one with up to 64 about 0.8
+ * bytes, instead of two bytes of the legacy layout. The palette only grows,
+ * blocks which are no longer used keep their entry.
+ *
+ * <p>
+ * The block order and coordinate checks are the same as in
+ * {@link SchematicVolume}. The volume is not thread-safe.
+ */
+public final class PalettedVolume {
+
+    /** Number of raw combinations {@code (id << 4) | meta} */
+    private static final int RAW_COUNT = 256 * 16;
+
+    /** Bits per entry needed for all raw combinations */
+    private static final int MAX_BITS = 12;
+
+    /**
+     * Layout of the entries of one size in the longs.
+     *
+     * <p>
+     * The long of an entry is computed by multiplying with the rounded up
+     * reciprocal of the values per long instead of dividing (exact for all
+     * non-negative ints).
+     */
+    private static final class Packing {
+
+        private static final Packing[] packings = new Packing[MAX_BITS + 1];
+
+        static {
+            for (int bits = 1; bits <= MAX_BITS; bits++) {
+                packings[bits] = new Packing(bits);
+            }
+        }
+
+        final int bits;
+        final int valuesPerLong;
+        final long mask;
+        private final long magic;
+        private final int magicShift;
+
+        private Packing(final int bits) {
+            this.bits = bits;
+            this.valuesPerLong = 64 / bits;
+            this.mask = (1L << bits) - 1;
+            final int log = 32 - Integer.numberOfLeadingZeros(this.valuesPerLong - 1);
+            this.magicShift = 31 + log;
+            this.magic = ((1L << this.magicShift) + this.valuesPerLong - 1) / this.valuesPerLong;
+        }
+
+        static Packing of(final int bits) {
+            return packings[bits];
+        }
+
+        /** Index of the long containing the given entry */
+        int longIndex(final int index) {
+            return (int) ((index * this.magic) >>> this.magicShift);
+        }
+
+        /** Number of longs needed for the given number of entries */
+        int longs(final int count) {
+            return (int) (((long) count + this.valuesPerLong - 1) / this.valuesPerLong);
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final int length;
+    private final int volume;
+
+    /** Raw combination of each palette index */
+    private int[] palette;
+    private int paletteSize;
+    /** Palette index of each raw combination, -1 if not in the palette */
+    private final short[] indices = new short[RAW_COUNT];
+
+    private Packing packing;
+    private long[] storage;
+
+    /**
+     * Creates a new volume filled with air.
+     *
+     * @param width <b>int</b> size in x direction
+     * @param height <b>int</b> size in y direction
+     * @param length <b>int</b> size in z direction
+     *
+     * @throws IllegalArgumentException if a size is negative or the volume
+     *         exceeds the maximum array size
+     */
+    public PalettedVolume(final int width, final int height, final int length) {
+        this(width, height, length, 1);
+        this.add(0);
+    }
+
+    private PalettedVolume(final int width, final int height, final int length, final int bits) {
+        if ((width < 0) || (height < 0) || (length < 0)) {
+            throw new IllegalArgumentException("Negative size: " + width + "x" + height + "x" + length);
+        }
+        final long size = (long) width * height * length;
+        if (size > (Integer.MAX_VALUE - 8)) {
+            throw new IllegalArgumentException("Volume too large: " + width + "x" + height + "x" + length);
+        }
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.volume = (int) size;
+        this.packing = Packing.of(bits);
+        this.palette = new int[1 << bits];
+        Arrays.fill(this.indices, (short) -1);
+        this.storage = new long[this.packing.longs(this.volume)];
+    }
+
+    /**
+     * Creates a compact copy of the given volume in the legacy layout.
+     *
+     * @param source <b>SchematicVolume</b> volume
+     * @return <b>PalettedVolume</b> copy
+     */
+    public static PalettedVolume of(final SchematicVolume source) {
+        final byte[] blocks = source.getBlocks();
+        final byte[] data = source.getData();
+
+        // First pass: collect the palette to know the size of the entries
+        final short[] indices = new short[RAW_COUNT];
+        Arrays.fill(indices, (short) -1);
+        final int[] palette = new int[RAW_COUNT];
+        int size = 0;
+        for (int i = 0; i < blocks.length; i++) {
+            final int raw = ((blocks[i] & 0xFF) << 4) | (data[i] & 0x0F);
+            if (indices[raw] < 0) {
+                indices[raw] = (short) size;
+                palette[size++] = raw;
+            }
+        }
+        if (size == 0) {
+            palette[size++] = 0;
+        }
+
+        final PalettedVolume result = new PalettedVolume(source.getWidth(), source.getHeight(), source.getLength(), bitsFor(size));
+        for (int i = 0; i < size; i++) {
+            result.add(palette[i]);
+        }
+
+        // Second pass: pack the indices
+        final int bits = result.packing.bits;
+        final int valuesPerLong = result.packing.valuesPerLong;
+        final long[] storage = result.storage;
+        final short[] lookup = result.indices;
+        for (int l = 0; l < storage.length; l++) {
+            long packed = 0;
+            final int start = l * valuesPerLong;
+            final int end = Math.min(blocks.length, start + valuesPerLong);
+            for (int i = start, shift = 0; i < end; i++, shift += bits) {
+                packed |= (long) lookup[((blocks[i] & 0xFF) << 4) | (data[i] & 0x0F)] << shift;
+            }
+            storage[l] = packed;
+        }
+        return result;
+    }
+
+    /**
+     * Creates a compact copy of the blocks of the given schematic.
+     *
+     * @param schematic <b>SchematicWrapper</b> schematic containing the size,
+     *        'Blocks' and 'Data'
+     * @return <b>PalettedVolume</b> copy
+     *
+     * @throws NullPointerException if a field is missing
+     * @throws IllegalArgumentException if an array doesn't match the size
+     */
+    public static PalettedVolume of(final SchematicWrapper schematic) {
+        return of(SchematicVolume.of(schematic));
+    }
+
+    /**
+     * Loads the blocks of the given schematic file into a compact volume. The
+     * fields are read with a {@link SchematicLoader}, the rest of the file is
+     * skipped.
+     *
+     * @param path <b>Path</b> schematic file
+     * @return <b>PalettedVolume</b> blocks of the schematic
+     * @throws IOException if the file can't be read or a field is missing
+     */
+    public static PalettedVolume load(final Path path) throws IOException {
+        final LoadedSchematic loaded = new SchematicLoader(ESchematicFields.WIDTH, ESchematicFields.HEIGHT, ESchematicFields.LENGTH,
+                ESchematicFields.BLOCKS, ESchematicFields.DATA).load(path);
+        for (final ESchematicFields field : new ESchematicFields[] {ESchematicFields.WIDTH, ESchematicFields.HEIGHT,
+                ESchematicFields.LENGTH, ESchematicFields.BLOCKS, ESchematicFields.DATA}) {
+            if (!loaded.contains(field)) {
+                throw new IOException("Missing field " + field.getKey() + " in " + path);
+            }
+        }
+        return of(new SchematicVolume(loaded.getWidth(), loaded.getHeight(), loaded.getLength(), loaded.getBlocks(), loaded.getData()));
+    }
+
+    /**
+     * Expands this volume to the legacy 'Blocks'/'Data' layout.
+     *
+     * @return <b>SchematicVolume</b> new volume with its own arrays
+     */
+    public SchematicVolume toVolume() {
+        final SchematicVolume result = new SchematicVolume(this.width, this.height, this.length);
+        final byte[] blocks = result.getBlocks();
+        final byte[] data = result.getData();
+        final int bits = this.packing.bits;
+        final int valuesPerLong = this.packing.valuesPerLong;
+        final long mask = this.packing.mask;
+        final int[] p = this.palette;
+        final long[] s = this.storage;
+        for (int l = 0; l < s.length; l++) {
+            final long packed = s[l];
+            final int start = l * valuesPerLong;
+            final int end = Math.min(blocks.length, start + valuesPerLong);
+            for (int i = start, shift = 0; i < end; i++, shift += bits) {
+                final int raw = p[(int) ((packed >>> shift) & mask)];
+                blocks[i] = (byte) (raw >>> 4);
+                data[i] = (byte) (raw & 0x0F);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the size and the blocks of this volume in the legacy layout to
+     * the given schematic.
+     *
+     * @param schematic <b>SchematicWrapper</b> target
+     *
+     * @throws IllegalArgumentException if a size exceeds the range of a short
+     */
+    public void writeTo(final SchematicWrapper schematic) {
+        this.toVolume().writeTo(schematic);
+    }
+
+    private static int bitsFor(final int paletteSize) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(paletteSize - 1));
+    }
+
+    /**
+     * Adds a raw combination to the palette, growing the entries if necessary.
+     *
+     * @param raw Raw combination not contained in the palette
+     * @return Palette index
+     */
+    private int add(final int raw) {
+        if (this.paletteSize == this.palette.length) {
+            this.resize(this.packing.bits + 1);
+        }
+        final int index = this.paletteSize++;
+        this.palette[index] = raw;
+        this.indices[raw] = (short) index;
+        return index;
+    }
+
+    /**
+     * Repacks the storage with more bits per entry.
+     */
+    private void resize(final int bits) {
+        final Packing from = this.packing;
+        final Packing to = Packing.of(bits);
+        final long[] old = this.storage;
+        final long[] resized = new long[to.longs(this.volume)];
+        int i = 0;
+        for (int l = 0; l < old.length; l++) {
+            final long packed = old[l];
+            final int end = Math.min(this.volume, i + from.valuesPerLong);
+            for (int shift = 0; i < end; i++, shift += from.bits) {
+                final int target = to.longIndex(i);
+                resized[target] |= ((packed >>> shift) & from.mask) << ((i - (target * to.valuesPerLong)) * to.bits);
+            }
+        }
+        this.storage = resized;
+        this.packing = to;
+        this.palette = Arrays.copyOf(this.palette, 1 << bits);
+    }
+
+    /**
+     * Returns the size in x direction.
+     *
+     * @return <b>int</b> width
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Returns the size in y direction.
+     *
+     * @return <b>int</b> height
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Returns the size in z direction.
+     *
+     * @return <b>int</b> length
+     */
+    public int getLength() {
+        return this.length;
+    }
+
+    /**
+     * Returns the number of blocks.
+     *
+     * @return <b>int</b> width * height * length
+     */
+    public int getVolume() {
+        return this.volume;
+    }
+
+    /**
+     * Returns the number of palette entries.
+     *
+     * @return <b>int</b> palette size
+     */
+    public int getPaletteSize() {
+        return this.paletteSize;
+    }
+
+    /**
+     * Returns the raw combinations of the palette.
+     *
+     * @return <b>int[]</b> copy of the palette, each entry
+     *         {@code (id << 4) | meta}
+     */
+    public int[] getPalette() {
+        return Arrays.copyOf(this.palette, this.paletteSize);
+    }
+
+    /**
+     * Returns the number of bits used for each block.
+     *
+     * @return <b>int</b> bits in [1, 12]
+     */
+    public int getBitsPerEntry() {
+        return this.packing.bits;
+    }
+
+    /**
+     * Returns the approximate number of bytes of the storage and the palette
+     * (without object headers).
+     *
+     * @return <b>long</b> bytes
+     */
+    public long getStorageBytes() {
+        return (8L * this.storage.length) + (4L * this.palette.length) + (2L * RAW_COUNT);
+    }
+
+    /**
+     * Returns the index of the given coordinates.
+     *
+     * @param x <b>int</b> x coordinate in [0, width)
+     * @param y <b>int</b> y coordinate in [0, height)
+     * @param z <b>int</b> z coordinate in [0, length)
+     * @return <b>int</b> index
+     *
+     * @throws IndexOutOfBoundsException if a coordinate is out of bounds
+     */
+    public int index(final int x, final int y, final int z) {
+        if ((x | y | z | (this.width - 1 - x) | (this.height - 1 - y) | (this.length - 1 - z)) < 0) {
+            throw new IndexOutOfBoundsException(
+                    "(" + x + ", " + y + ", " + z + ") outside of " + this.width + "x" + this.height + "x" + this.length);
+        }
+        return (((y * this.length) + z) * this.width) + x;
+    }
+
+    /**
+     * Returns the raw combination of the block at the given index.
+     *
+     * @param index <b>int</b> index (see {@link #index(int, int, int)})
+     * @return <b>int</b> raw combination {@code (id << 4) | meta}
+     *
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public int getRaw(final int index) {
+        if ((index < 0) || (index >= this.volume)) {
+            throw new IndexOutOfBoundsException("Index " + index + " outside of " + this.volume);
+        }
+        final Packing p = this.packing;
+        final int l = p.longIndex(index);
+        final int shift = (index - (l * p.valuesPerLong)) * p.bits;
+        return this.palette[(int) ((this.storage[l] >>> shift) & p.mask)];
+    }
+
+    /**
+     * Sets the raw combination of the block at the given index.
+     *
+     * @param index <b>int</b> index (see {@link #index(int, int, int)})
+     * @param raw <b>int</b> raw combination {@code (id << 4) | meta} in [0,
+     *        4096)
+     *
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     * @throws IllegalArgumentException if the raw combination is out of range
+     */
+    public void setRaw(final int index, final int raw) {
+        if ((index < 0) || (index >= this.volume)) {
+            throw new IndexOutOfBoundsException("Index " + index + " outside of " + this.volume);
+        }
+        if ((raw < 0) || (raw >= RAW_COUNT)) {
+            throw new IllegalArgumentException("Invalid raw block: " + raw);
+        }
+        int value = this.indices[raw];
+        if (value < 0) {
+            value = this.add(raw);
+        }
+        final Packing p = this.packing;
+        final int l = p.longIndex(index);
+        final int shift = (index - (l * p.valuesPerLong)) * p.bits;
+        this.storage[l] = (this.storage[l] & ~(p.mask << shift)) | ((long) value << shift);
+    }
+
+    /**
+     * Returns the raw block id at the given coordinates.
+     *
+     * @param x <b>int</b> x coordinate
+     * @param y <b>int</b> y coordinate
+     * @param z <b>int</b> z coordinate
+     * @return <b>int</b> block id in [0, 256)
+     *
+     * @throws IndexOutOfBoundsException if a coordinate is out of bounds
+     */
+    public int getId(final int x, final int y, final int z) {
+        return this.getRaw(this.index(x, y, z)) >>> 4;
+    }
+
+    /**
+     * Returns the raw data value at the given coordinates.
+     *
+     * @param x <b>int</b> x coordinate
+     * @param y <b>int</b> y coordinate
+     * @param z <b>int</b> z coordinate
+     * @return <b>int</b> data value in [0, 16)
+     *
+     * @throws IndexOutOfBoundsException if a coordinate is out of bounds
+     */
+    public int getMeta(final int x, final int y, final int z) {
+        return this.getRaw(this.index(x, y, z)) & 0x0F;
+    }
+
+    /**
+     * Returns the state id of the block at the given index.
+     *
+     * @param index <b>int</b> index (see {@link #index(int, int, int)})
+     * @return <b>int</b> state id or {@link Block#INVALID_STATE_ID} if the raw
+     *         values don't represent a valid block
+     */
+    public int getStateId(final int index) {
+        final int raw = this.getRaw(index);
+        return Block.rawToStateId(raw >>> 4, raw & 0x0F);
+    }
+
+    /**
+     * Returns the block at the given coordinates. Tile entities are not
+     * stored.
+     *
+     * @param x <b>int</b> x coordinate
+     * @param y <b>int</b> y coordinate
+     * @param z <b>int</b> z coordinate
+     * @return <b>Block</b> block
+     *
+     * @throws IndexOutOfBoundsException if a coordinate is out of bounds
+     * @throws IllegalArgumentException if the raw values don't represent a
+     *         valid block
+     */
+    public Block getBlock(final int x, final int y, final int z) {
+        final int raw = this.getRaw(this.index(x, y, z));
+        return Block.fromRaw(raw >>> 4, raw & 0x0F);
+    }
+
+    /**
+     * Sets the block at the given coordinates. Tile entities are not stored.
+     *
+     * @param x <b>int</b> x coordinate
+     * @param y <b>int</b> y coordinate
+     * @param z <b>int</b> z coordinate
+     * @param block <b>Block</b> block
+     *
+     * @throws IndexOutOfBoundsException if a coordinate is out of bounds
+     */
+    public void setBlock(final int x, final int y, final int z, final Block block) {
+        this.setRaw(this.index(x, y, z), Block.stateIdToRaw(block.getStateId()));
+    }
+
+    @Override
+    // Can't be null (checked by Guava)
+    @SuppressWarnings("null")
+    public String toString() {
+        return Objects.toStringHelper(this).add("width", this.width).add("height", this.height).add("length", this.length)
+                .add("palette", this.paletteSize).add("bits", this.getBitsPerEntry()).toString();
+    }
+}
@@ -0,0 +1,248 @@
+package com.tree_bit.rcdl.schematic;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip output stream compressing independent blocks in parallel (like pigz).
+ *
+ * <p>
+ * The input is split into blocks which are deflated as tasks of a
+ * {@link ForkJoinPool}. Each block uses the last 32 KiB of the previous block
+ * as dictionary, so the compression ratio is nearly the same as of a single
+ * deflate stream. All blocks except the last one end with a sync flush (byte
+ * aligned, not final), so their concatenation is one valid deflate stream.
+ * The result is a standard gzip file (one member) readable by any gzip
+ * implementation.
+ *
+ * <p>
+ * The CRC32 is computed by the writing thread. At most two blocks per thread
+ * of the pool are in flight, so the memory usage is bounded.
+ *
+ * <p>
+ * The stream is not thread-safe.
+ */
+final class ParallelGZIPOutputStream extends OutputStream {
+
+    /** Default size of an uncompressed block */
+    static final int DEFAULT_BLOCK_SIZE = 1 << 18;
+
+    /** Deflate window size (max. distance of back references) */
+    private static final int DICTIONARY_SIZE = 1 << 15;
+
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private final OutputStream out;
+    private final int level;
+    private final ForkJoinPool pool;
+    private final int blockSize;
+    private final int maxInFlight;
+    private final Queue<ForkJoinTask<byte[]>> inFlight = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+
+    private byte[] block;
+    private int count;
+    /** Tail of the previous block (dictionary of the next one) */
+    private byte[] dictionary = new byte[0];
+    private long size;
+    private boolean closed;
+
+    /**
+     * Creates a new parallel gzip stream and writes the gzip header.
+     *
+     * @param out Stream receiving the compressed data
+     * @param level Deflate level (0-9 or {@link Deflater#DEFAULT_COMPRESSION})
+     * @param pool Pool compressing the blocks
+     * @throws IOException if the header can't be written
+     *
+     * @throws IllegalArgumentException if the level is invalid
+     */
+    ParallelGZIPOutputStream(final OutputStream out, final int level, final ForkJoinPool pool) throws IOException {
+        this(out, level, pool, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a new parallel gzip stream and writes the gzip header.
+     *
+     * @param out Stream receiving the compressed data
+     * @param level Deflate level (0-9 or {@link Deflater#DEFAULT_COMPRESSION})
+     * @param pool Pool compressing the blocks
+     * @param blockSize Size of the uncompressed blocks
+     * @throws IOException if the header can't be written
+     *
+     * @throws IllegalArgumentException if the level or block size is invalid
+     */
+    ParallelGZIPOutputStream(final OutputStream out, final int level, final ForkJoinPool pool, final int blockSize) throws IOException {
+        SchematicFiles.checkLevel(level);
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Invalid block size: " + blockSize);
+        }
+        this.out = out;
+        this.level = level;
+        this.pool = pool;
+        this.blockSize = blockSize;
+        this.maxInFlight = 2 * pool.getParallelism();
+        this.block = new byte[blockSize];
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        this.ensureOpen();
+        if (this.count == this.blockSize) {
+            this.submit(false);
+        }
+        this.block[this.count++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        this.ensureOpen();
+        int offset = off;
+        int left = len;
+        while (left > 0) {
+            if (this.count == this.blockSize) {
+                this.submit(false);
+            }
+            final int n = Math.min(left, this.blockSize - this.count);
+            System.arraycopy(b, offset, this.block, this.count, n);
+            this.count += n;
+            offset += n;
+            left -= n;
+        }
+    }
+
+    /**
+     * Compresses the remaining data, writes the gzip trailer and closes the
+     * underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            this.submit(true);
+            while (!this.inFlight.isEmpty()) {
+                this.writeNext();
+            }
+            final byte[] trailer = new byte[8];
+            writeIntLE(trailer, 0, (int) this.crc.getValue());
+            writeIntLE(trailer, 4, (int) this.size);
+            this.out.write(trailer);
+        } finally {
+            for (final ForkJoinTask<byte[]> task : this.inFlight) {
+                task.cancel(false);
+            }
+            this.out.close();
+        }
+    }
+
+    /**
+     * Submits the current block for compression.
+     *
+     * @param last Whether this is the last block (finishes the stream)
+     */
+    private void submit(final boolean last) throws IOException {
+        final byte[] data = this.block;
+        final int length = this.count;
+        this.crc.update(data, 0, length);
+        this.size += length;
+
+        final byte[] dict = this.dictionary;
+        final int lvl = this.level;
+        this.inFlight.add(this.pool.submit(() -> deflate(data, length, dict, lvl, last)));
+
+        // Keep the tail as dictionary of the next block
+        final int tail = Math.min(length, DICTIONARY_SIZE);
+        if (tail == DICTIONARY_SIZE) {
+            this.dictionary = Arrays.copyOfRange(data, length - tail, length);
+        } else if (tail > 0) {
+            final byte[] combined = Arrays.copyOf(this.dictionary, Math.min(DICTIONARY_SIZE, this.dictionary.length + tail));
+            final int keep = combined.length - tail;
+            System.arraycopy(this.dictionary, this.dictionary.length - keep, combined, 0, keep);
+            System.arraycopy(data, 0, combined, keep, tail);
+            this.dictionary = combined;
+        }
+        this.block = new byte[this.blockSize];
+        this.count = 0;
+
+        while (this.inFlight.size() > this.maxInFlight) {
+            this.writeNext();
+        }
+    }
+
+    /**
+     * Waits for the oldest block and writes it.
+     */
+    private void writeNext() throws IOException {
+        final ForkJoinTask<byte[]> task = this.inFlight.remove();
+        this.out.write(task.join());
+    }
+
+    /**
+     * Deflates one block.
+     *
+     * @param data Uncompressed data
+     * @param length Length of the data
+     * @param dictionary Preset dictionary (up to 32 KiB preceding the block)
+     * @param level Deflate level
+     * @param last Whether to finish the deflate stream
+     * @return Raw deflate data
+     */
+    static byte[] deflate(final byte[] data, final int length, final byte[] dictionary, final int level, final boolean last) {
+        final Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary.length > 0) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(data, 0, length);
+            byte[] result = new byte[length + (length >> 3) + 64];
+            int n = 0;
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    if (n == result.length) {
+                        result = Arrays.copyOf(result, result.length * 2);
+                    }
+                    n += deflater.deflate(result, n, result.length - n);
+                }
+            } else {
+                // Sync flush: byte aligned output, the stream isn't finished
+                while (true) {
+                    final int free = result.length - n;
+                    final int written = deflater.deflate(result, n, free, Deflater.SYNC_FLUSH);
+                    n += written;
+                    if (written < free) {
+                        break;
+                    }
+                    result = Arrays.copyOf(result, result.length * 2);
+                }
+            }
+            return Arrays.copyOf(result, n);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeIntLE(final byte[] b, final int off, final int value) {
+        b[off] = (byte) value;
+        b[off + 1] = (byte) (value >> 8);
+        b[off + 2] = (byte) (value >> 16);
+        b[off + 3] = (byte) (value >> 24);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (this.closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package com.tree_bit.rcdl.schematic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Offline compactor of Anvil region files.
+ *
+ * <p>
+ * A region file is rewritten with its chunks stored contiguously in the
+ * spatial Morton (z-order) of their coordinates, so neighboring chunks are
+ * close together in the file. Dead sectors and the padding of moved chunks
+ * are dropped. Optionally all chunks are recompressed with zlib at a chosen
+ * level, otherwise the stored data is copied unchanged. The timestamps are
+ * kept.
+ *
+ * <p>
+ * Each file is replaced atomically (see
+ * {@link SchematicWrapper#saveChangesToFile(Path, int)}) and keeps its
+ * permissions, so a server running as another user can still read it. A
+ * failing region is left unchanged. The world mustn't be used by another
+ * program during the compaction.
+ *
+ * <p>
+ * The compactor is immutable and thread-safe.
+ */
+public final class RegionCompactor {
+
+    /** Chunk indices in Morton order */
+    private static final int[] MORTON_ORDER = new int[RegionReader.CHUNKS];
+
+    static {
+        for (int z = 0; z < 32; z++) {
+            for (int x = 0; x < 32; x++) {
+                MORTON_ORDER[morton(x, z)] = RegionReader.index(x, z);
+            }
+        }
+    }
+
+    /**
+     * Result of the compaction of one region file.
+     */
+    public static final class Result {
+
+        private final Path path;
+        private final long sizeBefore;
+        private final long sizeAfter;
+        private final int chunks;
+        private final long nanos;
+
+        Result(final Path path, final long sizeBefore, final long sizeAfter, final int chunks, final long nanos) {
+            this.path = path;
+            this.sizeBefore = sizeBefore;
+            this.sizeAfter = sizeAfter;
+            this.chunks = chunks;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Returns the region file.
+         *
+         * @return <b>Path</b> file
+         */
+        public Path getPath() {
+            return this.path;
+        }
+
+        /**
+         * Returns the size of the file before the compaction.
+         *
+         * @return <b>long</b> bytes
+         */
+        public long getSizeBefore() {
+            return this.sizeBefore;
+        }
+
+        /**
+         * Returns the size of the file after the compaction.
+         *
+         * @return <b>long</b> bytes
+         */
+        public long getSizeAfter() {
+            return this.sizeAfter;
+        }
+
+        /**
+         * Returns the number of saved bytes (negative if the file grew).
+         *
+         * @return <b>long</b> bytes
+         */
+        public long getBytesSaved() {
+            return this.sizeBefore - this.sizeAfter;
+        }
+
+        /**
+         * Returns the number of chunks of the region.
+         *
+         * @return <b>int</b> chunks
+         */
+        public int getChunks() {
+            return this.chunks;
+        }
+
+        /**
+         * Returns the time taken.
+         *
+         * @return <b>long</b> nanoseconds
+         */
+        public long getNanos() {
+            return this.nanos;
+        }
+
+        @Override
+        public String toString() {
+            return this.path + ": " + this.sizeBefore + " -> " + this.sizeAfter + " bytes, " + this.chunks + " chunks, "
+                    + (this.nanos / 1000000) + " ms";
+        }
+    }
+
+    /**
+     * Summary of the compaction of a world directory.
+     */
+    public static final class Report {
+
+        private final List<Result> results;
+        private final Map<Path, IOException> failures;
+        private final long nanos;
+
+        Report(final List<Result> results, final Map<Path, IOException> failures, final long nanos) {
+            this.results = Collections.unmodifiableList(results);
+            this.failures = Collections.unmodifiableMap(failures);
+            this.nanos = nanos;
+        }
+
+        /**
+         * Returns the results of the compacted regions.
+         *
+         * @return <b>List&lt;Result&gt;</b> results (unmodifiable)
+         */
+        public List<Result> getResults() {
+            return this.results;
+        }
+
+        /**
+         * Returns the regions which couldn't be compacted (they are
+         * unchanged).
+         *
+         * @return <b>Map&lt;Path, IOException&gt;</b> failures (unmodifiable)
+         */
+        public Map<Path, IOException> getFailures() {
+            return this.failures;
+        }
+
+        /**
+         * Returns the total size of the compacted regions before the
+         * compaction.
+         *
+         * @return <b>long</b> bytes
+         */
+        public long getSizeBefore() {
+            return this.results.stream().mapToLong(Result::getSizeBefore).sum();
+        }
+
+        /**
+         * Returns the total size of the compacted regions after the
+         * compaction.
+         *
+         * @return <b>long</b> bytes
+         */
+        public long getSizeAfter() {
+            return this.results.stream().mapToLong(Result::getSizeAfter).sum();
+        }
+
+        /**
+         * Returns the total number of saved bytes.
+         *
+         * @return <b>long</b> bytes
+         */
+        public long getBytesSaved() {
+            return this.getSizeBefore() - this.getSizeAfter();
+        }
+
+        /**
+         * Returns the wall-clock time of the whole compaction.
+         *
+         * @return <b>long</b> nanoseconds
+         */
+        public long getNanos() {
+            return this.nanos;
+        }
+
+        @Override
+        public String toString() {
+            return this.results.size() + " regions compacted, " + this.failures.size() + " failed: " + this.getSizeBefore() + " -> "
+                    + this.getSizeAfter() + " bytes (" + this.getBytesSaved() + " saved) in " + (this.nanos / 1000000) + " ms";
+        }
+    }
+
+    /** Whether the chunks are recompressed */
+    private final boolean recompress;
+    /** zlib level of recompressed chunks */
+    private final int level;
+
+    /**
+     * Creates a compactor copying the stored chunk data unchanged.
+     */
+    public RegionCompactor() {
+        this.recompress = false;
+        this.level = Deflater.DEFAULT_COMPRESSION;
+    }
+
+    /**
+     * Creates a compactor recompressing all chunks with zlib.
+     *
+     * @param level <b>int</b> deflate level (see
+     *        {@link SchematicWrapper#saveChangesToFile(Path, int)})
+     *
+     * @throws IllegalArgumentException if the level is invalid
+     */
+    public RegionCompactor(final int level) {
+        SchematicFiles.checkLevel(level);
+        this.recompress = true;
+        this.level = level;
+    }
+
+    /**
+     * Returns the Morton code of the given region-local chunk coordinates.
+     *
+     * @param x Chunk x coordinate in [0, 32)
+     * @param z Chunk z coordinate in [0, 32)
+     * @return Code in [0, 1024) with the bits of x and z interleaved
+     */
+    static int morton(final int x, final int z) {
+        return spread(x) | (spread(z) << 1);
+    }
+
+    private static int spread(final int v) {
+        int r = v & 0x1F;
+        r = (r | (r << 4)) & 0x0F0F;
+        r = (r | (r << 2)) & 0x3333;
+        r = (r | (r << 1)) & 0x5555;
+        return r;
+    }
+
+    /**
+     * Compacts the given region file.
+     *
+     * @param path <b>Path</b> region file
+     * @return <b>Result</b> sizes and time
+     * @throws IOException if the file can't be read or written (the file is
+     *         unchanged)
+     */
+    public Result compact(final Path path) throws IOException {
+        final long start = System.nanoTime();
+        final RegionReader reader = RegionReader.open(path);
+        final long before = reader.getFileSize();
+        if (before == 0) {
+            // Empty files are valid regions without chunks
+            return new Result(path, 0, 0, 0, System.nanoTime() - start);
+        }
+
+        // Collect the stored data in Morton order to know the locations
+        final ByteBuffer[] stored = new ByteBuffer[RegionReader.CHUNKS];
+        final int[] locations = new int[RegionReader.CHUNKS];
+        int sector = 2;
+        int chunks = 0;
+        for (final int index : MORTON_ORDER) {
+            ByteBuffer data = reader.getStored(index);
+            if (data == null) {
+                continue;
+            }
+            if (this.recompress) {
+                data = this.recompress(data);
+            }
+            final int count = ((data.remaining() + 4) + RegionReader.SECTOR_SIZE - 1) / RegionReader.SECTOR_SIZE;
+            if (count > 255) {
+                throw new IOException("Chunk " + (index & 31) + ", " + (index >>> 5) + " too large: " + data.remaining() + " bytes");
+            }
+            stored[index] = data;
+            locations[index] = (sector << 8) | count;
+            sector += count;
+            chunks++;
+        }
+
+        SchematicFiles.writeAtomically(path, out -> {
+            final ByteBuffer header = ByteBuffer.allocate(RegionReader.HEADER_SIZE);
+            for (int i = 0; i < RegionReader.CHUNKS; i++) {
+                header.putInt(i * 4, locations[i]);
+                header.putInt(RegionReader.SECTOR_SIZE + (i * 4), reader.getTimestamp(i));
+            }
+            out.write(header.array());
+            final byte[] buffer = new byte[RegionReader.SECTOR_SIZE];
+            for (final int index : MORTON_ORDER) {
+                final ByteBuffer data = stored[index];
+                if (data != null) {
+                    writeChunk(out, data.duplicate(), (locations[index] & 0xFF) * RegionReader.SECTOR_SIZE, buffer);
+                }
+            }
+        });
+        return new Result(path, before, (long) sector * RegionReader.SECTOR_SIZE, chunks, System.nanoTime() - start);
+    }
+
+    /**
+     * Writes the length, the stored data and the padding of a chunk.
+     */
+    private static void writeChunk(final OutputStream out, final ByteBuffer data, final int size, final byte[] buffer) throws IOException {
+        final int length = data.remaining();
+        out.write(length >>> 24);
+        out.write(length >>> 16);
+        out.write(length >>> 8);
+        out.write(length);
+        while (data.hasRemaining()) {
+            final int n = Math.min(buffer.length, data.remaining());
+            data.get(buffer, 0, n);
+            out.write(buffer, 0, n);
+        }
+        int padding = size - length - 4;
+        Arrays.fill(buffer, (byte) 0);
+        while (padding > 0) {
+            final int n = Math.min(buffer.length, padding);
+            out.write(buffer, 0, n);
+            padding -= n;
+        }
+    }
+
+    /**
+     * Recompresses stored chunk data with zlib.
+     *
+     * @param stored Compression type followed by the compressed data
+     * @return Zlib compression type followed by the recompressed data
+     */
+    private ByteBuffer recompress(final ByteBuffer stored) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(stored.remaining() + 64);
+        bytes.write(RegionReader.ZLIB);
+        final Deflater deflater = new Deflater(this.level);
+        try (final InputStream in = RegionReader.decompress(stored.duplicate());
+                final OutputStream out = new DeflaterOutputStream(bytes, deflater, RegionReader.SECTOR_SIZE)) {
+            final byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+        } finally {
+            deflater.end();
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    /**
+     * Compacts all region files of the given world directory in parallel, one
+     * region per task.
+     *
+     * @param world <b>Path</b> world (or region) directory
+     * @param pool <b>ForkJoinPool</b> pool compacting the regions
+     * @return <b>Report</b> results, failures and total time
+     * @throws IOException if the directory can't be read
+     */
+    public Report compactWorld(final Path world, final ForkJoinPool pool) throws IOException {
+        final long start = System.nanoTime();
+        final List<Path> regions = RegionReader.findRegions(world);
+        final List<ForkJoinTask<Result>> tasks = new ArrayList<>(regions.size());
+        for (final Path region : regions) {
+            tasks.add(pool.submit(() -> this.compact(region)));
+        }
+
+        final List<Result> results = new ArrayList<>(regions.size());
+        final Map<Path, IOException> failures = new LinkedHashMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            try {
+                results.add(tasks.get(i).get());
+            } catch (final ExecutionException e) {
+                // The pool wraps checked exceptions (and may copy them)
+                Throwable cause = e.getCause();
+                while ((cause != null) && !(cause instanceof IOException)) {
+                    cause = cause.getCause();
+                }
+                if (cause == null) {
+                    throw new IllegalStateException("Compacting " + regions.get(i) + " failed", e.getCause());
+                }
+                failures.put(regions.get(i), (IOException) cause);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", e);
+            }
+        }
+        return new Report(results, failures, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,432 @@
+package com.tree_bit.rcdl.schematic;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.jnbt.CompoundTag;
+import org.jnbt.NBTInputStream;
+import org.jnbt.Tag;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reader of a Minecraft Anvil region file ({@code r.<x>.<z>.mca}).
+ *
+ * <p>
+ * A region file contains up to 32x32 chunks. It starts with a header of two
+ * sectors (4 KiB each): the location table (3 bytes sector offset, 1 byte
+ * sector count per chunk) and the table of the last modification
+ * timestamps. Each chunk starts at its sector with the length of the data
+ * (4 bytes), the compression type (1 byte: 1 gzip, 2 zlib, 3 uncompressed)
+ * and the compressed NBT data.
+ *
+ * <p>
+ * The file is memory-mapped and only the header is parsed when it is opened.
+ * Chunks are decompressed on demand, so reading a few chunks of a region
+ * only touches the pages of these chunks. The mapping stays valid after the
+ * file channel is closed and is released by the garbage collector.
+ *
+ * <p>
+ * Chunk coordinates may be given relative to the region (0 - 31) or as
+ * world chunk coordinates, only their lower five bits are used.
+ *
+ * <p>
+ * The reader is thread-safe. The header is parsed only once, so a reader
+ * doesn't see chunks moved by later changes of the file. Open a new reader
+ * afterwards.
+ */
+public final class RegionReader {
+
+    /** Size of a sector */
+    static final int SECTOR_SIZE = 4096;
+
+    /** Number of chunks of a region */
+    static final int CHUNKS = 1024;
+
+    /** Size of the header (locations and timestamps) */
+    static final int HEADER_SIZE = 2 * SECTOR_SIZE;
+
+    /** Compression type of gzip compressed chunks */
+    static final int GZIP = 1;
+
+    /** Compression type of zlib compressed chunks */
+    static final int ZLIB = 2;
+
+    /** Compression type of uncompressed chunks */
+    static final int UNCOMPRESSED = 3;
+
+    /** Flag of chunks stored in an external file */
+    private static final int EXTERNAL = 0x80;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /** Names of region files (groups: region x and z) */
+    static final Pattern REGION_NAME = Pattern.compile("r\\.(-?\\d+)\\.(-?\\d+)\\.mca");
+
+    private final Path path;
+    private final ByteBuffer map;
+    private final int[] locations = new int[CHUNKS];
+    private final int[] timestamps = new int[CHUNKS];
+
+    private RegionReader(final Path path, final ByteBuffer map) throws IOException {
+        this.path = path;
+        this.map = map;
+        if (map.capacity() == 0) {
+            // Empty file: no chunks
+            return;
+        }
+        if (map.capacity() < HEADER_SIZE) {
+            throw new IOException("Truncated region header: " + path);
+        }
+        final ByteBuffer header = map.duplicate();
+        for (int i = 0; i < CHUNKS; i++) {
+            this.locations[i] = header.getInt(i * 4);
+            this.timestamps[i] = header.getInt(SECTOR_SIZE + (i * 4));
+        }
+    }
+
+    /**
+     * Opens the given region file.
+     *
+     * @param path <b>Path</b> region file
+     * @return <b>RegionReader</b> reader
+     * @throws IOException if the file can't be mapped or the header is
+     *         truncated
+     */
+    public static RegionReader open(final Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new RegionReader(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Returns the name of the region file containing the given chunk.
+     *
+     * @param chunkX <b>int</b> world chunk x coordinate
+     * @param chunkZ <b>int</b> world chunk z coordinate
+     * @return <b>String</b> file name {@code r.<x>.<z>.mca}
+     */
+    public static String fileName(final int chunkX, final int chunkZ) {
+        return "r." + (chunkX >> 5) + "." + (chunkZ >> 5) + ".mca";
+    }
+
+    /**
+     * Finds all region files in the given world directory (including the
+     * region directories of other dimensions).
+     *
+     * @param world <b>Path</b> world (or region) directory
+     * @return <b>List&lt;Path&gt;</b> region files sorted by path
+     * @throws IOException if the directory can't be read
+     */
+    public static List<Path> findRegions(final Path world) throws IOException {
+        try (final Stream<Path> files = Files.walk(world)) {
+            return files.filter(p -> REGION_NAME.matcher(p.getFileName().toString()).matches() && Files.isRegularFile(p))
+                    .sorted(Comparator.naturalOrder()).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Returns the index of the given chunk in the header tables.
+     *
+     * @param chunkX Chunk x coordinate
+     * @param chunkZ Chunk z coordinate
+     * @return Index in [0, 1024)
+     */
+    static int index(final int chunkX, final int chunkZ) {
+        return (chunkX & 31) | ((chunkZ & 31) << 5);
+    }
+
+    /**
+     * Returns the path of the region file.
+     *
+     * @return <b>Path</b> file
+     */
+    public Path getPath() {
+        return this.path;
+    }
+
+    /**
+     * Returns the size of the region file.
+     *
+     * @return <b>long</b> bytes
+     */
+    public long getFileSize() {
+        return this.map.capacity();
+    }
+
+    /**
+     * Returns whether the region contains the given chunk.
+     *
+     * @param chunkX <b>int</b> chunk x coordinate
+     * @param chunkZ <b>int</b> chunk z coordinate
+     * @return <b>boolean</b> true if the chunk exists
+     */
+    public boolean hasChunk(final int chunkX, final int chunkZ) {
+        return this.locations[index(chunkX, chunkZ)] != 0;
+    }
+
+    /**
+     * Returns the number of chunks in the region.
+     *
+     * @return <b>int</b> number of chunks
+     */
+    public int getChunkCount() {
+        int count = 0;
+        for (final int location : this.locations) {
+            if (location != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the timestamp of the last modification of the given chunk.
+     *
+     * @param chunkX <b>int</b> chunk x coordinate
+     * @param chunkZ <b>int</b> chunk z coordinate
+     * @return <b>int</b> seconds since the epoch, 0 if unknown
+     */
+    public int getTimestamp(final int chunkX, final int chunkZ) {
+        return this.timestamps[index(chunkX, chunkZ)];
+    }
+
+    /**
+     * Returns the first sector of the given chunk.
+     *
+     * @param chunkX <b>int</b> chunk x coordinate
+     * @param chunkZ <b>int</b> chunk z coordinate
+     * @return <b>int</b> sector offset, 0 if the chunk doesn't exist
+     */
+    public int getSectorOffset(final int chunkX, final int chunkZ) {
+        return this.locations[index(chunkX, chunkZ)] >>> 8;
+    }
+
+    /**
+     * Returns the number of sectors of the given chunk.
+     *
+     * @param chunkX <b>int</b> chunk x coordinate
+     * @param chunkZ <b>int</b> chunk z coordinate
+     * @return <b>int</b> sector count, 0 if the chunk doesn't exist
+     */
+    public int getSectorCount(final int chunkX, final int chunkZ) {
+        return this.locations[index(chunkX, chunkZ)] & 0xFF;
+    }
+
+    /**
+     * Returns the location table entry of the chunk with the given index.
+     *
+     * @param index Index in [0, 1024)
+     * @return Sector offset {@code << 8 |} sector count
+     */
+    int getLocation(final int index) {
+        return this.locations[index];
+    }
+
+    /**
+     * Returns the timestamp of the chunk with the given index.
+     *
+     * @param index Index in [0, 1024)
+     * @return Timestamp
+     */
+    int getTimestamp(final int index) {
+        return this.timestamps[index];
+    }
+
+    /**
+     * Returns the stored data of the chunk with the given index.
+     *
+     * @param index Index in [0, 1024)
+     * @return Buffer from the compression type to the end of the data or null
+     *         if the chunk doesn't exist
+     * @throws IOException if the location or length is corrupt or the chunk
+     *         is stored externally
+     */
+    @Nullable
+    ByteBuffer getStored(final int index) throws IOException {
+        final int location = this.locations[index];
+        if (location == 0) {
+            return null;
+        }
+        final long start = (long) (location >>> 8) * SECTOR_SIZE;
+        final long end = start + ((long) (location & 0xFF) * SECTOR_SIZE);
+        // The last chunk may be unpadded (the file ends behind its data)
+        if ((start < HEADER_SIZE) || ((start + 4) > this.map.capacity()) || (end == start)) {
+            throw new IOException("Invalid location of chunk " + (index & 31) + ", " + (index >>> 5) + " in " + this.path);
+        }
+        final ByteBuffer chunk = this.map.duplicate();
+        final int length = chunk.getInt((int) start);
+        if ((length < 1) || ((start + 4 + length) > Math.min(end, this.map.capacity()))) {
+            throw new IOException("Invalid length " + length + " of chunk " + (index & 31) + ", " + (index >>> 5) + " in " + this.path);
+        }
+        if ((chunk.get((int) start + 4) & EXTERNAL) != 0) {
+            throw new IOException("External chunk files are not supported: " + (index & 31) + ", " + (index >>> 5) + " in " + this.path);
+        }
+        chunk.position((int) start + 4);
+        chunk.limit((int) start + 4 + length);
+        return chunk.slice();
+    }
+
+    /**
+     * Opens a stream of the decompressed NBT data of the given chunk.
+     *
+     * @param chunkX <b>int</b> chunk x coordinate
+     * @param chunkZ <b>int</b> chunk z coordinate
+     * @return <b>InputStream</b> decompressed data or null if the chunk
+     *         doesn't exist
+     * @throws IOException if the chunk is corrupt or uses an unknown
+     *         compression
+     */
+    @Nullable
+    public InputStream openChunk(final int chunkX, final int chunkZ) throws IOException {
+        final ByteBuffer stored = this.getStored(index(chunkX, chunkZ));
+        return (stored == null) ? null : decompress(stored);
+    }
+
+    /**
+     * Reads the NBT data of the given chunk.
+     *
+     * @param chunkX <b>int</b> chunk x coordinate
+     * @param chunkZ <b>int</b> chunk z coordinate
+     * @return <b>CompoundTag</b> root tag of the chunk or null if the chunk
+     *         doesn't exist
+     * @throws IOException if the chunk is corrupt
+     */
+    @Nullable
+    public CompoundTag readChunk(final int chunkX, final int chunkZ) throws IOException {
+        final int index = index(chunkX, chunkZ);
+        final ByteBuffer stored = this.getStored(index);
+        return (stored == null) ? null : this.parseChunk(index, stored);
+    }
+
+    /**
+     * Decompresses and parses the stored data of a chunk.
+     *
+     * @param index Chunk index in the region
+     * @param stored Stored data (see {@link #getStored(int)})
+     * @return Root tag of the chunk
+     * @throws IOException if the chunk is corrupt, also if JNBT fails with a
+     *         runtime exception (e.g. a negative array length)
+     */
+    CompoundTag parseChunk(final int index, final ByteBuffer stored) throws IOException {
+        final String chunk = "Chunk " + (index & 31) + ", " + (index >>> 5);
+        try (final NBTInputStream nbt = new NBTInputStream(decompress(stored), false)) {
+            final Tag root;
+            try {
+                root = nbt.readTag();
+            } catch (final RuntimeException e) {
+                throw new IOException(chunk + " is corrupt in " + this.path, e);
+            }
+            if (!(root instanceof CompoundTag)) {
+                throw new IOException(chunk + " isn't a compound tag in " + this.path);
+            }
+            return (CompoundTag) root;
+        }
+    }
+
+    /**
+     * Opens a streaming reader of the NBT data of the given chunk.
+     *
+     * @param chunkX <b>int</b> chunk x coordinate
+     * @param chunkZ <b>int</b> chunk z coordinate
+     * @return <b>NBTReader</b> reader (has to be closed) or null if the chunk
+     *         doesn't exist
+     * @throws IOException if the chunk is corrupt
+     */
+    @Nullable
+    public NBTReader openReader(final int chunkX, final int chunkZ) throws IOException {
+        final InputStream in = this.openChunk(chunkX, chunkZ);
+        return (in == null) ? null : new NBTReader(in, false);
+    }
+
+    /**
+     * Decompresses stored chunk data.
+     *
+     * @param stored Buffer starting with the compression type
+     * @return Decompressed stream
+     * @throws IOException if the compression is unknown
+     */
+    static InputStream decompress(final ByteBuffer stored) throws IOException {
+        final int type = stored.get();
+        final InputStream in = new ByteBufferInputStream(stored);
+        switch (type) {
+            case GZIP:
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case ZLIB:
+                return new InflaterInputStream(in, new Inflater(), BUFFER_SIZE) {
+
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            this.inf.end();
+                        }
+                    }
+                };
+            case UNCOMPRESSED:
+                return in;
+            default:
+                throw new IOException("Unknown chunk compression: " + type);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RegionReader[" + this.path + "]";
+    }
+
+    /**
+     * Stream reading the remaining bytes of a buffer.
+     */
+    static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? (this.buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            final int n = Math.min(len, this.buffer.remaining());
+            this.buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) {
+            final int skipped = (int) Math.max(0, Math.min(n, this.buffer.remaining()));
+            this.buffer.position(this.buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return this.buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.tree_bit.rcdl.schematic;
+
+import org.jnbt.CompoundTag;
+import org.jnbt.NBTOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writer of a Minecraft Anvil region file (see {@link RegionReader} for the
+ * format).
+ *
+ * <p>
+ * The writer tracks the used sectors of the file from its location table. A
+ * changed chunk is written in place if it fits into its sectors, otherwise
+ * into the first free run of sectors large enough or appended to the end of
+ * the file. Chunks are written immediately, the header is only written by
+ * {@link #commit()}: The chunk data is forced to the disk first, then both
+ * tables are written in one write and forced again. So the header on the
+ * disk never points to sectors whose new data isn't on the disk yet, and a
+ * bulk edit of many chunks costs two {@code fsync}s per region.
+ *
+ * <p>
+ * Sectors referenced by the last committed header are not reused before the
+ * next commit. Until then the header on the disk still points to the intact
+ * old data of moved and deleted chunks. Only chunks updated in place are
+ * overwritten directly (like Minecraft does). Free sectors at the end of the
+ * file are truncated on commit.
+ *
+ * <p>
+ * Like Minecraft, the writer accepts files whose length isn't a multiple of
+ * the sector size (e.g. an unpadded last chunk) and pads them with zeros when
+ * they are opened.
+ *
+ * <p>
+ * The writer is not thread-safe. Readers opened before a commit don't see
+ * the changes.
+ */
+public final class RegionWriter implements Closeable {
+
+    /** Maximum number of sectors of a chunk (1 byte in the location table) */
+    private static final int MAX_SECTORS = 255;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int level;
+
+    private final int[] locations = new int[RegionReader.CHUNKS];
+    private final int[] timestamps = new int[RegionReader.CHUNKS];
+    /** Locations of the header on the disk */
+    private final int[] committed = new int[RegionReader.CHUNKS];
+    /** Sectors used by the current or the committed locations */
+    private final BitSet used = new BitSet();
+    /** Number of sectors of the file */
+    private int sectors;
+    private boolean dirty;
+    /** Whether chunk data was written since the last commit */
+    private boolean unsynced;
+
+    private RegionWriter(final Path path, final FileChannel channel, final int level) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.level = level;
+
+        final long size = channel.size();
+        if (size == 0) {
+            // New region: empty header
+            this.write(ByteBuffer.allocate(RegionReader.HEADER_SIZE), 0);
+            this.sectors = 2;
+            this.dirty = true;
+        } else if (size < RegionReader.HEADER_SIZE) {
+            throw new IOException("Truncated region header: " + path);
+        } else {
+            final ByteBuffer header = ByteBuffer.allocate(RegionReader.HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Truncated region header: " + path);
+                }
+            }
+            for (int i = 0; i < RegionReader.CHUNKS; i++) {
+                this.locations[i] = header.getInt(i * 4);
+                this.timestamps[i] = header.getInt(RegionReader.SECTOR_SIZE + (i * 4));
+            }
+            this.sectors = (int) ((size + RegionReader.SECTOR_SIZE - 1) / RegionReader.SECTOR_SIZE);
+        }
+        final int fileSectors = this.sectors;
+        System.arraycopy(this.locations, 0, this.committed, 0, RegionReader.CHUNKS);
+
+        this.used.set(0, 2);
+        for (int i = 0; i < RegionReader.CHUNKS; i++) {
+            final int location = this.locations[i];
+            if (location != 0) {
+                final int offset = location >>> 8;
+                final int count = location & 0xFF;
+                // The sectors of the last chunk may be cut off
+                if ((offset < 2) || (count == 0) || (offset >= fileSectors)) {
+                    throw new IOException("Invalid location of chunk " + (i & 31) + ", " + (i >>> 5) + " in " + path);
+                }
+                this.used.set(offset, offset + count);
+                this.sectors = Math.max(this.sectors, offset + count);
+            }
+        }
+
+        // Pad to whole sectors
+        final long padded = (long) this.sectors * RegionReader.SECTOR_SIZE;
+        if ((size != 0) && (size < padded)) {
+            this.write(ByteBuffer.allocate((int) (padded - size)), size);
+            this.unsynced = true;
+        }
+    }
+
+    /**
+     * Opens the given region file for writing. A missing file is created.
+     * Chunks are compressed with zlib at the default level.
+     *
+     * @param path <b>Path</b> region file
+     * @return <b>RegionWriter</b> writer
+     * @throws IOException if the file can't be opened or the header is
+     *         corrupt
+     */
+    public static RegionWriter open(final Path path) throws IOException {
+        return open(path, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Opens the given region file for writing. A missing file is created.
+     *
+     * @param path <b>Path</b> region file
+     * @param level <b>int</b> zlib level of written chunks (see
+     *        {@link SchematicWrapper#saveChangesToFile(Path, int)})
+     * @return <b>RegionWriter</b> writer
+     * @throws IOException if the file can't be opened or the header is
+     *         corrupt
+     *
+     * @throws IllegalArgumentException if the level is invalid
+     */
+    public static RegionWriter open(final Path path, final int level) throws IOException {
+        SchematicFiles.checkLevel(level);
+        final Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new RegionWriter(path, channel, level);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the path of the region file.
+     *
+     * @return <b>Path</b> file
+     */
+    public Path getPath() {
+        return this.path;
+    }
+
+    /**
+     * Returns whether the region contains the given chunk (including
+     * uncommitted changes).
+     *
+     * @param chunkX <b>int</b> chunk x coordinate
+     * @param chunkZ <b>int</b> chunk z coordinate
+     * @return <b>boolean</b> true if the chunk exists
+     */
+    public boolean hasChunk(final int chunkX, final int chunkZ) {
+        return this.locations[RegionReader.index(chunkX, chunkZ)] != 0;
+    }
+
+    /**
+     * Returns the first sector of the given chunk (including uncommitted
+     * changes).
+     *
+     * @param chunkX <b>int</b> chunk x coordinate
+     * @param chunkZ <b>int</b> chunk z coordinate
+     * @return <b>int</b> sector offset, 0 if the chunk doesn't exist
+     */
+    public int getSectorOffset(final int chunkX, final int chunkZ) {
+        return this.locations[RegionReader.index(chunkX, chunkZ)] >>> 8;
+    }
+
+    /**
+     * Returns the number of sectors of the file.
+     *
+     * @return <b>int</b> sectors (including the header)
+     */
+    public int getSectorCount() {
+        return this.sectors;
+    }
+
+    /**
+     * Compresses and writes the given chunk. The header is updated by the
+     * next {@link #commit()}.
+     *
+     * @param chunkX <b>int</b> chunk x coordinate
+     * @param chunkZ <b>int</b> chunk z coordinate
+     * @param chunk <b>CompoundTag</b> root tag of the chunk
+     * @throws IOException if the chunk can't be written or is larger than
+     *         255 sectors (about 1 MB)
+     */
+    public void writeChunk(final int chunkX, final int chunkZ, final CompoundTag chunk) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(RegionReader.SECTOR_SIZE);
+        bytes.write(RegionReader.ZLIB);
+        final Deflater deflater = new Deflater(this.level);
+        try (final NBTOutputStream nbt = new NBTOutputStream(new DeflaterOutputStream(bytes, deflater), false)) {
+            nbt.writeTag(chunk);
+        } finally {
+            deflater.end();
+        }
+        this.writeStored(RegionReader.index(chunkX, chunkZ), ByteBuffer.wrap(bytes.toByteArray()), (int) (System.currentTimeMillis() / 1000));
+    }
+
+    /**
+     * Writes stored (compressed) chunk data. The header is updated by the next
+     * {@link #commit()}.
+     *
+     * @param index Index of the chunk in [0, 1024)
+     * @param stored Compression type followed by the compressed data (the
+     *        remaining bytes are written)
+     * @param timestamp Timestamp of the chunk
+     * @throws IOException if the chunk can't be written or is too large
+     */
+    void writeStored(final int index, final ByteBuffer stored, final int timestamp) throws IOException {
+        final int length = stored.remaining();
+        final int count = ((length + 4) + RegionReader.SECTOR_SIZE - 1) / RegionReader.SECTOR_SIZE;
+        if (count > MAX_SECTORS) {
+            throw new IOException("Chunk " + (index & 31) + ", " + (index >>> 5) + " too large: " + length + " bytes");
+        }
+
+        final int old = this.locations[index];
+        final int oldOffset = old >>> 8;
+        final int oldCount = old & 0xFF;
+        final int offset;
+        if ((old != 0) && (count <= oldCount)) {
+            // In place, release the tail
+            offset = oldOffset;
+            this.release(index, oldOffset + count, oldOffset + oldCount);
+        } else {
+            if (old != 0) {
+                this.release(index, oldOffset, oldOffset + oldCount);
+            }
+            offset = this.allocate(count);
+        }
+
+        final ByteBuffer sectorData = ByteBuffer.allocate(count * RegionReader.SECTOR_SIZE);
+        sectorData.putInt(length).put(stored.duplicate());
+        sectorData.clear();
+        this.write(sectorData, (long) offset * RegionReader.SECTOR_SIZE);
+        this.unsynced = true;
+
+        this.used.set(offset, offset + count);
+        this.locations[index] = (offset << 8) | count;
+        this.timestamps[index] = timestamp;
+        this.dirty = true;
+    }
+
+    /**
+     * Deletes the given chunk. The header is updated by the next
+     * {@link #commit()}.
+     *
+     * @param chunkX <b>int</b> chunk x coordinate
+     * @param chunkZ <b>int</b> chunk z coordinate
+     * @return <b>boolean</b> true if the chunk existed
+     */
+    public boolean deleteChunk(final int chunkX, final int chunkZ) {
+        final int index = RegionReader.index(chunkX, chunkZ);
+        final int old = this.locations[index];
+        if (old == 0) {
+            return false;
+        }
+        this.release(index, old >>> 8, (old >>> 8) + (old & 0xFF));
+        this.locations[index] = 0;
+        this.timestamps[index] = 0;
+        this.dirty = true;
+        return true;
+    }
+
+    /**
+     * Releases sectors of a chunk. Sectors of the committed location stay
+     * used until the next commit.
+     */
+    private void release(final int index, final int from, final int to) {
+        final int location = this.committed[index];
+        final int committedFrom = location >>> 8;
+        final int committedTo = committedFrom + (location & 0xFF);
+        for (int sector = from; sector < to; sector++) {
+            if ((location == 0) || (sector < committedFrom) || (sector >= committedTo)) {
+                this.used.clear(sector);
+            }
+        }
+    }
+
+    /**
+     * Finds the first free run of sectors or appends them.
+     *
+     * @param count Number of sectors
+     * @return First sector
+     */
+    private int allocate(final int count) {
+        int start = this.used.nextClearBit(2);
+        while (start < this.sectors) {
+            final int end = this.used.nextSetBit(start);
+            if ((end < 0) || (end >= this.sectors) || ((end - start) >= count)) {
+                break;
+            }
+            start = this.used.nextClearBit(end);
+        }
+        this.sectors = Math.max(this.sectors, start + count);
+        return start;
+    }
+
+    /**
+     * Forces the written chunks to the disk, then writes the header and
+     * forces it to the disk. Does nothing if nothing changed since the last
+     * commit.
+     *
+     * @throws IOException if the header can't be written
+     */
+    public void commit() throws IOException {
+        if (!this.dirty) {
+            return;
+        }
+        final ByteBuffer header = ByteBuffer.allocate(RegionReader.HEADER_SIZE);
+        for (int i = 0; i < RegionReader.CHUNKS; i++) {
+            header.putInt(i * 4, this.locations[i]);
+            header.putInt(RegionReader.SECTOR_SIZE + (i * 4), this.timestamps[i]);
+        }
+        // The header mustn't reach the disk before the data it points to
+        if (this.unsynced) {
+            this.channel.force(false);
+            this.unsynced = false;
+        }
+        this.write(header, 0);
+        this.channel.force(true);
+        this.dirty = false;
+
+        // The old locations are no longer referenced
+        System.arraycopy(this.locations, 0, this.committed, 0, RegionReader.CHUNKS);
+        this.used.clear();
+        this.used.set(0, 2);
+        for (final int location : this.locations) {
+            if (location != 0) {
+                this.used.set(location >>> 8, (location >>> 8) + (location & 0xFF));
+            }
+        }
+        final int end = Math.max(2, this.used.length());
+        if (end < this.sectors) {
+            this.sectors = end;
+            this.channel.truncate((long) end * RegionReader.SECTOR_SIZE);
+        }
+    }
+
+    /**
+     * Commits the changes and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (this.channel.isOpen()) {
+                this.commit();
+            }
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    private void write(final ByteBuffer buffer, final long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            pos += this.channel.write(buffer, pos);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RegionWriter[" + this.path + ", sectors=" + this.sectors + ", chunks="
+                + Arrays.stream(this.locations).filter(l -> l != 0).count() + "]";
+    }
+}
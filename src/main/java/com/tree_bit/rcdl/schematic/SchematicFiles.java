@@ -0,0 +1,274 @@
+package com.tree_bit.rcdl.schematic;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * File helpers for saving schematics.
+ */
+final class SchematicFiles {
+
+    /** Size of the direct buffers of the file channel */
+    static final int BUFFER_SIZE = 1 << 20;
+
+    /** Maximum number of idle direct buffers kept for reuse */
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    /** Size of the deflater output buffer */
+    private static final int DEFLATE_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Idle direct buffers (allocating direct buffers is expensive). A buffer
+     * is only taken while a file is written, so pool workers don't pin native
+     * memory between saves.
+     */
+    private static final BlockingQueue<ByteBuffer> buffers = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * Writes the content of a file to a stream.
+     */
+    interface ContentWriter {
+
+        /**
+         * Writes the content to the given stream. The stream may be closed by
+         * the writer.
+         *
+         * @param out Stream
+         * @throws IOException if writing fails
+         */
+        void write(OutputStream out) throws IOException;
+    }
+
+    private SchematicFiles() {}
+
+    /**
+     * Writes a file atomically: The content is written to a temporary file in
+     * the same directory, forced to the disk and then renamed to the target.
+     * So the target is either unchanged or completely written, even if the
+     * process crashes. A new target gets the default permissions (umask), an
+     * existing target keeps its POSIX permissions. After the rename the
+     * directory is forced as well, so the rename survives a crash (best
+     * effort, some platforms can't open directories).
+     *
+     * @param target Target file (parent directories are created)
+     * @param writer Writer of the content
+     * @throws IOException if writing fails (the target is unchanged)
+     */
+    static void writeAtomically(final Path target, final ContentWriter writer) throws IOException {
+        final Path absolute = target.toAbsolutePath();
+        final Path dir = absolute.getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        final Path temp = createSibling(absolute);
+        try {
+            try (final FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                try (final OutputStream out = new ChannelOutputStream(channel)) {
+                    writer.write(out);
+                }
+                channel.force(true);
+            }
+            // After writing, the permissions may be read-only
+            copyPermissions(absolute, temp);
+            try {
+                Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        if (dir != null) {
+            forceDirectory(dir);
+        }
+    }
+
+    /**
+     * Forces the entries of a directory (e.g. a rename) to the disk. Does
+     * nothing if the platform can't open directories.
+     *
+     * @param dir Directory
+     */
+    private static void forceDirectory(final Path dir) {
+        try (final FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (final IOException e) {
+            // Not supported (e.g. Windows), the file itself is complete
+        }
+    }
+
+    /**
+     * Creates a new empty temporary file next to the target. Unlike
+     * {@link Files#createTempFile(Path, String, String, java.nio.file.attribute.FileAttribute...)}
+     * the file gets the default permissions instead of owner-only ones.
+     *
+     * @param target Absolute target file
+     * @return Temporary file
+     * @throws IOException if the file can't be created
+     */
+    private static Path createSibling(final Path target) throws IOException {
+        while (true) {
+            final String name = "." + target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong() >>> 1) + ".tmp";
+            try {
+                return Files.createFile(target.resolveSibling(name));
+            } catch (final FileAlreadyExistsException e) {
+                // Try another name
+            }
+        }
+    }
+
+    /**
+     * Copies the POSIX permissions of an existing file. Does nothing if the
+     * source doesn't exist or the file system doesn't support POSIX
+     * permissions.
+     *
+     * @param source Source file
+     * @param target Target file
+     * @throws IOException if the permissions can't be read or set
+     */
+    static void copyPermissions(final Path source, final Path target) throws IOException {
+        final PosixFileAttributeView view = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        if (view == null) {
+            return;
+        }
+        final Set<PosixFilePermission> permissions;
+        try {
+            permissions = view.readAttributes().permissions();
+        } catch (final NoSuchFileException e) {
+            return;
+        }
+        Files.setPosixFilePermissions(target, permissions);
+    }
+
+    /**
+     * Creates a gzip stream with the given deflate level.
+     *
+     * @param out Stream receiving the compressed data
+     * @param level Deflate level (0-9 or {@link Deflater#DEFAULT_COMPRESSION})
+     * @return Gzip stream
+     * @throws IOException if the header can't be written
+     *
+     * @throws IllegalArgumentException if the level is invalid
+     */
+    static OutputStream gzip(final OutputStream out, final int level) throws IOException {
+        checkLevel(level);
+        return new GZIPOutputStream(out, DEFLATE_BUFFER_SIZE) {
+            {
+                this.def.setLevel(level);
+            }
+        };
+    }
+
+    /**
+     * Checks the given deflate level.
+     *
+     * @param level Deflate level
+     *
+     * @throws IllegalArgumentException if the level isn't in [0, 9] or
+     *         {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    static void checkLevel(final int level) {
+        if (((level < Deflater.NO_COMPRESSION) || (level > Deflater.BEST_COMPRESSION)) && (level != Deflater.DEFAULT_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid deflate level: " + level);
+        }
+    }
+
+    /**
+     * Output stream writing to a file channel through a large direct buffer.
+     * Closing the stream flushes the buffer and returns it to the pool but
+     * doesn't close the channel.
+     */
+    private static final class ChannelOutputStream extends OutputStream {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private boolean closed;
+
+        ChannelOutputStream(final FileChannel channel) {
+            this.channel = channel;
+            final ByteBuffer idle = buffers.poll();
+            this.buffer = (idle == null) ? ByteBuffer.allocateDirect(BUFFER_SIZE) : idle;
+            this.buffer.clear();
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            this.ensureOpen();
+            if (!this.buffer.hasRemaining()) {
+                this.drain();
+            }
+            this.buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            this.ensureOpen();
+            int offset = off;
+            int left = len;
+            while (left > 0) {
+                if (!this.buffer.hasRemaining()) {
+                    this.drain();
+                }
+                final int n = Math.min(left, this.buffer.remaining());
+                this.buffer.put(b, offset, n);
+                offset += n;
+                left -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.ensureOpen();
+            this.drain();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (this.closed) {
+                return;
+            }
+            try {
+                this.drain();
+            } finally {
+                this.closed = true;
+                // Dropped if the pool is full
+                this.buffer.clear();
+                buffers.offer(this.buffer);
+            }
+        }
+
+        /**
+         * The buffer may already be used by another stream after closing.
+         */
+        private void ensureOpen() throws IOException {
+            if (this.closed) {
+                throw new IOException("Stream closed");
+            }
+        }
+
+        private void drain() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.tree_bit.rcdl.schematic;
+
+import com.tree_bit.rcdl.schematic.NBTReader.Event;
+
+import com.google.common.base.Objects;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.jnbt.NBTConstants;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Header information of a schematic file for catalog scans.
+ *
+ * <p>
+ * {@link #read(Path)} decompresses the file only until the dimensions, the
+ * materials, the number of tile entities and the positions of the block and
+ * data arrays are found. Array payloads are skipped without copying them.
+ *
+ * <p>
+ * The offsets of the block and data arrays refer to the <b>uncompressed</b>
+ * NBT stream. They can be used to read parts of the arrays later (e.g. from
+ * an uncompressed copy of the file).
+ */
+public final class SchematicHeader {
+
+    private static final String TILE_ENTITIES = "TileEntities";
+
+    private final short width;
+    private final short height;
+    private final short length;
+    @Nullable
+    private final String materials;
+    private final int tileEntityCount;
+    private final long blocksOffset;
+    private final long dataOffset;
+    private final int blocksLength;
+
+    private SchematicHeader(final Builder b) {
+        this.width = b.width;
+        this.height = b.height;
+        this.length = b.length;
+        this.materials = b.materials;
+        this.tileEntityCount = b.tileEntityCount;
+        this.blocksOffset = b.blocksOffset;
+        this.dataOffset = b.dataOffset;
+        this.blocksLength = b.blocksLength;
+    }
+
+    /**
+     * Reads the header of the given schematic file.
+     *
+     * @param path <b>Path</b> schematic file
+     * @return <b>SchematicHeader</b> header
+     * @throws IOException if the file can't be read, is malformed or has no
+     *         dimensions
+     */
+    public static SchematicHeader read(final Path path) throws IOException {
+        try (final InputStream in = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads the header of a gzip compressed schematic stream. The stream
+     * isn't closed.
+     *
+     * @param in <b>InputStream</b> compressed schematic
+     * @return <b>SchematicHeader</b> header
+     * @throws IOException if the stream can't be read, is malformed or has no
+     *         dimensions
+     */
+    // Don't close the given stream
+    @SuppressWarnings("resource")
+    public static SchematicHeader read(final InputStream in) throws IOException {
+        final NBTReader reader = new NBTReader(in);
+        if (reader.next() != Event.START_COMPOUND) {
+            throw new IOException("Schematic root is no compound tag");
+        }
+
+        final Builder b = new Builder();
+        while (!b.isComplete()) {
+            final Event event = reader.next();
+            if (event == Event.END_COMPOUND) {
+                break;
+            }
+            final String name = reader.getName();
+            switch (event) {
+                case VALUE:
+                    b.value(reader, name);
+                    break;
+                case BYTE_ARRAY:
+                    if (name.equals(ESchematicFields.BLOCKS.getKey())) {
+                        b.blocksOffset = reader.getPayloadOffset();
+                        b.blocksLength = reader.getArrayLength();
+                    } else if (name.equals(ESchematicFields.DATA.getKey())) {
+                        b.dataOffset = reader.getPayloadOffset();
+                    }
+                    // Payload is skipped by the next call
+                    break;
+                case START_LIST:
+                    if (name.equals(TILE_ENTITIES)) {
+                        b.tileEntityCount = reader.getArrayLength();
+                        b.tileEntitiesFound = true;
+                    }
+                    reader.skipChildren();
+                    break;
+                default:
+                    reader.skipChildren();
+                    break;
+            }
+        }
+        if ((b.width < 0) || (b.height < 0) || (b.length < 0)) {
+            throw new IOException("Schematic has no dimensions");
+        }
+        return new SchematicHeader(b);
+    }
+
+    /**
+     * Returns the width of the schematic.
+     *
+     * @return <b>short</b> width
+     */
+    public short getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Returns the height of the schematic.
+     *
+     * @return <b>short</b> height
+     */
+    public short getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Returns the length of the schematic.
+     *
+     * @return <b>short</b> length
+     */
+    public short getLength() {
+        return this.length;
+    }
+
+    /**
+     * Returns the materials of the schematic (e.g. 'Alpha').
+     *
+     * @return <b>Optional&lt;String&gt;</b> materials, empty if the file has
+     *         no materials
+     */
+    public Optional<String> getMaterials() {
+        return Optional.ofNullable(this.materials);
+    }
+
+    /**
+     * Returns the number of tile entities.
+     *
+     * @return <b>int</b> number of tile entities (0 if the file has no tile
+     *         entity list)
+     */
+    public int getTileEntityCount() {
+        return this.tileEntityCount;
+    }
+
+    /**
+     * Returns the offset of the first block id in the uncompressed NBT
+     * stream.
+     *
+     * @return <b>long</b> offset or -1 if the file has no blocks
+     */
+    public long getBlocksOffset() {
+        return this.blocksOffset;
+    }
+
+    /**
+     * Returns the offset of the first data value in the uncompressed NBT
+     * stream.
+     *
+     * @return <b>long</b> offset or -1 if the file has no data values
+     */
+    public long getDataOffset() {
+        return this.dataOffset;
+    }
+
+    /**
+     * Returns the length of the block array.
+     *
+     * @return <b>int</b> number of blocks or -1 if the file has no blocks
+     */
+    public int getBlocksLength() {
+        return this.blocksLength;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this).add("width", this.width).add("height", this.height).add("length", this.length)
+                .add("materials", this.materials).add("tileEntities", this.tileEntityCount).add("blocksOffset", this.blocksOffset)
+                .add("dataOffset", this.dataOffset).toString();
+    }
+
+    /**
+     * Collects the fields while scanning.
+     */
+    private static final class Builder {
+
+        short width = -1;
+        short height = -1;
+        short length = -1;
+        @Nullable
+        String materials;
+        int tileEntityCount;
+        boolean tileEntitiesFound;
+        long blocksOffset = -1;
+        long dataOffset = -1;
+        int blocksLength = -1;
+
+        Builder() {}
+
+        void value(final NBTReader reader, final String name) {
+            if (reader.getType() == NBTConstants.TYPE_SHORT) {
+                if (name.equals(ESchematicFields.WIDTH.getKey())) {
+                    this.width = reader.getShort();
+                } else if (name.equals(ESchematicFields.HEIGHT.getKey())) {
+                    this.height = reader.getShort();
+                } else if (name.equals(ESchematicFields.LENGTH.getKey())) {
+                    this.length = reader.getShort();
+                }
+            } else if ((reader.getType() == NBTConstants.TYPE_STRING) && name.equals(ESchematicFields.MATERIALS.getKey())) {
+                this.materials = reader.getString();
+            }
+        }
+
+        boolean isComplete() {
+            return (this.width >= 0) && (this.height >= 0) && (this.length >= 0) && (this.materials != null) && this.tileEntitiesFound
+                    && (this.blocksOffset >= 0) && (this.dataOffset >= 0);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.tree_bit.rcdl.schematic;
+
+import com.tree_bit.rcdl.schematic.NBTReader.Event;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.jnbt.NBTConstants;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Loads selected fields of a schematic file without materializing the whole
+ * tag tree.
+ *
+ * <p>
+ * The file is parsed by a {@link NBTReader}. Only the requested fields are
+ * read, the payload of the other byte arrays is skipped. The block ids and
+ * data values are streamed directly into buffers supplied by the caller (or
+ * new arrays of the exact size). Parsing stops as soon as all requested fields
+ * are found.
+ *
+ * <p>
+ * Example (reuses the buffers for several files):
+ *
+ * <pre>
+ * SchematicLoader loader = new SchematicLoader(ESchematicFields.WIDTH, ESchematicFields.HEIGHT, ESchematicFields.LENGTH)
+ *         .into(ESchematicFields.BLOCKS, blocks).into(ESchematicFields.DATA, data);
+ * LoadedSchematic schematic = loader.load(path);
+ * </pre>
+ */
+public final class SchematicLoader {
+
+    private final Set<ESchematicFields> fields = EnumSet.noneOf(ESchematicFields.class);
+    private final Map<ESchematicFields, IntFunction<byte[]>> buffers = new EnumMap<>(ESchematicFields.class);
+
+    /**
+     * Creates a new loader reading the given fields. Byte array fields are
+     * read into new arrays unless a buffer is given by
+     * {@link #into(ESchematicFields, IntFunction)}.
+     *
+     * @param requested <b>ESchematicFields</b> fields to load
+     */
+    public SchematicLoader(final ESchematicFields... requested) {
+        for (final ESchematicFields field : requested) {
+            this.fields.add(field);
+        }
+    }
+
+    /**
+     * Reads the given byte array field into buffers of the given supplier. The
+     * supplier gets the length of the array and has to return a buffer with
+     * at least this length. The field is added to the requested fields.
+     *
+     * @param field <b>ESchematicFields</b> byte array field
+     * @param supplier <b>IntFunction&lt;byte[]&gt;</b> buffer supplier
+     * @return <b>SchematicLoader</b> this loader for chaining
+     *
+     * @throws IllegalArgumentException if the field is no byte array
+     */
+    public SchematicLoader into(final ESchematicFields field, final IntFunction<byte[]> supplier) {
+        if (field.getType() != NBTConstants.TYPE_BYTE_ARRAY) {
+            throw new IllegalArgumentException("Field " + field + " is no byte array");
+        }
+        this.fields.add(field);
+        this.buffers.put(field, supplier);
+        return this;
+    }
+
+    /**
+     * Reads the given byte array field into the given buffer. The field is
+     * added to the requested fields.
+     *
+     * @param field <b>ESchematicFields</b> byte array field
+     * @param buffer <b>byte[]</b> buffer (has to be large enough for the
+     *        field)
+     * @return <b>SchematicLoader</b> this loader for chaining
+     *
+     * @throws IllegalArgumentException if the field is no byte array
+     */
+    public SchematicLoader into(final ESchematicFields field, final byte[] buffer) {
+        return this.into(field, length -> buffer);
+    }
+
+    /**
+     * Loads the requested fields of the given schematic file.
+     *
+     * @param path <b>Path</b> schematic file
+     * @return <b>LoadedSchematic</b> loaded fields
+     * @throws IOException if the file can't be read or is malformed
+     *
+     * @throws IllegalArgumentException if a supplied buffer is too small
+     */
+    public LoadedSchematic load(final Path path) throws IOException {
+        try (final InputStream in = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+            return this.load(in);
+        }
+    }
+
+    /**
+     * Loads the requested fields of a gzip compressed schematic stream. The
+     * stream isn't closed.
+     *
+     * @param in <b>InputStream</b> compressed schematic
+     * @return <b>LoadedSchematic</b> loaded fields
+     * @throws IOException if the stream can't be read or is malformed
+     *
+     * @throws IllegalArgumentException if a supplied buffer is too small
+     */
+    // Don't close the given stream
+    @SuppressWarnings("resource")
+    public LoadedSchematic load(final InputStream in) throws IOException {
+        final NBTReader reader = new NBTReader(in);
+        if (reader.next() != Event.START_COMPOUND) {
+            throw new IOException("Schematic root is no compound tag");
+        }
+
+        final Map<ESchematicFields, Object> values = new EnumMap<>(ESchematicFields.class);
+        final Map<ESchematicFields, Integer> lengths = new EnumMap<>(ESchematicFields.class);
+        while (values.size() < this.fields.size()) {
+            final Event event = reader.next();
+            if (event == Event.END_COMPOUND) {
+                // End of root -> some fields are missing
+                break;
+            }
+            final ESchematicFields field = this.requested(reader.getName());
+            if (field == null) {
+                reader.skipChildren();
+                continue;
+            }
+            if (reader.getType() != field.getType()) {
+                throw new IOException("Field " + field.getKey() + " has type " + reader.getType() + ", expected " + field.getType());
+            }
+            switch (event) {
+                case BYTE_ARRAY:
+                    final int length = reader.getArrayLength();
+                    values.put(field, this.readArray(reader, field, length));
+                    lengths.put(field, Integer.valueOf(length));
+                    break;
+                case VALUE:
+                    values.put(field, (field.getType() == NBTConstants.TYPE_SHORT) ? Short.valueOf(reader.getShort()) : reader.getString());
+                    break;
+                default:
+                    throw new IOException("Unexpected event " + event + " for field " + field.getKey());
+            }
+        }
+        return new LoadedSchematic(values, lengths);
+    }
+
+    @Nullable
+    private ESchematicFields requested(final String key) {
+        for (final ESchematicFields field : this.fields) {
+            if (field.getKey().equals(key)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private byte[] readArray(final NBTReader reader, final ESchematicFields field, final int length) throws IOException {
+        final IntFunction<byte[]> supplier = this.buffers.get(field);
+        final byte[] buffer = (supplier != null) ? supplier.apply(length) : new byte[length];
+        if (buffer.length < length) {
+            throw new IllegalArgumentException("Buffer for " + field.getKey() + " too small: " + buffer.length + " < " + length);
+        }
+        int read = 0;
+        while (read < length) {
+            read += reader.readBytes(buffer, read, length - read);
+        }
+        return buffer;
+    }
+}
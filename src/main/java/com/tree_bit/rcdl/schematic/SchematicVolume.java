@@ -0,0 +1,358 @@
+package com.tree_bit.rcdl.schematic;
+
+import com.tree_bit.rcdl.blocks.Block;
+
+import com.google.common.base.Objects;
+
+import java.util.Arrays;
+
+/**
+ * Typed three-dimensional view of the 'Blocks' and 'Data' arrays of a
+ * schematic.
+ *
+ * <p>
+ * The block at (x, y, z) is stored at the index
+ * {@code (y * length + z) * width + x}. Each block id uses 8 bits, each data
+ * value the lower 4 bits of a byte.
+ *
+ * <p>
+ * The volume works directly on the arrays, they are never copied. Changes to
+ * the volume are visible in the arrays (and the {@link SchematicWrapper} they
+ * came from) and vice versa.
+ *
+ * <p>
+ * The coordinate accessors check the bounds of each coordinate once, the
+ * index accessors and bulk operations only rely on the array bounds checks.
+ * Use the index accessors for tight loops over all blocks.
+ *
+ * <p>
+ * The volume is not thread-safe. Different blocks may be modified by
+ * different threads as long as the access is synchronized externally.
+ */
+public final class SchematicVolume {
+
+    private final int width;
+    private final int height;
+    private final int length;
+    private final byte[] blocks;
+    private final byte[] data;
+
+    /**
+     * Creates a new volume filled with air.
+     *
+     * @param width <b>int</b> size in x direction
+     * @param height <b>int</b> size in y direction
+     * @param length <b>int</b> size in z direction
+     *
+     * @throws IllegalArgumentException if a size is negative or the volume
+     *         exceeds the maximum array size
+     */
+    public SchematicVolume(final int width, final int height, final int length) {
+        this(width, height, length, new byte[checkedVolume(width, height, length)], new byte[checkedVolume(width, height, length)]);
+    }
+
+    /**
+     * Creates a new volume backed by the given arrays. The arrays are not
+     * copied.
+     *
+     * @param width <b>int</b> size in x direction
+     * @param height <b>int</b> size in y direction
+     * @param length <b>int</b> size in z direction
+     * @param blocks <b>byte[]</b> block ids
+     * @param data <b>byte[]</b> data values
+     *
+     * @throws IllegalArgumentException if a size is negative or an array
+     *         doesn't match the volume
+     */
+    public SchematicVolume(final int width, final int height, final int length, final byte[] blocks, final byte[] data) {
+        final int volume = checkedVolume(width, height, length);
+        if ((blocks.length != volume) || (data.length != volume)) {
+            throw new IllegalArgumentException("Arrays don't match the volume " + width + "x" + height + "x" + length + ": blocks="
+                    + blocks.length + " data=" + data.length);
+        }
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.blocks = blocks;
+        this.data = data;
+    }
+
+    /**
+     * Creates a volume backed by the arrays of the given schematic. The arrays
+     * are not copied.
+     *
+     * @param schematic <b>SchematicWrapper</b> schematic containing the size,
+     *        'Blocks' and 'Data'
+     * @return <b>SchematicVolume</b> view of the schematic
+     *
+     * @throws NullPointerException if a field is missing
+     * @throws IllegalArgumentException if an array doesn't match the size
+     */
+    public static SchematicVolume of(final SchematicWrapper schematic) {
+        return new SchematicVolume(schematic.readWidth(), schematic.readHeight(), schematic.readLength(), schematic.readBlocks(),
+                schematic.readData());
+    }
+
+    /**
+     * Writes the size and arrays of this volume to the given schematic. The
+     * arrays are not copied, so the schematic stays backed by this volume.
+     *
+     * @param schematic <b>SchematicWrapper</b> target
+     *
+     * @throws IllegalArgumentException if a size exceeds the range of a short
+     */
+    public void writeTo(final SchematicWrapper schematic) {
+        if ((this.width > Short.MAX_VALUE) || (this.height > Short.MAX_VALUE) || (this.length > Short.MAX_VALUE)) {
+            throw new IllegalArgumentException("Volume too large for a schematic: " + this.width + "x" + this.height + "x" + this.length);
+        }
+        schematic.writeWidth((short) this.width);
+        schematic.writeHeight((short) this.height);
+        schematic.writeLength((short) this.length);
+        schematic.writeBlocks(this.blocks);
+        schematic.writeData(this.data);
+    }
+
+    private static int checkedVolume(final int width, final int height, final int length) {
+        if ((width < 0) || (height < 0) || (length < 0)) {
+            throw new IllegalArgumentException("Negative size: " + width + "x" + height + "x" + length);
+        }
+        final long volume = (long) width * height * length;
+        if (volume > (Integer.MAX_VALUE - 8)) {
+            throw new IllegalArgumentException("Volume too large: " + width + "x" + height + "x" + length);
+        }
+        return (int) volume;
+    }
+
+    /**
+     * Returns the size in x direction.
+     *
+     * @return <b>int</b> width
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Returns the size in y direction.
+     *
+     * @return <b>int</b> height
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Returns the size in z direction.
+     *
+     * @return <b>int</b> length
+     */
+    public int getLength() {
+        return this.length;
+    }
+
+    /**
+     * Returns the number of blocks.
+     *
+     * @return <b>int</b> width * height * length
+     */
+    public int getVolume() {
+        return this.blocks.length;
+    }
+
+    /**
+     * Returns the backing array of the block ids (not a copy).
+     *
+     * @return <b>byte[]</b> blocks
+     */
+    public byte[] getBlocks() {
+        return this.blocks;
+    }
+
+    /**
+     * Returns the backing array of the data values (not a copy).
+     *
+     * @return <b>byte[]</b> data
+     */
+    public byte[] getData() {
+        return this.data;
+    }
+
+    /**
+     * Returns the array index of the given coordinates.
+     *
+     * @param x <b>int</b> x coordinate in [0, width)
+     * @param y <b>int</b> y coordinate in [0, height)
+     * @param z <b>int</b> z coordinate in [0, length)
+     * @return <b>int</b> index
+     *
+     * @throws IndexOutOfBoundsException if a coordinate is out of bounds
+     */
+    public int index(final int x, final int y, final int z) {
+        // A coordinate is out of bounds if it or its distance to the end is negative
+        if ((x | y | z | (this.width - 1 - x) | (this.height - 1 - y) | (this.length - 1 - z)) < 0) {
+            throw new IndexOutOfBoundsException(
+                    "(" + x + ", " + y + ", " + z + ") outside of " + this.width + "x" + this.height + "x" + this.length);
+        }
+        return (((y * this.length) + z) * this.width) + x;
+    }
+
+    /**
+     * Returns the raw block id at the given coordinates.
+     *
+     * @param x <b>int</b> x coordinate
+     * @param y <b>int</b> y coordinate
+     * @param z <b>int</b> z coordinate
+     * @return <b>int</b> block id in [0, 256)
+     *
+     * @throws IndexOutOfBoundsException if a coordinate is out of bounds
+     */
+    public int getId(final int x, final int y, final int z) {
+        return this.blocks[this.index(x, y, z)] & 0xFF;
+    }
+
+    /**
+     * Returns the raw data value at the given coordinates.
+     *
+     * @param x <b>int</b> x coordinate
+     * @param y <b>int</b> y coordinate
+     * @param z <b>int</b> z coordinate
+     * @return <b>int</b> data value in [0, 16)
+     *
+     * @throws IndexOutOfBoundsException if a coordinate is out of bounds
+     */
+    public int getMeta(final int x, final int y, final int z) {
+        return this.data[this.index(x, y, z)] & 0x0F;
+    }
+
+    /**
+     * Returns the raw block id at the given index.
+     *
+     * @param index <b>int</b> index (see {@link #index(int, int, int)})
+     * @return <b>int</b> block id in [0, 256)
+     */
+    public int getId(final int index) {
+        return this.blocks[index] & 0xFF;
+    }
+
+    /**
+     * Returns the raw data value at the given index.
+     *
+     * @param index <b>int</b> index (see {@link #index(int, int, int)})
+     * @return <b>int</b> data value in [0, 16)
+     */
+    public int getMeta(final int index) {
+        return this.data[index] & 0x0F;
+    }
+
+    /**
+     * Returns the state id of the block at the given index.
+     *
+     * @param index <b>int</b> index (see {@link #index(int, int, int)})
+     * @return <b>int</b> state id or {@link Block#INVALID_STATE_ID} if the raw
+     *         values don't represent a valid block
+     */
+    public int getStateId(final int index) {
+        return Block.rawToStateId(this.blocks[index] & 0xFF, this.data[index] & 0x0F);
+    }
+
+    /**
+     * Sets the raw block id and data value at the given coordinates.
+     *
+     * @param x <b>int</b> x coordinate
+     * @param y <b>int</b> y coordinate
+     * @param z <b>int</b> z coordinate
+     * @param id <b>int</b> block id in [0, 256)
+     * @param meta <b>int</b> data value in [0, 16)
+     *
+     * @throws IndexOutOfBoundsException if a coordinate is out of bounds
+     */
+    public void setRaw(final int x, final int y, final int z, final int id, final int meta) {
+        final int index = this.index(x, y, z);
+        this.blocks[index] = (byte) id;
+        this.data[index] = (byte) (meta & 0x0F);
+    }
+
+    /**
+     * Returns the block at the given coordinates.
+     *
+     * <p>
+     * The lookup doesn't allocate. Tile entities are not stored in the arrays,
+     * so the returned block has the default tile entity of its data class.
+     *
+     * @param x <b>int</b> x coordinate
+     * @param y <b>int</b> y coordinate
+     * @param z <b>int</b> z coordinate
+     * @return <b>Block</b> block
+     *
+     * @throws IndexOutOfBoundsException if a coordinate is out of bounds
+     * @throws IllegalArgumentException if the raw values don't represent a
+     *         valid block
+     */
+    public Block getBlock(final int x, final int y, final int z) {
+        final int index = this.index(x, y, z);
+        return Block.fromRaw(this.blocks[index] & 0xFF, this.data[index] & 0x0F);
+    }
+
+    /**
+     * Sets the block at the given coordinates. Tile entities are not stored.
+     *
+     * @param x <b>int</b> x coordinate
+     * @param y <b>int</b> y coordinate
+     * @param z <b>int</b> z coordinate
+     * @param block <b>Block</b> block
+     *
+     * @throws IndexOutOfBoundsException if a coordinate is out of bounds
+     */
+    public void setBlock(final int x, final int y, final int z, final Block block) {
+        final int raw = Block.stateIdToRaw(block.getStateId());
+        final int index = this.index(x, y, z);
+        this.blocks[index] = (byte) (raw >>> 4);
+        this.data[index] = (byte) (raw & 0x0F);
+    }
+
+    /**
+     * Sets all blocks to the given block.
+     *
+     * @param block <b>Block</b> block
+     */
+    public void fill(final Block block) {
+        final int raw = Block.stateIdToRaw(block.getStateId());
+        Arrays.fill(this.blocks, (byte) (raw >>> 4));
+        Arrays.fill(this.data, (byte) (raw & 0x0F));
+    }
+
+    /**
+     * Replaces all occurrences of a block by another block. The data values
+     * are compared by their lower 4 bits.
+     *
+     * @param from <b>Block</b> block to replace
+     * @param to <b>Block</b> replacement
+     * @return <b>int</b> number of replaced blocks
+     */
+    public int replace(final Block from, final Block to) {
+        final int fromRaw = Block.stateIdToRaw(from.getStateId());
+        final int toRaw = Block.stateIdToRaw(to.getStateId());
+        final byte fromId = (byte) (fromRaw >>> 4);
+        final int fromMeta = fromRaw & 0x0F;
+        final byte toId = (byte) (toRaw >>> 4);
+        final byte toMeta = (byte) (toRaw & 0x0F);
+        final byte[] b = this.blocks;
+        final byte[] d = this.data;
+        int count = 0;
+        for (int i = 0; i < b.length; i++) {
+            if ((b[i] == fromId) && ((d[i] & 0x0F) == fromMeta)) {
+                b[i] = toId;
+                d[i] = toMeta;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    // Can't be null (checked by Guava)
+    @SuppressWarnings("null")
+    public String toString() {
+        return Objects.toStringHelper(this).add("width", this.width).add("height", this.height).add("length", this.length).toString();
+    }
+}
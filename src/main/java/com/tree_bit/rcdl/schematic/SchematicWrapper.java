@@ -9,13 +9,15 @@ import org.jnbt.NBTOutputStream;
 import org.jnbt.ShortTag;
 import org.jnbt.Tag;
 
-import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
 
 /**
  * Wrapper for Minecraft NBT files. Used for MCEdit schematics.
@@ -27,9 +29,15 @@ import java.util.Map;
 public class SchematicWrapper {
 
     /**
-     * Root Tag
+     * Name of the root tag
      */
-    private CompoundTag root;
+    private final String rootName;
+
+    /**
+     * Children of the root tag (mutable, the root tag is only built for
+     * saving)
+     */
+    private final Map<String, Tag> tags;
 
     /**
      * Creates a new wrapper for a schematic file.
@@ -45,9 +53,12 @@ public class SchematicWrapper {
             throw new IllegalArgumentException("Path is empty");
         }
 
+        final CompoundTag root;
         try (final NBTInputStream inputStream = new NBTInputStream(new FileInputStream(path))) {
-            this.root = checkNotNull((CompoundTag) inputStream.readTag());
+            root = checkNotNull((CompoundTag) inputStream.readTag());
         }
+        this.rootName = root.getName();
+        this.tags = new LinkedHashMap<>(root.getValue());
 
     }
 
@@ -55,7 +66,8 @@ public class SchematicWrapper {
      * Creates a new wrapper for an empty schematic file.
      */
     public SchematicWrapper() {
-        this.root = new CompoundTag("Schematic", new HashMap<String, Tag>());
+        this.rootName = "Schematic";
+        this.tags = new LinkedHashMap<>();
     }
 
     /**
@@ -120,56 +132,38 @@ public class SchematicWrapper {
      * @param field <b>ESchematicFields</b> schematic field
      * @return <b>Tag</b> tag
      */
-    public Tag read(final ESchematicFields field) {
-        return getTag(field.getKey(), this.root);
-    }
-
-    /**
-     * Returns the child of a CompoundTag matching a key.
-     *
-     * @param key <b>String</b> key of the child
-     * @param parentTag <b>CompoundTag</b> parent compound tag
-     * @return <b>Tag</b> child tag
-     */
     // Can't be null (checked by Guava)
     @SuppressWarnings("null")
-    private static Tag getTag(final String key, final CompoundTag parentTag) {
-        return checkNotNull(parentTag.getValue().get(key));
+    public Tag read(final ESchematicFields field) {
+        return checkNotNull(this.tags.get(field.getKey()));
     }
 
     /**
-     * Copy the values of a compound tag to a new map and add a new tag. An
-     * existing tag with the same name is replaced.
+     * Adds a tag to the root compound tag values. Replaces possibly existing
+     * value with same name/key.
      *
-     * @param t <b>Tag</b> new tag
-     * @param parentTag <b>CompoundTag</b> parent tag
-     * @return <b>Map&lt;String, Tag&gt;</b> map with the old values and the new
-     *         one
+     * <p>
+     * The children are collected in a mutable map, the root compound tag is
+     * only built when saving. So each call is O(1) and doesn't copy the other
+     * children.
+     * </p>
+     *
+     * @param t <b>Tag</b> tag
      */
     // Can't be null (checked by Guava)
     @SuppressWarnings("null")
-    private static Map<String, Tag> addTag(final Tag t, final CompoundTag parentTag) {
-        final Map<String, Tag> map = new HashMap<>();
-
-        // Copy old Map
-        for (final Tag old : parentTag.getValue().values()) {
-            map.put(checkNotNull(old.getName()), old);
-        }
-
-        // Add t to map (replace possibly existing old value)
-        map.put(checkNotNull(t.getName()), t);
-
-        return map;
+    private void addTagToRoot(final Tag t) {
+        this.tags.put(checkNotNull(t.getName()), t);
     }
 
     /**
-     * Adds a tag to the root compound tag values. Replaces possibly existing
-     * value with same name/key.
+     * Builds the root compound tag of the current children. The tag is a view
+     * of the children, so it mustn't escape this wrapper.
      *
-     * @param t <b>Tag</b> tag
+     * @return <b>CompoundTag</b> root tag
      */
-    private void addTagToRoot(final Tag t) {
-        this.root = new CompoundTag(this.root.getName(), addTag(t, this.root));
+    private CompoundTag root() {
+        return new CompoundTag(this.rootName, this.tags);
     }
 
     /**
@@ -227,7 +221,8 @@ public class SchematicWrapper {
      * Writes the current root compound tag (and value tags) to the given file.
      *
      * <p>
-     * If the file doesn't exist it will be created.
+     * If the file doesn't exist it will be created. The file is replaced
+     * atomically (see {@link #saveChangesToFile(Path, int)}).
      * </p>
      *
      * @param path <b>String</b> path to file
@@ -238,26 +233,73 @@ public class SchematicWrapper {
         if (path.equals("")) {
             throw new IllegalArgumentException("Path is empty");
         }
+        this.saveChangesToFile(Paths.get(path), Deflater.DEFAULT_COMPRESSION);
+    }
 
-        final File f = new File(path);
-
-        if (!f.exists()) {
-            if (f.getParentFile() != null) {
-                f.getParentFile().mkdirs();
+    /**
+     * Writes the current root compound tag (and value tags) to the given file
+     * with the given deflate level.
+     *
+     * <p>
+     * The schematic is written through a file channel with a large direct
+     * buffer to a temporary file in the same directory. The temporary file is
+     * forced to the disk and renamed to the target afterwards. So a crash
+     * never leaves a truncated schematic, the target contains either the old
+     * or the new content. Missing parent directories are created.
+     * </p>
+     *
+     * @param path <b>Path</b> file
+     * @param level <b>int</b> deflate level from {@link Deflater#BEST_SPEED}
+     *        (1, fastest) to {@link Deflater#BEST_COMPRESSION} (9, smallest)
+     *        or {@link Deflater#DEFAULT_COMPRESSION}
+     * @throws IOException if the file can't be written
+     *
+     * @throws IllegalArgumentException if the level is invalid
+     */
+    public void saveChangesToFile(final Path path, final int level) throws IOException {
+        SchematicFiles.checkLevel(level);
+        final CompoundTag root = this.root();
+        SchematicFiles.writeAtomically(path, out -> {
+            try (final NBTOutputStream nbt = new NBTOutputStream(SchematicFiles.gzip(out, level), false)) {
+                nbt.writeTag(root);
             }
+        });
+    }
 
-            f.createNewFile();
-        }
-
-        try (final NBTOutputStream out = new NBTOutputStream(new FileOutputStream(f))) {
-            out.writeTag(this.root);
-        }
+    /**
+     * Writes the current root compound tag (and value tags) to the given file
+     * like {@link #saveChangesToFile(Path, int)}, but compresses blocks of the
+     * data in parallel on the given pool.
+     *
+     * <p>
+     * The blocks are concatenated to one standard gzip stream, which is
+     * slightly larger than the output of the single-threaded compression but
+     * readable by every gzip implementation.
+     * </p>
+     *
+     * @param path <b>Path</b> file
+     * @param level <b>int</b> deflate level from {@link Deflater#BEST_SPEED}
+     *        (1, fastest) to {@link Deflater#BEST_COMPRESSION} (9, smallest)
+     *        or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param pool <b>ForkJoinPool</b> pool compressing the blocks
+     * @throws IOException if the file can't be written
+     *
+     * @throws IllegalArgumentException if the level is invalid
+     */
+    public void saveChangesToFile(final Path path, final int level, final ForkJoinPool pool) throws IOException {
+        SchematicFiles.checkLevel(level);
+        final CompoundTag root = this.root();
+        SchematicFiles.writeAtomically(path, out -> {
+            try (final NBTOutputStream nbt = new NBTOutputStream(new ParallelGZIPOutputStream(out, level, pool), false)) {
+                nbt.writeTag(root);
+            }
+        });
     }
 
     @Override
     // Can't be null (checked by Guava)
     @SuppressWarnings("null")
     public String toString() {
-        return checkNotNull(this.root.toString());
+        return checkNotNull(this.root().toString());
     }
 }
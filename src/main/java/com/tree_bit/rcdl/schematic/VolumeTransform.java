@@ -0,0 +1,286 @@
+package com.tree_bit.rcdl.schematic;
+
+import com.tree_bit.rcdl.blocks.Axis;
+import com.tree_bit.rcdl.blocks.Block;
+
+import com.google.common.math.IntMath;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Rotation about the y axis or mirroring of a whole {@link SchematicVolume}.
+ *
+ * <p>
+ * A transform permutes the coordinates of all blocks (swapping width and
+ * length for rotations by 90 and 270 degree) and remaps every block id and
+ * data value with a precomputed table of all 4096 raw combinations. The
+ * table is derived from the state transition tables of {@link Block}, so the
+ * result matches {@link Block#rotate(Axis, int)} and
+ * {@link Block#mirror(Set)}. Raw values without a block state and blocks
+ * which can't be transformed are copied unchanged.
+ *
+ * <p>
+ * The work is split into ranges of y slices which are transformed on a
+ * {@link ForkJoinPool}. Only the 'Blocks' and 'Data' arrays are transformed,
+ * tile entities and entities of the schematic are not.
+ *
+ * <p>
+ * The instances are immutable and thread-safe.
+ */
+public final class VolumeTransform {
+
+    /** Minimum number of blocks transformed by one task */
+    private static final int MIN_TASK_SIZE = 1 << 16;
+
+    /** Raw combinations {@code (id << 4) | meta} */
+    private static final int RAW_COUNT = 256 * 16;
+
+    /**
+     * Transforms of all rotations and mirrorings. (Lazy initialization
+     * holder)
+     */
+    private static class Instances {
+
+        /** [quarter turns] */
+        static final VolumeTransform[] rotations = new VolumeTransform[4];
+        /** [axis orthogonal to the plain] */
+        static final VolumeTransform[] mirrors = new VolumeTransform[Axis.values().length];
+
+        static {
+            for (int turns = 0; turns < 4; turns++) {
+                rotations[turns] = rotation(turns);
+            }
+            for (final Axis normal : Axis.values()) {
+                mirrors[normal.ordinal()] = mirroring(normal);
+            }
+        }
+
+        private Instances() {}
+    }
+
+    /** New raw combination of each raw combination */
+    private final short[] table;
+    /** Quarter turns about the y axis (clockwise viewed from above) */
+    private final int turns;
+    /** Axis orthogonal to the mirror plain or null for a rotation */
+    @Nullable
+    private final Axis mirrorNormal;
+
+    private VolumeTransform(final short[] table, final int turns, @Nullable final Axis mirrorNormal) {
+        this.table = table;
+        this.turns = turns;
+        this.mirrorNormal = mirrorNormal;
+    }
+
+    /**
+     * Returns the rotation about the y axis by the given amount of degree.
+     * (Clockwise, axis viewed from +infinity to -infinity/zero)
+     *
+     * @param degree <b>int</b> degree (multiple of 90)
+     * @return <b>VolumeTransform</b> rotation
+     *
+     * @throws IllegalArgumentException if the degree isn't a multiple of 90
+     */
+    public static VolumeTransform rotateY(final int degree) {
+        if ((degree % 90) != 0) {
+            throw new IllegalArgumentException("Only multiples of 90 degree are allowed: " + degree);
+        }
+        return Instances.rotations[IntMath.mod(degree / 90, 4)];
+    }
+
+    /**
+     * Returns the mirroring at the given plain. To create a plain you should
+     * use {@link Axis#plain(Axis, Axis)}, e.g. the x-y plain flips the z
+     * coordinates.
+     *
+     * @param plain <b>Set&lt;Axis&gt;</b> mirror plain
+     * @return <b>VolumeTransform</b> mirroring
+     *
+     * @throws IllegalArgumentException if the plain is invalid
+     */
+    public static VolumeTransform mirror(final Set<Axis> plain) {
+        Axis.checkPlain(plain);
+        return Instances.mirrors[EnumSet.complementOf(EnumSet.copyOf(plain)).iterator().next().ordinal()];
+    }
+
+    private static VolumeTransform rotation(final int turns) {
+        final short[] table = new short[RAW_COUNT];
+        for (int raw = 0; raw < RAW_COUNT; raw++) {
+            final int state = Block.rawToStateId(raw >>> 4, raw & 0x0F);
+            final int rotated = (state == Block.INVALID_STATE_ID) ? state : Block.rotateStateId(state, Axis.Y, turns * 90);
+            table[raw] = (short) newRaw(raw, state, rotated);
+        }
+        return new VolumeTransform(table, turns, null);
+    }
+
+    private static VolumeTransform mirroring(final Axis normal) {
+        final Set<Axis> plain = EnumSet.complementOf(EnumSet.of(normal));
+        final short[] table = new short[RAW_COUNT];
+        for (int raw = 0; raw < RAW_COUNT; raw++) {
+            final int state = Block.rawToStateId(raw >>> 4, raw & 0x0F);
+            final int mirrored = (state == Block.INVALID_STATE_ID) ? state : Block.mirrorStateId(state, plain);
+            table[raw] = (short) newRaw(raw, state, mirrored);
+        }
+        return new VolumeTransform(table, 0, normal);
+    }
+
+    /**
+     * Returns the raw combination after a transition. Unchanged states keep
+     * their raw value (unmodeled data values of generic blocks survive).
+     */
+    private static int newRaw(final int raw, final int state, final int transformed) {
+        if ((state == Block.INVALID_STATE_ID) || (transformed == Block.INVALID_STATE_ID) || (transformed == state)) {
+            return raw;
+        }
+        return Block.stateIdToRaw(transformed);
+    }
+
+    /**
+     * Transforms the block id and data value of a single block.
+     *
+     * @param id <b>int</b> block id in [0, 256)
+     * @param meta <b>int</b> data value in [0, 16)
+     * @return <b>int</b> transformed raw combination {@code (id << 4) | meta}
+     */
+    public int transformRaw(final int id, final int meta) {
+        return this.table[((id & 0xFF) << 4) | (meta & 0x0F)];
+    }
+
+    /**
+     * Transforms the given volume on the common pool.
+     *
+     * @param source <b>SchematicVolume</b> volume to transform (unchanged)
+     * @return <b>SchematicVolume</b> new transformed volume
+     */
+    public SchematicVolume apply(final SchematicVolume source) {
+        return this.apply(source, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Transforms the given volume on the given pool.
+     *
+     * @param source <b>SchematicVolume</b> volume to transform (unchanged)
+     * @param pool <b>ForkJoinPool</b> pool transforming the y slices
+     * @return <b>SchematicVolume</b> new transformed volume
+     */
+    public SchematicVolume apply(final SchematicVolume source, final ForkJoinPool pool) {
+        final int w = source.getWidth();
+        final int h = source.getHeight();
+        final int l = source.getLength();
+        final boolean swap = (this.turns & 1) != 0;
+        final SchematicVolume target = swap ? new SchematicVolume(l, h, w) : new SchematicVolume(w, h, l);
+
+        // Target index of (x, y, z) inside a layer: c + x * ax + z * az
+        final int c;
+        final int ax;
+        final int az;
+        if (this.mirrorNormal == Axis.X) {
+            c = w - 1;
+            ax = -1;
+            az = w;
+        } else if (this.mirrorNormal == Axis.Z) {
+            c = (l - 1) * w;
+            ax = 1;
+            az = -w;
+        } else if (this.turns == 1) {
+            // x' = l - 1 - z, z' = x (new width l)
+            c = l - 1;
+            ax = l;
+            az = -1;
+        } else if (this.turns == 2) {
+            c = ((l - 1) * w) + (w - 1);
+            ax = -1;
+            az = -w;
+        } else if (this.turns == 3) {
+            // x' = z, z' = w - 1 - x (new width l)
+            c = (w - 1) * l;
+            ax = -l;
+            az = 1;
+        } else {
+            c = 0;
+            ax = 1;
+            az = w;
+        }
+        final boolean flipY = this.mirrorNormal == Axis.Y;
+
+        final int layer = w * l;
+        final int layersPerTask = Math.max(1, MIN_TASK_SIZE / Math.max(1, layer));
+        pool.invoke(new Slices(source, target, this.table, 0, h, layersPerTask, c, ax, az, flipY));
+        return target;
+    }
+
+    /**
+     * Task transforming a range of y slices.
+     */
+    private static final class Slices extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SchematicVolume source;
+        private final SchematicVolume target;
+        private final short[] table;
+        private final int from;
+        private final int to;
+        private final int layersPerTask;
+        private final int c;
+        private final int ax;
+        private final int az;
+        private final boolean flipY;
+
+        Slices(final SchematicVolume source, final SchematicVolume target, final short[] table, final int from, final int to,
+                final int layersPerTask, final int c, final int ax, final int az, final boolean flipY) {
+            this.source = source;
+            this.target = target;
+            this.table = table;
+            this.from = from;
+            this.to = to;
+            this.layersPerTask = layersPerTask;
+            this.c = c;
+            this.ax = ax;
+            this.az = az;
+            this.flipY = flipY;
+        }
+
+        @Override
+        protected void compute() {
+            if ((this.to - this.from) > this.layersPerTask) {
+                final int mid = (this.from + this.to) >>> 1;
+                invokeAll(new Slices(this.source, this.target, this.table, this.from, mid, this.layersPerTask, this.c, this.ax, this.az,
+                        this.flipY),
+                        new Slices(this.source, this.target, this.table, mid, this.to, this.layersPerTask, this.c, this.ax, this.az,
+                                this.flipY));
+                return;
+            }
+
+            final byte[] srcBlocks = this.source.getBlocks();
+            final byte[] srcData = this.source.getData();
+            final byte[] dstBlocks = this.target.getBlocks();
+            final byte[] dstData = this.target.getData();
+            final short[] t = this.table;
+            final int w = this.source.getWidth();
+            final int l = this.source.getLength();
+            final int h = this.source.getHeight();
+            final int layer = w * l;
+
+            for (int y = this.from; y < this.to; y++) {
+                int src = y * layer;
+                final int dstBase = (this.flipY ? (h - 1 - y) : y) * layer;
+                for (int z = 0; z < l; z++) {
+                    int dst = dstBase + this.c + (z * this.az);
+                    for (int x = 0; x < w; x++) {
+                        final int raw = t[((srcBlocks[src] & 0xFF) << 4) | (srcData[src] & 0x0F)];
+                        dstBlocks[dst] = (byte) (raw >>> 4);
+                        dstData[dst] = (byte) (raw & 0x0F);
+                        src++;
+                        dst += this.ax;
+                    }
+                }
+            }
+        }
+    }
+}
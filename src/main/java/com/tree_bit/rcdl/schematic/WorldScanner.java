@@ -0,0 +1,632 @@
+package com.tree_bit.rcdl.schematic;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.jnbt.CompoundTag;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Parallel scanner of all chunks of a world.
+ *
+ * <p>
+ * The region files of a world directory (see
+ * {@link RegionReader#findRegions(Path)}) are distributed to a bounded number
+ * of workers. Each worker maps one region after another and decompresses and
+ * parses its chunks in file order, so the regions are scanned concurrently.
+ * The parsed chunks are delivered to a callback on the worker threads
+ * ({@link #scan(Path, Consumer)}) or through a bounded queue to a sequential
+ * {@link Stream} ({@link #stream(Path)}).
+ *
+ * <p>
+ * Memory is bounded in both modes: A worker doesn't parse the next chunk
+ * before the callback returned, and the stream workers block while the queue
+ * is full, so at most {@code parallelism + queueCapacity} chunks are alive.
+ *
+ * <p>
+ * Corrupt regions and chunks don't stop the scan. They are skipped and
+ * recorded in the {@link Progress}, which also exposes the throughput and
+ * can be polled by another thread while the scan runs.
+ *
+ * <p>
+ * The scanner is immutable and thread-safe and may run several scans at the
+ * same time.
+ */
+public final class WorldScanner {
+
+    /** Default capacity of the stream queue */
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    /** Interval in which blocked stream workers check the cancellation */
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    /** End of the stream queue */
+    private static final Object END = new Object();
+
+    /**
+     * A parsed chunk.
+     */
+    public static final class Chunk {
+
+        private final Path region;
+        private final int chunkX;
+        private final int chunkZ;
+        private final int storedBytes;
+        private final CompoundTag tag;
+
+        Chunk(final Path region, final int chunkX, final int chunkZ, final int storedBytes, final CompoundTag tag) {
+            this.region = region;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.storedBytes = storedBytes;
+            this.tag = tag;
+        }
+
+        /**
+         * Returns the region file of the chunk.
+         *
+         * @return <b>Path</b> region file
+         */
+        public Path getRegion() {
+            return this.region;
+        }
+
+        /**
+         * Returns the world chunk x coordinate.
+         *
+         * @return <b>int</b> chunk x coordinate
+         */
+        public int getChunkX() {
+            return this.chunkX;
+        }
+
+        /**
+         * Returns the world chunk z coordinate.
+         *
+         * @return <b>int</b> chunk z coordinate
+         */
+        public int getChunkZ() {
+            return this.chunkZ;
+        }
+
+        /**
+         * Returns the size of the compressed data in the region file.
+         *
+         * @return <b>int</b> bytes
+         */
+        public int getStoredBytes() {
+            return this.storedBytes;
+        }
+
+        /**
+         * Returns the root tag of the chunk.
+         *
+         * @return <b>CompoundTag</b> root tag
+         */
+        public CompoundTag getTag() {
+            return this.tag;
+        }
+
+        @Override
+        public String toString() {
+            return "Chunk[" + this.chunkX + ", " + this.chunkZ + " in " + this.region + "]";
+        }
+    }
+
+    /**
+     * Progress and metrics of a scan. All methods are thread-safe and may be
+     * called while the scan runs.
+     */
+    public static final class Progress {
+
+        private volatile int regions = -1;
+        private final AtomicInteger regionsDone = new AtomicInteger();
+        private final AtomicInteger failedRegions = new AtomicInteger();
+        private final LongAdder chunks = new LongAdder();
+        private final LongAdder storedBytes = new LongAdder();
+        private final LongAdder failedChunks = new LongAdder();
+        private final Map<Path, IOException> failures = new ConcurrentHashMap<>();
+        private volatile long start;
+        private volatile long end;
+        private volatile boolean done;
+
+        /**
+         * Creates the progress of a scan which isn't started yet.
+         */
+        public Progress() {
+            // Nothing to do
+        }
+
+        void start(final int regionCount) {
+            if (this.regions >= 0) {
+                throw new IllegalStateException("The progress belongs to another scan");
+            }
+            this.start = System.nanoTime();
+            this.regions = regionCount;
+        }
+
+        void regionDone() {
+            this.regionsDone.incrementAndGet();
+        }
+
+        void finish() {
+            this.end = System.nanoTime();
+            this.done = true;
+        }
+
+        void chunk(final int bytes) {
+            this.chunks.increment();
+            this.storedBytes.add(bytes);
+        }
+
+        void fail(final Path region, final IOException e) {
+            this.failedChunks.increment();
+            this.failures.putIfAbsent(region, e);
+        }
+
+        void regionFailed(final Path region, final IOException e) {
+            this.failedRegions.incrementAndGet();
+            this.fail(region, e);
+        }
+
+        /**
+         * Returns the number of region files to scan.
+         *
+         * @return <b>int</b> regions or -1 if the scan isn't started
+         */
+        public int getRegions() {
+            return this.regions;
+        }
+
+        /**
+         * Returns the number of completely scanned region files, including
+         * the regions whose header couldn't be read.
+         *
+         * @return <b>int</b> regions
+         */
+        public int getRegionsDone() {
+            return this.regionsDone.get();
+        }
+
+        /**
+         * Returns the number of region files whose header couldn't be read
+         * (they are also counted as done).
+         *
+         * @return <b>int</b> regions
+         */
+        public int getFailedRegions() {
+            return this.failedRegions.get();
+        }
+
+        /**
+         * Returns whether all workers of the scan finished (also if the scan
+         * was cancelled).
+         *
+         * @return <b>boolean</b> true if the scan is finished
+         */
+        public boolean isDone() {
+            return this.done;
+        }
+
+        /**
+         * Returns the number of parsed chunks.
+         *
+         * @return <b>long</b> chunks
+         */
+        public long getChunks() {
+            return this.chunks.sum();
+        }
+
+        /**
+         * Returns the compressed size of the parsed chunks.
+         *
+         * @return <b>long</b> bytes
+         */
+        public long getStoredBytes() {
+            return this.storedBytes.sum();
+        }
+
+        /**
+         * Returns the number of chunks (or whole regions) which couldn't be
+         * read.
+         *
+         * @return <b>long</b> failed chunks
+         */
+        public long getFailedChunks() {
+            return this.failedChunks.sum();
+        }
+
+        /**
+         * Returns the first failure of each region with corrupt chunks or an
+         * unreadable header.
+         *
+         * @return <b>Map&lt;Path, IOException&gt;</b> failures (unmodifiable
+         *         live view)
+         */
+        public Map<Path, IOException> getFailures() {
+            return Collections.unmodifiableMap(this.failures);
+        }
+
+        /**
+         * Returns the time since the start of the scan (up to its end).
+         *
+         * @return <b>long</b> nanoseconds
+         */
+        public long getElapsedNanos() {
+            if (this.regions < 0) {
+                return 0;
+            }
+            return (this.isDone() ? this.end : System.nanoTime()) - this.start;
+        }
+
+        /**
+         * Returns the average number of parsed chunks per second.
+         *
+         * @return <b>double</b> chunks per second
+         */
+        public double getChunksPerSecond() {
+            return perSecond(this.getChunks(), this.getElapsedNanos());
+        }
+
+        /**
+         * Returns the average compressed bytes read per second.
+         *
+         * @return <b>double</b> bytes per second
+         */
+        public double getBytesPerSecond() {
+            return perSecond(this.getStoredBytes(), this.getElapsedNanos());
+        }
+
+        private static double perSecond(final long count, final long nanos) {
+            return (nanos <= 0) ? 0 : ((count * 1e9) / nanos);
+        }
+
+        @Override
+        public String toString() {
+            return this.getRegionsDone() + "/" + this.regions + " regions, " + this.getChunks() + " chunks (" + this.getFailedChunks()
+                    + " failed), " + this.getStoredBytes() + " bytes in " + (this.getElapsedNanos() / 1000000) + " ms ("
+                    + Math.round(this.getChunksPerSecond()) + " chunks/s)";
+        }
+    }
+
+    /**
+     * Receiver of the parsed chunks of a worker.
+     */
+    private interface Sink {
+
+        void accept(Chunk chunk) throws InterruptedException;
+    }
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final int queueCapacity;
+
+    /**
+     * Creates a scanner running on the common pool with its parallelism.
+     */
+    public WorldScanner() {
+        this(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism(), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates a scanner.
+     *
+     * @param executor <b>ExecutorService</b> executor running the workers
+     *        (isn't shut down by the scanner)
+     * @param parallelism <b>int</b> maximum number of regions scanned at the
+     *        same time
+     * @param queueCapacity <b>int</b> maximum number of parsed chunks waiting
+     *        for the consumer of a stream
+     *
+     * @throws IllegalArgumentException if the parallelism or capacity is less
+     *         than 1
+     */
+    public WorldScanner(final ExecutorService executor, final int parallelism, final int queueCapacity) {
+        if ((parallelism < 1) || (queueCapacity < 1)) {
+            throw new IllegalArgumentException("Invalid parallelism " + parallelism + " or queue capacity " + queueCapacity);
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Scans all chunks of the given world and passes them to the visitor.
+     *
+     * @param world <b>Path</b> world (or region) directory
+     * @param visitor <b>Consumer&lt;Chunk&gt;</b> visitor (called
+     *        concurrently by the workers, has to be thread-safe)
+     * @return <b>Progress</b> final metrics and failures
+     * @throws IOException if the directory can't be read
+     *
+     * @throws RuntimeException thrown by the visitor (the scan is cancelled)
+     */
+    public Progress scan(final Path world, final Consumer<Chunk> visitor) throws IOException {
+        return this.scan(world, visitor, new Progress());
+    }
+
+    /**
+     * Scans all chunks of the given world and passes them to the visitor.
+     * The progress can be polled by another thread during the scan. This
+     * method waits for the workers, so it mustn't be called by a thread of
+     * the executor.
+     *
+     * @param world <b>Path</b> world (or region) directory
+     * @param visitor <b>Consumer&lt;Chunk&gt;</b> visitor (called
+     *        concurrently by the workers, has to be thread-safe)
+     * @param progress <b>Progress</b> new progress receiving the metrics
+     * @return <b>Progress</b> the given progress
+     * @throws IOException if the directory can't be read or the scan is
+     *         interrupted
+     *
+     * @throws RuntimeException thrown by the visitor (the scan is cancelled)
+     * @throws IllegalStateException if the progress was already used
+     */
+    public Progress scan(final Path world, final Consumer<Chunk> visitor, final Progress progress) throws IOException {
+        final List<Path> regions = RegionReader.findRegions(world);
+        progress.start(regions.size());
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final int workers = Math.min(this.parallelism, regions.size());
+        final AtomicInteger next = new AtomicInteger();
+        final CountDownLatch running = new CountDownLatch(workers);
+        for (int i = 0; i < workers; i++) {
+            this.executor.execute(() -> {
+                try {
+                    this.work(regions, next, progress, visitor::accept, cancelled, error);
+                } finally {
+                    running.countDown();
+                }
+            });
+        }
+
+        try {
+            running.await();
+            progress.finish();
+        } catch (final InterruptedException e) {
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Scan of " + world + " interrupted", e);
+        }
+        rethrow(error.get());
+        return progress;
+    }
+
+    /**
+     * Opens a stream of all chunks of the given world. The stream has to be
+     * closed, which cancels the workers if it isn't consumed completely.
+     *
+     * @param world <b>Path</b> world (or region) directory
+     * @return <b>Stream&lt;Chunk&gt;</b> sequential stream of the chunks
+     * @throws IOException if the directory can't be read
+     */
+    public Stream<Chunk> stream(final Path world) throws IOException {
+        return this.stream(world, new Progress());
+    }
+
+    /**
+     * Opens a stream of all chunks of the given world. The stream has to be
+     * closed, which cancels the workers if it isn't consumed completely. The
+     * chunks of different regions are interleaved.
+     *
+     * @param world <b>Path</b> world (or region) directory
+     * @param progress <b>Progress</b> new progress receiving the metrics
+     * @return <b>Stream&lt;Chunk&gt;</b> sequential stream of the chunks
+     * @throws IOException if the directory can't be read
+     *
+     * @throws IllegalStateException if the progress was already used
+     */
+    public Stream<Chunk> stream(final Path world, final Progress progress) throws IOException {
+        final List<Path> regions = RegionReader.findRegions(world);
+        progress.start(regions.size());
+        final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(this.queueCapacity);
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        // Only the consumer closing the stream may drop the end marker
+        final AtomicBoolean closed = new AtomicBoolean();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final int workers = Math.min(this.parallelism, regions.size());
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger running = new AtomicInteger(workers);
+        if (workers == 0) {
+            progress.finish();
+            queue.add(END);
+        }
+
+        final Sink sink = chunk -> offer(queue, chunk, cancelled);
+        for (int i = 0; i < workers; i++) {
+            this.executor.execute(() -> {
+                try {
+                    this.work(regions, next, progress, sink, cancelled, error);
+                } finally {
+                    if (running.decrementAndGet() == 0) {
+                        progress.finish();
+                        try {
+                            // Also after a failure, the consumer still drains the queue
+                            offer(queue, END, closed);
+                        } catch (final InterruptedException | CancellationException e) {
+                            // Nobody is waiting
+                        }
+                    }
+                }
+            });
+        }
+
+        final Iterator<Chunk> iterator = new Iterator<Chunk>() {
+
+            @Nullable
+            private Chunk next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if ((this.next == null) && !this.done) {
+                    final Object item;
+                    try {
+                        item = queue.take();
+                    } catch (final InterruptedException e) {
+                        cancelled.set(true);
+                        Thread.currentThread().interrupt();
+                        throw new CancellationException("Scan of " + world + " interrupted");
+                    }
+                    if (item == END) {
+                        this.done = true;
+                        rethrow(error.get());
+                    } else {
+                        this.next = (Chunk) item;
+                    }
+                }
+                return this.next != null;
+            }
+
+            @Override
+            public Chunk next() {
+                final Chunk chunk = this.next;
+                if (!this.hasNext() || (chunk == null)) {
+                    throw new NoSuchElementException();
+                }
+                this.next = null;
+                return chunk;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false).onClose(() -> {
+            closed.set(true);
+            cancelled.set(true);
+            queue.clear();
+        });
+    }
+
+    /**
+     * Puts an item into the queue, waiting while it is full.
+     *
+     * @throws CancellationException if the given flag is set while waiting
+     */
+    private static void offer(final BlockingQueue<Object> queue, final Object item, final AtomicBoolean cancelled) throws InterruptedException {
+        while (!queue.offer(item, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (cancelled.get()) {
+                throw new CancellationException();
+            }
+        }
+    }
+
+    private static void rethrow(@Nullable final Throwable error) {
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        if (error != null) {
+            throw new IllegalStateException(error);
+        }
+    }
+
+    /**
+     * Scans regions until all are taken, the scan is cancelled or the sink
+     * fails.
+     */
+    private void work(final List<Path> regions, final AtomicInteger next, final Progress progress, final Sink sink,
+            final AtomicBoolean cancelled, final AtomicReference<Throwable> error) {
+        int i;
+        while (!cancelled.get() && ((i = next.getAndIncrement()) < regions.size())) {
+            try {
+                scanRegion(regions.get(i), progress, sink, cancelled);
+                progress.regionDone();
+            } catch (final CancellationException e) {
+                return;
+            } catch (final InterruptedException e) {
+                cancelled.set(true);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final Throwable e) {
+                if (error.compareAndSet(null, e)) {
+                    cancelled.set(true);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Parses all chunks of a region in the order of their sectors.
+     */
+    private static void scanRegion(final Path path, final Progress progress, final Sink sink, final AtomicBoolean cancelled)
+            throws InterruptedException {
+        final RegionReader reader;
+        try {
+            reader = RegionReader.open(path);
+        } catch (final IOException e) {
+            progress.regionFailed(path, e);
+            return;
+        }
+        final Matcher name = RegionReader.REGION_NAME.matcher(path.getFileName().toString());
+        if (!name.matches()) {
+            throw new IllegalStateException("Not a region file: " + path);
+        }
+        final int baseX = Integer.parseInt(name.group(1)) << 5;
+        final int baseZ = Integer.parseInt(name.group(2)) << 5;
+
+        // Sector offset in the upper bits, index in the lower bits
+        final long[] order = new long[RegionReader.CHUNKS];
+        int count = 0;
+        for (int index = 0; index < RegionReader.CHUNKS; index++) {
+            final int location = reader.getLocation(index);
+            if (location != 0) {
+                order[count++] = ((long) (location >>> 8) << 10) | index;
+            }
+        }
+        Arrays.sort(order, 0, count);
+
+        for (int n = 0; n < count; n++) {
+            if (cancelled.get()) {
+                throw new CancellationException();
+            }
+            final int index = (int) (order[n] & (RegionReader.CHUNKS - 1));
+            final int x = index & 31;
+            final int z = index >>> 5;
+            final CompoundTag tag;
+            final int bytes;
+            try {
+                final ByteBuffer stored = reader.getStored(index);
+                if (stored == null) {
+                    continue;
+                }
+                bytes = stored.remaining();
+                tag = reader.parseChunk(index, stored);
+            } catch (final IOException e) {
+                progress.fail(path, e);
+                continue;
+            } catch (final RuntimeException e) {
+                // Any other parse failure is a corrupt chunk as well
+                progress.fail(path, new IOException("Chunk " + x + ", " + z + " is corrupt in " + path, e));
+                continue;
+            }
+            progress.chunk(bytes);
+            sink.accept(new Chunk(path, baseX + x, baseZ + z, bytes, tag));
+        }
+    }
+}
@@ -5,10 +5,16 @@ import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 import com.tree_bit.rcdl.blocks.Repeater.Delay;
+import com.tree_bit.rcdl.blocks.dv.Orientation16;
 import com.tree_bit.rcdl.blocks.dv.OrientationNESW;
+import com.tree_bit.rcdl.blocks.entities.SignEntity;
 
 import org.junit.Test;
 
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
 
 @SuppressWarnings("javadoc")
 public class TestBlock {
@@ -66,6 +72,134 @@ public class TestBlock {
                 this.repeaterBlock.rotate(Axis.Y, 180));
     }
 
+    @SuppressWarnings("static-method")
+    @Test
+    public void testFromStateId() {
+        final Set<Block> blocks = new HashSet<>();
+        for (int i = 0; i < Block.getStateCount(); i++) {
+            final Block b = Block.fromStateId(i);
+            assertEquals(i, b.getStateId());
+            assertTrue(b == Block.getInstance(b.getBlock(), b.getData()));
+            blocks.add(b);
+        }
+        assertEquals(Block.getStateCount(), blocks.size());
+    }
+
+    @SuppressWarnings("static-method")
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromStateIdException() {
+        Block.fromStateId(Block.getStateCount());
+    }
+
+    @Test
+    public void testGetStateId() {
+        assertTrue(this.repeaterBlock == Block.fromStateId(this.repeaterBlock.getStateId()));
+        assertTrue(this.diamondBlock == Block.fromStateId(this.diamondBlock.getStateId()));
+        assertNotEquals(this.repeaterBlock.getStateId(), this.repeaterBlock.rotate(Axis.Y, 90).getStateId());
+
+        final Block sign = Block.getInstance(BlockID.STANDING_SIGN, StandingSign.getInstance(Orientation16.E));
+        final Block textSign =
+                Block.getInstance(BlockID.STANDING_SIGN, StandingSign.getInstance(Orientation16.E, new SignEntity(new String[] {"Text"})));
+        assertEquals(sign.getStateId(), textSign.getStateId());
+        assertEquals(sign, Block.fromStateId(textSign.getStateId()));
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testFromRaw() {
+        for (int i = 0; i < Block.getStateCount(); i++) {
+            final Block b = Block.fromStateId(i);
+            final Block raw = Block.fromRaw(b.getBlock().getId(), b.getData().getDataValue());
+            assertEquals(b.getBlock(), raw.getBlock());
+            assertEquals(b.getData().getDataValue(), raw.getData().getDataValue());
+            assertEquals((b.getBlock().getId() << 4) | b.getData().getDataValue(), Block.stateIdToRaw(i));
+        }
+
+        assertTrue(Block.fromRaw(94, 5) == Block.getInstance(BlockID.REPEATER_ON, Repeater.getInstance(OrientationNESW.East, Delay.D2)));
+        assertTrue(Block.fromRaw(57, 3) == Block.getInstance(BlockID.DIAMOND_BLOCK));
+        assertEquals(Block.fromRaw(50, 3).getStateId(), Block.rawToStateId(50, 3));
+        assertEquals(-1, Block.rawToStateId(50, 0));
+        assertEquals(-1, Block.rawToStateId(256, 0));
+        assertEquals(-1, Block.rawToStateId(1, 16));
+    }
+
+    @SuppressWarnings("static-method")
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromRawException() {
+        Block.fromRaw(BlockID.TORCH.getId(), 0);
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testRotateStateId() {
+        for (int i = 0; i < Block.getStateCount(); i++) {
+            final Block b = Block.fromStateId(i);
+            for (final Axis axis : Axis.values()) {
+                for (int degree = 90; degree < 360; degree += 90) {
+                    Block expected;
+                    try {
+                        expected = Block.getInstance(b.getBlock(), b.getData().rotate(axis, degree));
+                    } catch (final UnsupportedOperationException | IllegalArgumentException e) {
+                        expected = null;
+                    }
+                    final int id = Block.rotateStateId(i, axis, degree);
+                    if (expected == null) {
+                        assertEquals(Block.INVALID_STATE_ID, id);
+                    } else {
+                        assertTrue(expected == Block.fromStateId(id));
+                        assertTrue(expected == b.rotate(axis, degree));
+                    }
+                }
+            }
+        }
+        assertEquals(Block.INVALID_STATE_ID, Block.rotateStateId(Block.getInstance(BlockID.TORCH).getStateId(), Axis.X, 90));
+        assertEquals(Block.getInstance(BlockID.STANDING_SIGN, StandingSign.getInstance(Orientation16.E)).getStateId(),
+                Block.rotateStateId(Block.getInstance(BlockID.STANDING_SIGN, StandingSign.getInstance(Orientation16.N)).getStateId(), Axis.Y, 90));
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testMirrorStateId() {
+        for (int i = 0; i < Block.getStateCount(); i++) {
+            final Block b = Block.fromStateId(i);
+            for (final Axis normal : Axis.values()) {
+                final Set<Axis> plain = EnumSet.complementOf(EnumSet.of(normal));
+                Block expected;
+                try {
+                    expected = Block.getInstance(b.getBlock(), b.getData().mirror(plain));
+                } catch (final UnsupportedOperationException e) {
+                    expected = null;
+                }
+                final int id = Block.mirrorStateId(i, plain);
+                if (expected == null) {
+                    assertEquals(Block.INVALID_STATE_ID, id);
+                } else {
+                    assertTrue(expected == Block.fromStateId(id));
+                    assertTrue(expected == b.mirror(plain));
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testRotateTileEntity() {
+        final SignEntity text = new SignEntity(new String[] {"Text"});
+        final Block sign = Block.getInstance(BlockID.STANDING_SIGN, StandingSign.getInstance(Orientation16.N, text));
+        assertEquals(Block.getInstance(BlockID.STANDING_SIGN, StandingSign.getInstance(Orientation16.E, text)), sign.rotate(Axis.Y, 90));
+        assertEquals(Block.getInstance(BlockID.STANDING_SIGN, StandingSign.getInstance(Orientation16.S, text)), sign.mirror(Axis.plain(Axis.X, Axis.Y)));
+    }
+
+    @Test(expected = PlacementInvalidException.class)
+    public void testRotateInvalid() {
+        Block.getInstance(BlockID.TORCH).rotate(Axis.X, 90);
+    }
+
+    @Test(expected = PlacementInvalidException.class)
+    public void testMirrorInvalid() {
+        this.repeaterBlock.mirror(Axis.plain(Axis.X, Axis.Z));
+    }
+
     @Test
     public void testCompareTo() {
         assertTrue(this.diamondBlock.compareTo(this.repeaterBlock) < 0);
@@ -3,6 +3,8 @@ package com.tree_bit.rcdl.blocks;
 import static org.junit.Assert.assertEquals;
 
 import com.tree_bit.rcdl.blocks.Repeater.Delay;
+import com.tree_bit.rcdl.blocks.dv.Color;
+import com.tree_bit.rcdl.blocks.dv.IOrientationEnum;
 import com.tree_bit.rcdl.blocks.dv.OrientationNESW;
 
 import org.junit.Test;
@@ -16,4 +18,22 @@ public class TestBlockData {
         assertEquals(0, Repeater.getInstance(OrientationNESW.North, Delay.D1).getDataValue());
         assertEquals(5, Repeater.getInstance(OrientationNESW.East, Delay.D2).getDataValue());
     }
+
+    @Test
+    public void testGet() {
+        final Repeater repeater = Repeater.getInstance(OrientationNESW.East, Delay.D2);
+        assertEquals(OrientationNESW.East, repeater.get(OrientationNESW.class));
+        assertEquals(Delay.D2, repeater.get(Delay.class));
+        assertEquals(OrientationNESW.East, repeater.get(IOrientationEnum.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetMissing() {
+        Repeater.getInstance().get(Color.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetInstanceInvalidDataValues() {
+        BlockDataFactory.getInstance(Repeater.class, OrientationNESW.East);
+    }
 }
@@ -0,0 +1,66 @@
+package com.tree_bit.rcdl.blocks;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+@SuppressWarnings({"javadoc", "static-method"})
+public class TestBlockDataFactory {
+
+    private static final int THREADS = 32;
+
+    @Test
+    public void testGetDefaultInstanceConcurrent() throws Exception {
+        final BlockID[] ids = BlockID.values();
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<Block[]>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int offset = t;
+                futures.add(executor.submit(new Callable<Block[]>() {
+
+                    @Override
+                    public Block[] call() throws Exception {
+                        barrier.await();
+                        final Block[] blocks = new Block[ids.length];
+                        // Different order per thread to maximize contention
+                        for (int i = 0; i < ids.length; i++) {
+                            final int index = (i + offset) % ids.length;
+                            blocks[index] = Block.getInstance(ids[index]);
+                            assertTrue(blocks[index].getData() == BlockDataFactory.getDefaultInstance(ids[index].getDataClass()));
+                        }
+                        return blocks;
+                    }
+                }));
+            }
+
+            final Block[] first = futures.get(0).get();
+            for (final Future<Block[]> future : futures) {
+                final Block[] blocks = future.get();
+                for (int i = 0; i < ids.length; i++) {
+                    assertTrue(first[i] == blocks[i]);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGetDefaultInstance() {
+        assertTrue(Torch.getInstance() == BlockDataFactory.getDefaultInstance(Torch.class));
+        assertTrue(StandingSign.getInstance() == BlockDataFactory.getDefaultInstance(StandingSign.class));
+        assertTrue(BlockDataFactory.getDefaultInstance(Repeater.class) == BlockDataFactory.getInstance(Repeater.class,
+                Repeater.getInstance().getData().asSet()));
+    }
+}
@@ -1,6 +1,7 @@
 package com.tree_bit.rcdl.blocks;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import org.junit.Test;
 
@@ -19,4 +20,61 @@ public class TestBlockID {
         assertEquals(Repeater.class, BlockID.REPEATER_OFF.getDataClass());
     }
 
+    @Test
+    public void testFromId() {
+        for (final BlockID block : BlockID.values()) {
+            assertSame(block, BlockID.fromId(block.getId()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromIdUnknown() {
+        BlockID.fromId(198);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromIdNegative() {
+        BlockID.fromId(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromIdTooLarge() {
+        BlockID.fromId(4096);
+    }
+
+    @Test
+    public void testFromName() {
+        assertSame(BlockID.STONE, BlockID.fromName("STONE"));
+        assertSame(BlockID.STONE, BlockID.fromName("stone"));
+        assertSame(BlockID.STONE, BlockID.fromName("minecraft:stone"));
+        assertSame(BlockID.STONE, BlockID.fromName("Minecraft:Stone"));
+        assertSame(BlockID.REPEATER_OFF, BlockID.fromName("REPEATER_OFF"));
+        assertSame(BlockID.REPEATER_OFF, BlockID.fromName("minecraft:unpowered_repeater"));
+        assertSame(BlockID.STONE_SLAB_2, BlockID.fromName("stone_slab2"));
+    }
+
+    @Test
+    public void testFromNameAll() {
+        for (final BlockID block : BlockID.values()) {
+            assertSame(block, BlockID.fromName(block.name()));
+            assertSame(block, BlockID.fromName(block.getMinecraftName()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromNameUnknown() {
+        BlockID.fromName("minecraft:unknown");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromNamePrefixOnly() {
+        BlockID.fromName("minecraft:");
+    }
+
+    @Test
+    public void testGetMinecraftName() {
+        assertEquals("minecraft:stone", BlockID.STONE.getMinecraftName());
+        assertEquals("minecraft:lit_pumpkin", BlockID.JACK_O_LANTERN.getMinecraftName());
+    }
+
 }
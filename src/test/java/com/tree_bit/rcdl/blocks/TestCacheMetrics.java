@@ -0,0 +1,67 @@
+package com.tree_bit.rcdl.blocks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.tree_bit.rcdl.blocks.dv.OrientationNESW;
+
+import com.google.common.cache.CacheStats;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+
+
+@SuppressWarnings({"javadoc", "static-method"})
+public class TestCacheMetrics {
+
+    @Test
+    public void testBlockStats() {
+        final BlockData data = Block.getInstance(BlockID.REPEATER_OFF).getData().setData(OrientationNESW.West);
+        Block.getInstance(BlockID.REPEATER_OFF, data);
+        final CacheStats before = CacheMetrics.forBlocks().stats();
+        Block.getInstance(BlockID.REPEATER_OFF, data);
+        final CacheStats diff = CacheMetrics.forBlocks().stats().minus(before);
+        assertEquals(1, diff.hitCount());
+        assertEquals(0, diff.missCount());
+    }
+
+    @Test
+    public void testBlockDataStats() {
+        final CacheStats before = CacheMetrics.forBlockData().stats();
+        BlockDataFactory.getInstance(StandingSign.class, null, BlockDataFactory.getDefaultInstance(StandingSign.class).getData().asSet());
+        final CacheStats diff = CacheMetrics.forBlockData().stats().minus(before);
+        assertEquals(1, diff.requestCount());
+    }
+
+    @Test
+    public void testMetrics() {
+        final CacheMetrics metrics = CacheMetrics.forBlocks();
+        Block.getInstance(BlockID.STONE, BlockDataFactory.getDefaultInstance(GenericBlockData.class));
+        assertEquals("Block", metrics.getName());
+        assertTrue(metrics.getSize() > 0);
+        assertTrue(metrics.getHitCount() + metrics.getMissCount() > 0);
+        assertEquals(!Boolean.getBoolean(CacheMetrics.STRONG_PROPERTY), metrics.isWeakValues());
+    }
+
+    @Test
+    public void testMBeans() throws Exception {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        CacheMetrics.registerMBeans();
+        // Registering twice is allowed
+        CacheMetrics.registerMBeans();
+        try {
+            assertTrue(server.isRegistered(CacheMetrics.forBlocks().getObjectName()));
+            assertTrue(server.isRegistered(CacheMetrics.forBlockData().getObjectName()));
+            assertEquals("BlockData", server.getAttribute(CacheMetrics.forBlockData().getObjectName(), "Name"));
+            assertTrue(((Long) server.getAttribute(CacheMetrics.forBlocks().getObjectName(), "Size")).longValue() > 0);
+        } finally {
+            CacheMetrics.unregisterMBeans();
+        }
+        assertFalse(server.isRegistered(CacheMetrics.forBlocks().getObjectName()));
+        CacheMetrics.unregisterMBeans();
+    }
+}
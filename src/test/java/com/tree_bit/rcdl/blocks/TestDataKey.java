@@ -0,0 +1,36 @@
+package com.tree_bit.rcdl.blocks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+
+@SuppressWarnings("javadoc")
+public class TestDataKey {
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testEquals() {
+        assertEquals(DataKey.of("row", Integer.valueOf(1), "layer"), DataKey.of("row", Integer.valueOf(1), "layer"));
+        assertEquals(DataKey.of("row", Integer.valueOf(1)), DataKey.of("row", Integer.valueOf(1), null));
+        assertNotEquals(DataKey.of("row", Integer.valueOf(1), "a"), DataKey.of("row", Integer.valueOf(1), "b"));
+        assertNotEquals(DataKey.of("row", Integer.valueOf(1)), DataKey.of("row", Integer.valueOf(1), "a"));
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testHashCodeIncludesLayer() {
+        assertEquals(DataKey.of("row", Integer.valueOf(1), "layer").hashCode(), DataKey.of("row", Integer.valueOf(1), "layer").hashCode());
+        assertEquals(DataKey.of("row", Integer.valueOf(1)).hashCode(), DataKey.of("row", Integer.valueOf(1), null).hashCode());
+        // Keys only differing in the layer (e.g. tile entities of one state) mustn't share a hash chain
+        final Set<Integer> hashes = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            hashes.add(Integer.valueOf(DataKey.of("row", Integer.valueOf(1), Integer.valueOf(i)).hashCode()));
+        }
+        assertEquals(100, hashes.size());
+    }
+}
@@ -0,0 +1,91 @@
+package com.tree_bit.rcdl.blocks;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.tree_bit.rcdl.blocks.Repeater.Delay;
+import com.tree_bit.rcdl.blocks.dv.Color;
+import com.tree_bit.rcdl.blocks.dv.IDataValueEnum;
+import com.tree_bit.rcdl.blocks.dv.OrientationNESW;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+
+@SuppressWarnings({"javadoc", "static-method"})
+public class TestDataLayout {
+
+    private final DataLayout repeater = DataLayout.of(Repeater.class);
+
+    @Test
+    public void testOf() {
+        assertTrue(this.repeater == DataLayout.of(Repeater.class));
+    }
+
+    @Test
+    public void testSize() {
+        assertEquals(16, this.repeater.size());
+        assertEquals(5, DataLayout.of(Torch.class).size());
+        assertEquals(16, DataLayout.of(HalfSlab1.class).size());
+        assertEquals(1, DataLayout.of(GenericBlockData.class).size());
+        assertEquals(4, DataLayout.of(HangingSign.class).size());
+    }
+
+    @Test
+    public void testIndexOf() {
+        final Set<Integer> indices = new HashSet<>();
+        for (int i = 0; i < this.repeater.size(); i++) {
+            final BlockData data = this.repeater.dataOf(i);
+            assertEquals(i, this.repeater.indexOf(data));
+            indices.add(i);
+        }
+        assertEquals(16, indices.size());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    public void testIndexOfInvalid() {
+        assertEquals(-1, this.repeater.indexOf(ImmutableList.<IDataValueEnum>of(OrientationNESW.East)));
+        assertEquals(-1, this.repeater.indexOf(ImmutableList.<IDataValueEnum>of(OrientationNESW.East, Color.Red)));
+        assertEquals(-1, this.repeater.indexOf(ImmutableList.<IDataValueEnum>of(OrientationNESW.East, OrientationNESW.West, Delay.D1)));
+    }
+
+    @Test
+    public void testValuesOf() {
+        final int index = this.repeater.indexOf(Repeater.getInstance(OrientationNESW.West, Delay.D4));
+        final IDataValueEnum[] values = this.repeater.valuesOf(index);
+        assertEquals(Repeater.getInstance(OrientationNESW.West, Delay.D4), BlockDataFactory.create(Repeater.class, values, null));
+    }
+
+    @Test
+    public void testCreateInstances() {
+        final BlockData[] instances = this.repeater.createInstances();
+        assertEquals(16, instances.length);
+        for (int i = 0; i < instances.length; i++) {
+            assertEquals(this.repeater.dataOf(i), instances[i]);
+        }
+    }
+
+    @Test
+    public void testGetCanonical() {
+        assertEquals(BlockDataFactory.isCanonical(), this.repeater.isCanonical());
+        assertEquals(BlockDataFactory.isCanonical(), DataLayout.of(Torch.class).getCanonical(0) != null);
+        assertEquals(null, DataLayout.of(StandingSign.class).getCanonical(0));
+        if (this.repeater.isCanonical()) {
+            assertTrue(this.repeater.getCanonical(3) == this.repeater.dataOf(3));
+            assertTrue(Repeater.getInstance() == this.repeater.getCanonical(this.repeater.indexOf(Repeater.getInstance())));
+        }
+    }
+
+    @Test
+    public void testDimensionOrder() {
+        // Dimensions ordered by class name: Repeater$Delay, dv.OrientationNESW
+        assertArrayEquals(new IDataValueEnum[] {Delay.D2, OrientationNESW.North}, this.repeater.valuesOf(1));
+        assertArrayEquals(new IDataValueEnum[] {Delay.D1, OrientationNESW.East}, this.repeater.valuesOf(4));
+    }
+}
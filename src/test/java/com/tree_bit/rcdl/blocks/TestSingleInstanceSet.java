@@ -204,6 +204,49 @@ public class TestSingleInstanceSet {
         assertTrue(foo.asSet().containsAll(ImmutableSet.of(b, c)));
     }
 
+    @SuppressWarnings("null")
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetMissing() {
+        this.setA.add(a1);
+        this.setA.get(B.class);
+    }
+
+    @Test
+    public void testSize() {
+        assertEquals(0, this.setA.size());
+        this.setA.add(a1);
+        this.setA.add(a2);
+        this.setA.add(b);
+        assertEquals(2, this.setA.size());
+
+        this.setA_A.add(b);
+        this.setA_A.add(c);
+        assertEquals(1, this.setA_A.size());
+    }
+
+    @Test
+    public void testEqualsOrder() {
+        final SingleInstanceSet<A> other = new SingleInstanceSet<>();
+        this.setA.add(a1);
+        this.setA.add(b);
+        other.add(b);
+        other.add(a1);
+
+        assertEquals(this.setA, other);
+        assertEquals(this.setA.hashCode(), other.hashCode());
+
+        other.add(a2);
+        assertFalse(this.setA.equals(other));
+        assertFalse(this.setA.equals(this.setA_A));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    public void testGetConstraints() {
+        assertEquals(ImmutableSet.of(B.class), this.setA_B.getConstraints());
+        assertTrue(this.setA.getConstraints().isEmpty());
+    }
+
     @Test
     public void testToString() {
         assertFalse(this.setA.toString().contains("@"));
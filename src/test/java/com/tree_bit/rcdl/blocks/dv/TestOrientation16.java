@@ -29,6 +29,21 @@ public class TestOrientation16 {
         assertEquals(Orientation16.NW, Orientation16.SSW.rotate(Axis.Y, 5));
     }
 
+    @SuppressWarnings("static-method")
+    @Test
+    public void testRotateDegree() {
+        assertEquals(Orientation16.W, Orientation16.S.rotateDegree(Axis.Y, 90));
+        assertEquals(Orientation16.N, Orientation16.S.rotateDegree(Axis.Y, 180));
+        assertEquals(Orientation16.NNE, Orientation16.SSW.rotateDegree(Axis.Y, -180));
+        assertEquals(Orientation16.WSW, Orientation16.SSW.rotateDegree(Axis.Y, 45));
+    }
+
+    @SuppressWarnings("static-method")
+    @Test(expected = IllegalArgumentException.class)
+    public void testRotateDegreeInvalid() {
+        Orientation16.N.rotateDegree(Axis.Y, 30);
+    }
+
     @SuppressWarnings("static-method")
     @Test(expected = UnsupportedOperationException.class)
     public void testRotateX() {
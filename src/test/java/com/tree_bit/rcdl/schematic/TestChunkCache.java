@@ -0,0 +1,200 @@
+package com.tree_bit.rcdl.schematic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.cache.CacheStats;
+
+import org.jnbt.ByteArrayTag;
+import org.jnbt.CompoundTag;
+import org.jnbt.Tag;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+
+@SuppressWarnings("javadoc")
+public class TestChunkCache {
+
+    private static final int DATA_SIZE = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path dir;
+    /** Budget for three chunks */
+    private long budget;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = this.folder.getRoot().toPath().resolve("region");
+        try (RegionWriter writer = RegionWriter.open(this.dir.resolve("r.0.0.mca"))) {
+            for (int x = 0; x < 8; x++) {
+                writer.writeChunk(x, 0, TestRegionWriter.chunk(x, 0, DATA_SIZE));
+            }
+        }
+        this.budget = (3 * ChunkCache.weigh(TestRegionWriter.chunk(0, 0, DATA_SIZE))) + 10;
+    }
+
+    private static byte[] data(final CompoundTag chunk) {
+        return ((ByteArrayTag) chunk.getValue().get("Data")).getValue();
+    }
+
+    @Test
+    public void testHitAndMiss() throws IOException {
+        final ChunkCache cache = new ChunkCache(this.dir, this.budget);
+        final CompoundTag chunk = cache.get(1, 0);
+        assertEquals(TestRegionWriter.chunk(1, 0, DATA_SIZE), chunk);
+        assertSame(chunk, cache.get(1, 0));
+        assertSame(chunk, cache.getIfPresent(1, 0));
+        assertNull(cache.getIfPresent(2, 0));
+        // Absent chunk and absent region
+        assertNull(cache.get(1, 1));
+        assertNull(cache.get(100, 100));
+
+        final CacheStats stats = cache.stats();
+        assertEquals(1, stats.hitCount());
+        assertEquals(3, stats.missCount());
+        assertEquals(1, stats.loadSuccessCount());
+        assertEquals(0, stats.evictionCount());
+        assertEquals(1, cache.size());
+        assertEquals(ChunkCache.weigh(chunk), cache.getWeightedSize());
+    }
+
+    @Test
+    public void testLruEviction() throws IOException {
+        final ChunkCache cache = new ChunkCache(this.dir, this.budget);
+        cache.get(0, 0);
+        cache.get(1, 0);
+        cache.get(2, 0);
+        assertEquals(3, cache.size());
+        // 0 is used again, so 1 is the least recently used chunk
+        cache.get(0, 0);
+        cache.get(3, 0);
+        assertEquals(3, cache.size());
+        assertNull(cache.getIfPresent(1, 0));
+        assertNotNull(cache.getIfPresent(0, 0));
+        assertEquals(1, cache.stats().evictionCount());
+        assertTrue(cache.getWeightedSize() <= cache.getMaxBytes());
+    }
+
+    @Test
+    public void testWriteBackOnEviction() throws IOException {
+        final ChunkCache cache = new ChunkCache(this.dir, this.budget);
+        final CompoundTag changed = TestRegionWriter.chunk(0, 0, 2 * DATA_SIZE);
+        cache.put(0, 0, changed);
+        assertEquals(1, cache.getDirtyCount());
+        // Not written yet
+        assertEquals(TestRegionWriter.chunk(0, 0, DATA_SIZE), RegionReader.open(this.dir.resolve("r.0.0.mca")).readChunk(0, 0));
+
+        for (int x = 1; x < 8; x++) {
+            cache.get(x, 0);
+        }
+        assertNull(cache.getIfPresent(0, 0));
+        assertEquals(0, cache.getDirtyCount());
+        assertEquals(1, cache.getWriteBackCount());
+        assertEquals(changed, RegionReader.open(this.dir.resolve("r.0.0.mca")).readChunk(0, 0));
+        // Loaded again from the new file
+        assertEquals(changed, cache.get(0, 0));
+    }
+
+    @Test
+    public void testFlushNewRegion() throws IOException {
+        final ChunkCache cache = new ChunkCache(this.folder.getRoot().toPath().resolve("DIM1/region"), this.budget);
+        final CompoundTag chunk = TestRegionWriter.chunk(-1, 40, DATA_SIZE);
+        cache.put(-1, 40, chunk);
+        cache.put(-2, 40, TestRegionWriter.chunk(-2, 40, DATA_SIZE));
+        assertEquals(2, cache.getDirtyCount());
+        cache.flush();
+        assertEquals(0, cache.getDirtyCount());
+        assertEquals(2, cache.size());
+        final Path region = this.folder.getRoot().toPath().resolve("DIM1/region/r.-1.1.mca");
+        assertTrue(Files.isRegularFile(region));
+        assertEquals(chunk, RegionReader.open(region).readChunk(-1, 40));
+        // Nothing left to write
+        cache.close();
+        assertEquals(2, cache.getWriteBackCount());
+    }
+
+    @Test
+    public void testMarkDirty() throws IOException {
+        final ChunkCache cache = new ChunkCache(this.dir, this.budget);
+        assertFalse(cache.markDirty(2, 0));
+        final CompoundTag chunk = cache.get(2, 0);
+        data(chunk)[0] = 42;
+        assertTrue(cache.markDirty(2, 0));
+        assertEquals(1, cache.getDirtyCount());
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeightedSize());
+        assertEquals(42, data(cache.get(2, 0))[0]);
+    }
+
+    @Test
+    public void testMarkDirtyEvicts() throws IOException {
+        final ChunkCache cache = new ChunkCache(this.dir, this.budget);
+        cache.get(0, 0);
+        cache.get(1, 0);
+        final Map<String, Tag> values = new HashMap<>(TestRegionWriter.chunk(2, 0, DATA_SIZE).getValue());
+        final CompoundTag chunk = new CompoundTag("", values);
+        cache.put(2, 0, chunk);
+        assertEquals(3, cache.size());
+        // Grown in place
+        values.put("Data", new ByteArrayTag("Data", new byte[2 * DATA_SIZE]));
+        assertTrue(cache.markDirty(2, 0));
+        assertTrue(cache.getWeightedSize() <= cache.getMaxBytes());
+        assertEquals(2, cache.size());
+        assertNull(cache.getIfPresent(0, 0));
+        assertSame(chunk, cache.getIfPresent(2, 0));
+        assertEquals(1, cache.stats().evictionCount());
+    }
+
+    @Test
+    public void testReadersBounded() throws IOException {
+        final int regions = ChunkCache.MAX_READERS + 4;
+        for (int r = 1; r <= regions; r++) {
+            try (RegionWriter writer = RegionWriter.open(this.dir.resolve(RegionReader.fileName(r * 32, 0)))) {
+                writer.writeChunk(r * 32, 0, TestRegionWriter.chunk(r * 32, 0, 10));
+            }
+        }
+        final ChunkCache cache = new ChunkCache(this.dir, this.budget);
+        for (int r = 1; r <= regions; r++) {
+            assertEquals(TestRegionWriter.chunk(r * 32, 0, 10), cache.get(r * 32, 0));
+            assertTrue(cache.getReaderCount() <= ChunkCache.MAX_READERS);
+        }
+        assertEquals(ChunkCache.MAX_READERS, cache.getReaderCount());
+        // A dropped region is mapped again
+        cache.invalidateAll();
+        assertEquals(0, cache.getReaderCount());
+        assertEquals(TestRegionWriter.chunk(32, 0, 10), cache.get(32, 0));
+    }
+
+    @Test
+    public void testOversizedChunk() throws IOException {
+        final ChunkCache cache = new ChunkCache(this.dir, 0);
+        cache.get(0, 0);
+        assertEquals(1, cache.size());
+        cache.get(1, 0);
+        assertEquals(1, cache.size());
+        assertNotNull(cache.getIfPresent(1, 0));
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testWeigh() {
+        final long small = ChunkCache.weigh(TestRegionWriter.chunk(0, 0, 100));
+        final long large = ChunkCache.weigh(TestRegionWriter.chunk(0, 0, 1100));
+        assertEquals(1000, large - small);
+    }
+}
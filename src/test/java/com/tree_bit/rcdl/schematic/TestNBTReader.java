@@ -0,0 +1,249 @@
+package com.tree_bit.rcdl.schematic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.tree_bit.rcdl.schematic.NBTReader.Event;
+
+import org.jnbt.ByteArrayTag;
+import org.jnbt.ByteTag;
+import org.jnbt.CompoundTag;
+import org.jnbt.DoubleTag;
+import org.jnbt.IntArrayTag;
+import org.jnbt.IntTag;
+import org.jnbt.ListTag;
+import org.jnbt.LongTag;
+import org.jnbt.NBTConstants;
+import org.jnbt.NBTOutputStream;
+import org.jnbt.ShortTag;
+import org.jnbt.StringTag;
+import org.jnbt.Tag;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+@SuppressWarnings({"javadoc", "static-method"})
+public class TestNBTReader {
+
+    private static byte[] write(final Tag root, final boolean gzipped) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (NBTOutputStream nbt = new NBTOutputStream(out, gzipped)) {
+            nbt.writeTag(root);
+        }
+        return out.toByteArray();
+    }
+
+    private static CompoundTag compound(final String name, final Tag... tags) {
+        final Map<String, Tag> map = new LinkedHashMap<>();
+        for (final Tag tag : tags) {
+            map.put(tag.getName(), tag);
+        }
+        return new CompoundTag(name, map);
+    }
+
+    private static byte[] bytes(final int length) {
+        final byte[] b = new byte[length];
+        for (int i = 0; i < length; i++) {
+            b[i] = (byte) (i * 31);
+        }
+        return b;
+    }
+
+    @Test
+    public void testEvents() throws IOException {
+        final CompoundTag root = compound("Schematic", new ShortTag("Width", (short) 3), new StringTag("Materials", "Alpha"),
+                new ByteTag("B", (byte) -2), new IntTag("I", 123456), new LongTag("L", -5L), new DoubleTag("D", 0.5),
+                new ListTag("List", IntTag.class, Arrays.<Tag>asList(new IntTag("", 1), new IntTag("", 2))),
+                compound("Nested", new ByteArrayTag("Arr", bytes(4))));
+
+        try (NBTReader reader = new NBTReader(new ByteArrayInputStream(write(root, true)))) {
+            assertEquals(Event.START_COMPOUND, reader.next());
+            assertEquals("Schematic", reader.getName());
+            assertEquals(Event.VALUE, reader.next());
+            assertEquals("Width", reader.getName());
+            assertEquals(3, reader.getShort());
+            assertEquals(1, reader.getDepth());
+            assertEquals(Event.VALUE, reader.next());
+            assertEquals("Alpha", reader.getString());
+            assertEquals(Event.VALUE, reader.next());
+            assertEquals(-2, reader.getByte());
+            assertEquals(Event.VALUE, reader.next());
+            assertEquals(123456, reader.getInt());
+            assertEquals(Event.VALUE, reader.next());
+            assertEquals(-5L, reader.getLong());
+            assertEquals(Event.VALUE, reader.next());
+            assertEquals(0.5, reader.getDouble(), 0);
+            assertEquals(Event.START_LIST, reader.next());
+            assertEquals(2, reader.getArrayLength());
+            assertEquals(NBTConstants.TYPE_INT, reader.getElementType());
+            assertEquals(Event.VALUE, reader.next());
+            assertEquals(1, reader.getInt());
+            assertEquals("", reader.getName());
+            assertEquals(Event.VALUE, reader.next());
+            assertEquals(2, reader.getInt());
+            assertEquals(Event.END_LIST, reader.next());
+            assertEquals(Event.START_COMPOUND, reader.next());
+            assertEquals(Event.BYTE_ARRAY, reader.next());
+            assertEquals(2, reader.getDepth());
+            final byte[] b = new byte[4];
+            assertEquals(4, reader.readBytes(b, 0, 4));
+            assertArrayEquals(bytes(4), b);
+            assertEquals(-1, reader.readBytes(b, 0, 4));
+            assertEquals(Event.END_COMPOUND, reader.next());
+            assertEquals(Event.END_COMPOUND, reader.next());
+            assertEquals(Event.END_DOCUMENT, reader.next());
+            assertEquals(Event.END_DOCUMENT, reader.next());
+        }
+    }
+
+    @Test
+    public void testByteArrayChunks() throws IOException {
+        final byte[] expected = bytes(100000);
+        final CompoundTag root = compound("", new ByteArrayTag("Blocks", expected), new ShortTag("After", (short) 7));
+
+        try (NBTReader reader = new NBTReader(new ByteArrayInputStream(write(root, false)), false)) {
+            reader.next();
+            assertEquals(Event.BYTE_ARRAY, reader.next());
+            assertEquals(expected.length, reader.getArrayLength());
+            final byte[] actual = new byte[expected.length];
+            int read = 0;
+            int n;
+            while ((n = reader.readBytes(actual, read, 777)) > 0) {
+                read += n;
+            }
+            assertEquals(expected.length, read);
+            assertArrayEquals(expected, actual);
+            assertEquals(Event.VALUE, reader.next());
+            assertEquals(7, reader.getShort());
+        }
+    }
+
+    @Test
+    public void testSkipArray() throws IOException {
+        final CompoundTag root = compound("", new ByteArrayTag("Blocks", bytes(50000)), new IntArrayTag("Ints", new int[] {1, 2, 3}),
+                new ShortTag("After", (short) 7));
+
+        try (NBTReader reader = new NBTReader(new ByteArrayInputStream(write(root, true)))) {
+            reader.next();
+            assertEquals(Event.BYTE_ARRAY, reader.next());
+            // Partially read, rest is skipped
+            reader.readBytes(new byte[10], 0, 10);
+            assertEquals(Event.INT_ARRAY, reader.next());
+            final int[] ints = new int[3];
+            assertEquals(3, reader.readInts(ints, 0, 3));
+            assertArrayEquals(new int[] {1, 2, 3}, ints);
+            assertEquals(Event.VALUE, reader.next());
+            assertEquals(7, reader.getShort());
+        }
+    }
+
+    @Test
+    public void testSkipChildren() throws IOException {
+        final CompoundTag root = compound("", compound("Entity", new StringTag("id", "Sign"), compound("Inner", new IntTag("x", 1))),
+                new ListTag("Pos", DoubleTag.class, Arrays.<Tag>asList(new DoubleTag("", 1), new DoubleTag("", 2))),
+                new ListTag("Entities", CompoundTag.class, Arrays.<Tag>asList(compound("", new IntTag("x", 1)))), new ShortTag("After", (short) 7));
+
+        try (NBTReader reader = new NBTReader(new ByteArrayInputStream(write(root, true)))) {
+            reader.next();
+            assertEquals(Event.START_COMPOUND, reader.next());
+            reader.skipChildren();
+            assertEquals(Event.END_COMPOUND, reader.getEvent());
+            assertEquals(Event.START_LIST, reader.next());
+            reader.skipChildren();
+            assertEquals(Event.END_LIST, reader.getEvent());
+            assertEquals(Event.START_LIST, reader.next());
+            reader.skipChildren();
+            assertEquals(Event.END_LIST, reader.getEvent());
+            assertEquals(Event.VALUE, reader.next());
+            assertEquals("After", reader.getName());
+        }
+    }
+
+    @Test
+    public void testOffsets() throws IOException {
+        final CompoundTag root = compound("S", new ShortTag("W", (short) 1), new ByteArrayTag("Blocks", bytes(20000)));
+        final byte[] raw = write(root, false);
+
+        try (NBTReader reader = new NBTReader(new ByteArrayInputStream(raw), false)) {
+            reader.next();
+            reader.next();
+            assertEquals(Event.BYTE_ARRAY, reader.next());
+            final int offset = (int) reader.getPayloadOffset();
+            assertArrayEquals(bytes(20000), Arrays.copyOfRange(raw, offset, offset + 20000));
+            reader.next();
+            assertEquals(raw.length, reader.getOffset());
+        }
+    }
+
+    @Test
+    public void testSkipOffsets() throws IOException {
+        // Arrays larger than the buffer are skipped by inflating into it
+        final CompoundTag root = compound("S", new ByteArrayTag("Blocks", bytes(100000)), new ByteArrayTag("Data", bytes(30000)),
+                new ShortTag("After", (short) 7));
+        final byte[] raw = write(root, false);
+
+        try (NBTReader reader = new NBTReader(new ByteArrayInputStream(write(root, true)))) {
+            reader.next();
+            assertEquals(Event.BYTE_ARRAY, reader.next());
+            reader.readBytes(new byte[5000], 0, 5000);
+            assertEquals(Event.BYTE_ARRAY, reader.next());
+            final int offset = (int) reader.getPayloadOffset();
+            assertArrayEquals(bytes(30000), Arrays.copyOfRange(raw, offset, offset + 30000));
+            final byte[] data = new byte[10];
+            assertEquals(10, reader.readBytes(data, 0, 10));
+            assertArrayEquals(Arrays.copyOf(bytes(30000), 10), data);
+            assertEquals(Event.VALUE, reader.next());
+            assertEquals(7, reader.getShort());
+            reader.next();
+            assertEquals(raw.length, reader.getOffset());
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedSkip() throws IOException {
+        final byte[] raw = write(compound("", new ByteArrayTag("Blocks", bytes(100000))), false);
+        try (NBTReader reader = new NBTReader(new ByteArrayInputStream(Arrays.copyOf(raw, 50000)), false)) {
+            reader.next();
+            reader.next();
+            reader.next();
+        }
+    }
+
+    @Test
+    public void testUnicodeName() throws IOException {
+        final CompoundTag root = compound("", new StringTag("Täxt", "€ \u0000"));
+
+        try (NBTReader reader = new NBTReader(new ByteArrayInputStream(write(root, true)))) {
+            reader.next();
+            reader.next();
+            assertEquals("Täxt", reader.getName());
+            assertEquals("€ \u0000", reader.getString());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWrongType() throws IOException {
+        try (NBTReader reader = new NBTReader(new ByteArrayInputStream(write(compound("", new IntTag("I", 1)), true)))) {
+            reader.next();
+            reader.next();
+            reader.getShort();
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncated() throws IOException {
+        final byte[] raw = write(compound("", new ByteArrayTag("Blocks", bytes(1000))), false);
+        try (NBTReader reader = new NBTReader(new ByteArrayInputStream(Arrays.copyOf(raw, 500)), false)) {
+            while (reader.next() != Event.END_DOCUMENT) {
+                // Read until the end
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.tree_bit.rcdl.schematic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.tree_bit.rcdl.blocks.Block;
+import com.tree_bit.rcdl.blocks.BlockID;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+
+@SuppressWarnings("javadoc")
+public class TestPalettedVolume {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static SchematicVolume random(final int w, final int h, final int l, final int distinct) {
+        final SchematicVolume volume = new SchematicVolume(w, h, l);
+        final Random random = new Random(3);
+        for (int i = 0; i < volume.getVolume(); i++) {
+            // Arbitrary raw values, including unknown ids and data values
+            final int raw = (random.nextInt(distinct) * 97) % 4096;
+            volume.getBlocks()[i] = (byte) (raw >>> 4);
+            volume.getData()[i] = (byte) (raw & 0x0F);
+        }
+        return volume;
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testRoundTrip() {
+        for (final int distinct : new int[] {1, 2, 3, 16, 17, 256, 257, 4096}) {
+            final SchematicVolume volume = random(17, 5, 9, distinct);
+            final PalettedVolume paletted = PalettedVolume.of(volume);
+            final SchematicVolume back = paletted.toVolume();
+            assertArrayEquals(volume.getBlocks(), back.getBlocks());
+            assertArrayEquals(volume.getData(), back.getData());
+            assertTrue(paletted.getPaletteSize() <= distinct);
+        }
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testBitsGrow() {
+        final PalettedVolume volume = new PalettedVolume(10, 10, 10);
+        assertEquals(1, volume.getBitsPerEntry());
+        assertSame(Block.getInstance(BlockID.AIR), volume.getBlock(9, 9, 9));
+
+        volume.setBlock(1, 2, 3, Block.getInstance(BlockID.STONE));
+        assertEquals(1, volume.getBitsPerEntry());
+        // Grow through all entry sizes while keeping the existing blocks
+        for (int raw = 0; raw < 300; raw++) {
+            volume.setRaw(500 + raw, raw);
+        }
+        assertEquals(9, volume.getBitsPerEntry());
+        assertSame(Block.getInstance(BlockID.STONE), volume.getBlock(1, 2, 3));
+        for (int raw = 0; raw < 300; raw++) {
+            assertEquals(raw, volume.getRaw(500 + raw));
+        }
+        assertEquals(0, volume.getRaw(0));
+        assertEquals(1, volume.getId(1, 2, 3));
+        assertEquals(0, volume.getMeta(1, 2, 3));
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testCompact() {
+        final PalettedVolume volume = PalettedVolume.of(random(64, 64, 64, 12));
+        assertEquals(4, volume.getBitsPerEntry());
+        // Half a byte per block instead of two
+        assertTrue(volume.getStorageBytes() < ((64 * 64 * 64) / 2 + 10000));
+    }
+
+    @Test
+    public void testLoadSave() throws IOException {
+        final SchematicVolume volume = random(8, 4, 6, 40);
+        final SchematicWrapper wrapper = new SchematicWrapper();
+        PalettedVolume.of(volume).writeTo(wrapper);
+        final File file = this.folder.newFile("paletted.schematic");
+        wrapper.saveChangesToFile(file.getPath());
+
+        final PalettedVolume loaded = PalettedVolume.load(file.toPath());
+        assertEquals(8, loaded.getWidth());
+        assertEquals(4, loaded.getHeight());
+        assertEquals(6, loaded.getLength());
+        assertArrayEquals(volume.getBlocks(), loaded.toVolume().getBlocks());
+        assertArrayEquals(volume.getData(), loaded.toVolume().getData());
+    }
+
+    @SuppressWarnings("static-method")
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testBounds() {
+        new PalettedVolume(2, 2, 2).getRaw(8);
+    }
+}
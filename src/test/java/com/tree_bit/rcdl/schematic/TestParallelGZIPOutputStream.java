@@ -0,0 +1,110 @@
+package com.tree_bit.rcdl.schematic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+
+@SuppressWarnings("javadoc")
+public class TestParallelGZIPOutputStream {
+
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    private static byte[] data(final int size) {
+        final byte[] data = new byte[size];
+        final Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            // Compressible, with references across block boundaries
+            data[i] = (byte) ((random.nextInt(8) == 0) ? random.nextInt() : (i / 100));
+        }
+        return data;
+    }
+
+    private static byte[] compress(final byte[] data, final int level, final int blockSize) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final OutputStream out = new ParallelGZIPOutputStream(bytes, level, pool, blockSize)) {
+            // Mix single bytes and arrays
+            int i = 0;
+            while (i < data.length) {
+                if ((i % 7) == 0) {
+                    out.write(data[i++]);
+                } else {
+                    final int n = Math.min(data.length - i, 1000);
+                    out.write(data, i, n);
+                    i += n;
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] decompress(final byte[] gzip) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            final byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                bytes.write(buffer, 0, n);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        for (final int size : new int[] {0, 1, 4096, 10000, 100000}) {
+            final byte[] data = data(size);
+            assertArrayEquals(data, decompress(compress(data, Deflater.DEFAULT_COMPRESSION, 4096)));
+            assertArrayEquals(data, decompress(compress(data, Deflater.NO_COMPRESSION, 4096)));
+        }
+    }
+
+    @Test
+    public void testLargeBlocks() throws IOException {
+        final byte[] data = data(3 * ParallelGZIPOutputStream.DEFAULT_BLOCK_SIZE + 17);
+        assertArrayEquals(data, decompress(compress(data, Deflater.BEST_SPEED, ParallelGZIPOutputStream.DEFAULT_BLOCK_SIZE)));
+    }
+
+    @Test
+    public void testRatio() throws IOException {
+        // The dictionary keeps the ratio close to a single deflate stream
+        final byte[] data = data(200000);
+        final ByteArrayOutputStream single = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(single)) {
+            out.write(data);
+        }
+        final byte[] parallel = compress(data, Deflater.DEFAULT_COMPRESSION, 1 << 15);
+        assertTrue(parallel.length < (single.size() * 1.05));
+    }
+
+    @Test(expected = IOException.class)
+    public void testWriteAfterClose() throws IOException {
+        final OutputStream out = new ParallelGZIPOutputStream(new ByteArrayOutputStream(), Deflater.BEST_SPEED, pool);
+        out.close();
+        out.write(1);
+    }
+}
@@ -0,0 +1,161 @@
+package com.tree_bit.rcdl.schematic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+
+
+@SuppressWarnings("javadoc")
+public class TestRegionCompactor {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static int size(final int x, final int z) {
+        return (x == z) ? 12000 : 500;
+    }
+
+    /** Writes a fragmented region with the chunks [0, 8)² */
+    private static void fragmented(final Path file) throws IOException {
+        try (RegionWriter writer = RegionWriter.open(file)) {
+            for (int z = 0; z < 8; z++) {
+                for (int x = 0; x < 8; x++) {
+                    writer.writeChunk(x, z, TestRegionWriter.chunk(x, z, 500));
+                }
+            }
+        }
+        try (RegionWriter writer = RegionWriter.open(file)) {
+            // Grown chunks are appended, leaving holes
+            for (int i = 0; i < 8; i++) {
+                writer.writeChunk(i, i, TestRegionWriter.chunk(i, i, size(i, i)));
+            }
+            writer.deleteChunk(7, 7);
+            writer.deleteChunk(0, 0);
+        }
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testMorton() {
+        assertEquals(0, RegionCompactor.morton(0, 0));
+        assertEquals(1, RegionCompactor.morton(1, 0));
+        assertEquals(2, RegionCompactor.morton(0, 1));
+        assertEquals(3, RegionCompactor.morton(1, 1));
+        assertEquals(4, RegionCompactor.morton(2, 0));
+        assertEquals(1023, RegionCompactor.morton(31, 31));
+        final boolean[] seen = new boolean[RegionReader.CHUNKS];
+        for (int z = 0; z < 32; z++) {
+            for (int x = 0; x < 32; x++) {
+                seen[RegionCompactor.morton(x, z)] = true;
+            }
+        }
+        for (final boolean b : seen) {
+            assertTrue(b);
+        }
+    }
+
+    @Test
+    public void testCompact() throws IOException {
+        final Path file = this.folder.getRoot().toPath().resolve("r.0.0.mca");
+        fragmented(file);
+        final RegionReader before = RegionReader.open(file);
+        final ByteBuffer stored = before.getStored(RegionReader.index(3, 5));
+
+        final RegionCompactor.Result result = new RegionCompactor().compact(file);
+        assertEquals(62, result.getChunks());
+        assertEquals(before.getFileSize(), result.getSizeBefore());
+        assertEquals(Files.size(file), result.getSizeAfter());
+        assertTrue(result.getBytesSaved() > 0);
+
+        final RegionReader after = RegionReader.open(file);
+        assertEquals(62, after.getChunkCount());
+        // Stored data is copied unchanged
+        assertEquals(stored, after.getStored(RegionReader.index(3, 5)));
+        final int[] order = new int[64];
+        for (int z = 0; z < 8; z++) {
+            for (int x = 0; x < 8; x++) {
+                order[RegionCompactor.morton(x, z)] = RegionReader.index(x, z);
+            }
+        }
+        int expected = 2;
+        for (final int index : order) {
+            final int x = index & 31;
+            final int z = index >>> 5;
+            assertEquals(before.getTimestamp(x, z), after.getTimestamp(x, z));
+            if (!before.hasChunk(x, z)) {
+                assertTrue(!after.hasChunk(x, z));
+                continue;
+            }
+            // Contiguous in Morton order
+            assertEquals(expected, after.getSectorOffset(x, z));
+            expected += after.getSectorCount(x, z);
+            assertEquals(TestRegionWriter.chunk(x, z, size(x, z)), after.readChunk(x, z));
+        }
+        assertEquals((long) expected * RegionReader.SECTOR_SIZE, Files.size(file));
+    }
+
+    @Test
+    public void testPermissionsKept() throws IOException {
+        final Path file = this.folder.getRoot().toPath().resolve("r.0.0.mca");
+        fragmented(file);
+        assumeTrue(Files.getFileAttributeView(file, PosixFileAttributeView.class) != null);
+        for (final String permissions : new String[] {"rw-r--r--", "rw-rw----"}) {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString(permissions));
+            new RegionCompactor().compact(file);
+            assertEquals(PosixFilePermissions.fromString(permissions), Files.getPosixFilePermissions(file));
+        }
+        assertEquals(62, RegionReader.open(file).getChunkCount());
+    }
+
+    @Test
+    public void testRecompress() throws IOException {
+        final Path file = this.folder.getRoot().toPath().resolve("r.0.0.mca");
+        TestRegionReader.writeRegion(file,
+                Collections.singletonMap(Integer.valueOf(RegionReader.index(2, 3)),
+                        TestRegionReader.compress(TestRegionReader.chunk(2, 3), RegionReader.GZIP)));
+        new RegionCompactor(9).compact(file);
+        final RegionReader reader = RegionReader.open(file);
+        assertEquals(RegionReader.ZLIB, reader.getStored(RegionReader.index(2, 3)).get(0));
+        assertEquals(TestRegionReader.chunk(2, 3), reader.readChunk(2, 3));
+    }
+
+    @Test
+    public void testCompactWorld() throws IOException {
+        final Path world = this.folder.getRoot().toPath();
+        final Path overworld = world.resolve("region/r.0.0.mca");
+        final Path nether = world.resolve("DIM-1/region/r.-1.2.mca");
+        final Path broken = world.resolve("region/r.1.1.mca");
+        fragmented(overworld);
+        fragmented(nether);
+        Files.write(broken, new byte[100]);
+        Files.write(world.resolve("level.dat"), new byte[100]);
+        assertEquals(Arrays.asList(nether, overworld, broken), RegionReader.findRegions(world));
+
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            final RegionCompactor.Report report = new RegionCompactor().compactWorld(world, pool);
+            assertEquals(2, report.getResults().size());
+            assertEquals(Collections.singleton(broken), report.getFailures().keySet());
+            assertEquals(2 * report.getResults().get(0).getBytesSaved(), report.getBytesSaved());
+            assertEquals(Files.size(overworld) + Files.size(nether), report.getSizeAfter());
+            assertEquals(100, Files.size(broken));
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(TestRegionWriter.chunk(1, 1, 12000), RegionReader.open(nether).readChunk(1, 1));
+    }
+}
@@ -0,0 +1,148 @@
+package com.tree_bit.rcdl.schematic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.jnbt.CompoundTag;
+import org.jnbt.IntTag;
+import org.jnbt.NBTOutputStream;
+import org.jnbt.Tag;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+
+@SuppressWarnings("javadoc")
+public class TestRegionReader {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    static CompoundTag chunk(final int x, final int z) {
+        final Map<String, Tag> level = new HashMap<>();
+        level.put("xPos", new IntTag("xPos", x));
+        level.put("zPos", new IntTag("zPos", z));
+        return new CompoundTag("", Collections.<String, Tag> singletonMap("Level", new CompoundTag("Level", level)));
+    }
+
+    static byte[] compress(final CompoundTag tag, final int type) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(type);
+        OutputStream out = bytes;
+        if (type == RegionReader.GZIP) {
+            out = new GZIPOutputStream(bytes);
+        } else if (type == RegionReader.ZLIB) {
+            out = new DeflaterOutputStream(bytes);
+        }
+        try (NBTOutputStream nbt = new NBTOutputStream(out, false)) {
+            nbt.writeTag(tag);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Uncompressed stored chunk whose byte array has a negative length */
+    static byte[] negativeArrayChunk() {
+        return new byte[] {RegionReader.UNCOMPRESSED, 10, 0, 0, 7, 0, 1, 'D', -1, -1, -1, -1, 0};
+    }
+
+    /** Writes a region file with the given stored chunks (index -> compression type + data) */
+    static void writeRegion(final Path file, final Map<Integer, byte[]> chunks) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final ByteBuffer header = ByteBuffer.allocate(RegionReader.HEADER_SIZE);
+        int sector = 2;
+        for (final Map.Entry<Integer, byte[]> e : chunks.entrySet()) {
+            final byte[] stored = e.getValue();
+            final int sectors = ((stored.length + 4) + RegionReader.SECTOR_SIZE - 1) / RegionReader.SECTOR_SIZE;
+            header.putInt(e.getKey() * 4, (sector << 8) | sectors);
+            header.putInt(RegionReader.SECTOR_SIZE + (e.getKey() * 4), 1000 + e.getKey());
+            final ByteBuffer padded = ByteBuffer.allocate(sectors * RegionReader.SECTOR_SIZE);
+            padded.putInt(stored.length).put(stored);
+            body.write(padded.array());
+            sector += sectors;
+        }
+        final ByteArrayOutputStream all = new ByteArrayOutputStream();
+        all.write(header.array());
+        all.write(body.toByteArray());
+        Files.write(file, all.toByteArray());
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        final Map<Integer, byte[]> chunks = new HashMap<>();
+        chunks.put(RegionReader.index(0, 0), compress(chunk(0, 0), RegionReader.ZLIB));
+        chunks.put(RegionReader.index(5, 7), compress(chunk(5, 7), RegionReader.GZIP));
+        chunks.put(RegionReader.index(31, 31), compress(chunk(31, 31), RegionReader.UNCOMPRESSED));
+        final Path file = this.folder.getRoot().toPath().resolve("r.0.0.mca");
+        writeRegion(file, chunks);
+
+        final RegionReader reader = RegionReader.open(file);
+        assertEquals(3, reader.getChunkCount());
+        assertTrue(reader.hasChunk(5, 7));
+        assertFalse(reader.hasChunk(5, 8));
+        assertNull(reader.readChunk(5, 8));
+        assertEquals(1000 + RegionReader.index(5, 7), reader.getTimestamp(5, 7));
+        assertEquals(2, reader.getSectorOffset(0, 0));
+        assertEquals(1, reader.getSectorCount(0, 0));
+
+        assertEquals(chunk(0, 0), reader.readChunk(0, 0));
+        assertEquals(chunk(5, 7), reader.readChunk(5, 7));
+        // World coordinates are reduced to the region
+        assertEquals(chunk(31, 31), reader.readChunk(-1, 63));
+
+        try (NBTReader nbt = reader.openReader(5, 7)) {
+            assertEquals(NBTReader.Event.START_COMPOUND, nbt.next());
+        }
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        final Path file = this.folder.newFile("r.0.0.mca").toPath();
+        final RegionReader reader = RegionReader.open(file);
+        assertEquals(0, reader.getChunkCount());
+        assertNull(reader.openChunk(0, 0));
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidLocation() throws IOException {
+        final Path file = this.folder.getRoot().toPath().resolve("r.0.0.mca");
+        final ByteBuffer header = ByteBuffer.allocate(RegionReader.HEADER_SIZE);
+        header.putInt(0, (10 << 8) | 1);
+        Files.write(file, header.array());
+        RegionReader.open(file).readChunk(0, 0);
+    }
+
+    @Test
+    public void testCorruptNBT() throws IOException {
+        final Path file = this.folder.getRoot().toPath().resolve("r.0.0.mca");
+        writeRegion(file, Collections.singletonMap(RegionReader.index(3, 4), negativeArrayChunk()));
+        try {
+            RegionReader.open(file).readChunk(3, 4);
+            fail();
+        } catch (final IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("3, 4"));
+            assertTrue(e.getCause() instanceof NegativeArraySizeException);
+        }
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testFileName() {
+        assertEquals("r.0.0.mca", RegionReader.fileName(31, 0));
+        assertEquals("r.-1.1.mca", RegionReader.fileName(-1, 32));
+    }
+}
@@ -0,0 +1,168 @@
+package com.tree_bit.rcdl.schematic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.jnbt.ByteArrayTag;
+import org.jnbt.CompoundTag;
+import org.jnbt.Tag;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+
+@SuppressWarnings("javadoc")
+public class TestRegionWriter {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Chunk with incompressible data of the given size */
+    static CompoundTag chunk(final int x, final int z, final int size) {
+        final byte[] data = new byte[size];
+        new Random((x * 31) + z).nextBytes(data);
+        final Map<String, Tag> values = new HashMap<>(TestRegionReader.chunk(x, z).getValue());
+        values.put("Data", new ByteArrayTag("Data", data));
+        return new CompoundTag("", values);
+    }
+
+    private Path file() {
+        return this.folder.getRoot().toPath().resolve("region/r.0.0.mca");
+    }
+
+    @Test
+    public void testWriteRead() throws IOException {
+        try (RegionWriter writer = RegionWriter.open(this.file())) {
+            writer.writeChunk(0, 0, chunk(0, 0, 100));
+            writer.writeChunk(3, 4, chunk(3, 4, 10000));
+            writer.writeChunk(31, 31, chunk(31, 31, 5000));
+        }
+        final RegionReader reader = RegionReader.open(this.file());
+        assertEquals(3, reader.getChunkCount());
+        assertEquals(chunk(0, 0, 100), reader.readChunk(0, 0));
+        assertEquals(chunk(3, 4, 10000), reader.readChunk(3, 4));
+        assertEquals(chunk(31, 31, 5000), reader.readChunk(31, 31));
+        assertEquals(3, reader.getSectorCount(3, 4));
+        assertTrue(reader.getTimestamp(3, 4) > 0);
+        assertEquals(0, Files.size(this.file()) % RegionReader.SECTOR_SIZE);
+    }
+
+    @Test
+    public void testInPlace() throws IOException {
+        try (RegionWriter writer = RegionWriter.open(this.file())) {
+            writer.writeChunk(0, 0, chunk(0, 0, 10000));
+            writer.writeChunk(1, 0, chunk(1, 0, 100));
+        }
+        try (RegionWriter writer = RegionWriter.open(this.file())) {
+            final int offset = writer.getSectorOffset(0, 0);
+            // Smaller -> in place, the tail is released after the commit
+            writer.writeChunk(0, 0, chunk(0, 0, 5000));
+            assertEquals(offset, writer.getSectorOffset(0, 0));
+        }
+        final RegionReader reader = RegionReader.open(this.file());
+        assertEquals(2, reader.getSectorCount(0, 0));
+        assertEquals(chunk(0, 0, 5000), reader.readChunk(0, 0));
+        assertEquals(chunk(1, 0, 100), reader.readChunk(1, 0));
+    }
+
+    @Test
+    public void testRelocateAndReuse() throws IOException {
+        try (RegionWriter writer = RegionWriter.open(this.file())) {
+            writer.writeChunk(0, 0, chunk(0, 0, 10000));
+            writer.writeChunk(1, 0, chunk(1, 0, 100));
+        }
+        final int first;
+        try (RegionWriter writer = RegionWriter.open(this.file())) {
+            first = writer.getSectorOffset(0, 0);
+            // Grows -> moved behind the other chunk
+            writer.writeChunk(0, 0, chunk(0, 0, 20000));
+            assertNotEquals(first, writer.getSectorOffset(0, 0));
+            // The committed sectors aren't reused before the commit
+            writer.writeChunk(2, 0, chunk(2, 0, 100));
+            assertNotEquals(first, writer.getSectorOffset(2, 0));
+            writer.commit();
+            // Now the old sectors are free
+            writer.writeChunk(3, 0, chunk(3, 0, 100));
+            assertEquals(first, writer.getSectorOffset(3, 0));
+        }
+        final RegionReader reader = RegionReader.open(this.file());
+        for (int x = 0; x < 4; x++) {
+            assertEquals(chunk(x, 0, (x == 0) ? 20000 : 100), reader.readChunk(x, 0));
+        }
+    }
+
+    @Test
+    public void testDeleteTruncates() throws IOException {
+        try (RegionWriter writer = RegionWriter.open(this.file())) {
+            writer.writeChunk(0, 0, chunk(0, 0, 100));
+            writer.writeChunk(1, 0, chunk(1, 0, 10000));
+        }
+        final long size = Files.size(this.file());
+        try (RegionWriter writer = RegionWriter.open(this.file())) {
+            assertTrue(writer.deleteChunk(1, 0));
+            assertFalse(writer.deleteChunk(1, 0));
+        }
+        assertEquals(size - (3 * RegionReader.SECTOR_SIZE), Files.size(this.file()));
+        final RegionReader reader = RegionReader.open(this.file());
+        assertNull(reader.readChunk(1, 0));
+        assertEquals(chunk(0, 0, 100), reader.readChunk(0, 0));
+    }
+
+    @Test
+    public void testBatch() throws IOException {
+        try (RegionWriter writer = RegionWriter.open(this.file())) {
+            for (int i = 0; i < RegionReader.CHUNKS; i++) {
+                writer.writeChunk(i & 31, i >>> 5, chunk(i & 31, i >>> 5, 50));
+            }
+            // Nothing is visible before the commit
+            assertEquals(0, RegionReader.open(this.file()).getChunkCount());
+            writer.commit();
+            assertEquals(RegionReader.CHUNKS, RegionReader.open(this.file()).getChunkCount());
+        }
+    }
+
+    @Test
+    public void testUnpaddedFile() throws IOException {
+        try (RegionWriter writer = RegionWriter.open(this.file())) {
+            writer.writeChunk(0, 0, chunk(0, 0, 100));
+            writer.writeChunk(1, 0, chunk(1, 0, 5000));
+        }
+        // Cut the file directly behind the data of the last chunk
+        final RegionReader padded = RegionReader.open(this.file());
+        final long end = ((long) padded.getSectorOffset(1, 0) * RegionReader.SECTOR_SIZE) + 4
+                + padded.getStored(RegionReader.index(1, 0)).remaining();
+        try (FileChannel channel = FileChannel.open(this.file(), StandardOpenOption.WRITE)) {
+            channel.truncate(end);
+        }
+        assertNotEquals(0, Files.size(this.file()) % RegionReader.SECTOR_SIZE);
+        assertEquals(chunk(1, 0, 5000), RegionReader.open(this.file()).readChunk(1, 0));
+
+        try (RegionWriter writer = RegionWriter.open(this.file())) {
+            assertEquals(0, Files.size(this.file()) % RegionReader.SECTOR_SIZE);
+            writer.writeChunk(2, 0, chunk(2, 0, 100));
+        }
+        final RegionReader reader = RegionReader.open(this.file());
+        assertEquals(chunk(0, 0, 100), reader.readChunk(0, 0));
+        assertEquals(chunk(1, 0, 5000), reader.readChunk(1, 0));
+        assertEquals(chunk(2, 0, 100), reader.readChunk(2, 0));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTooLarge() throws IOException {
+        try (RegionWriter writer = RegionWriter.open(this.file())) {
+            writer.writeChunk(0, 0, chunk(0, 0, 256 * RegionReader.SECTOR_SIZE));
+        }
+    }
+}
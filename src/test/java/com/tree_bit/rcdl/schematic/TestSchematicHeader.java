@@ -0,0 +1,112 @@
+package com.tree_bit.rcdl.schematic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.jnbt.ByteArrayTag;
+import org.jnbt.CompoundTag;
+import org.jnbt.ListTag;
+import org.jnbt.NBTOutputStream;
+import org.jnbt.ShortTag;
+import org.jnbt.StringTag;
+import org.jnbt.Tag;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+
+@SuppressWarnings("javadoc")
+public class TestSchematicHeader {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] filled(final int length, final int value) {
+        final byte[] b = new byte[length];
+        Arrays.fill(b, (byte) value);
+        return b;
+    }
+
+    private File write(final Tag... tags) throws IOException {
+        final Map<String, Tag> map = new LinkedHashMap<>();
+        for (final Tag tag : tags) {
+            map.put(tag.getName(), tag);
+        }
+        final File file = this.folder.newFile();
+        try (NBTOutputStream out = new NBTOutputStream(new FileOutputStream(file))) {
+            out.writeTag(new CompoundTag("Schematic", map));
+        }
+        return file;
+    }
+
+    private static byte[] uncompressed(final File file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file.toPath()))) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        final Map<String, Tag> sign = new LinkedHashMap<>();
+        sign.put("id", new StringTag("id", "Sign"));
+        final File file = this.write(new ShortTag("Height", (short) 2), new ShortTag("Length", (short) 3), new ShortTag("Width", (short) 4),
+                new StringTag("Materials", "Alpha"), new ByteArrayTag("Blocks", filled(24, 1)), new ByteArrayTag("Data", filled(24, 2)),
+                new ListTag("Entities", CompoundTag.class, Arrays.<Tag>asList()),
+                new ListTag("TileEntities", CompoundTag.class, Arrays.<Tag>asList(new CompoundTag("", sign), new CompoundTag("", sign))));
+
+        final SchematicHeader header = SchematicHeader.read(file.toPath());
+        assertEquals(4, header.getWidth());
+        assertEquals(2, header.getHeight());
+        assertEquals(3, header.getLength());
+        assertEquals("Alpha", header.getMaterials().get());
+        assertEquals(2, header.getTileEntityCount());
+        assertEquals(24, header.getBlocksLength());
+
+        final byte[] raw = uncompressed(file);
+        final int blocks = (int) header.getBlocksOffset();
+        final int data = (int) header.getDataOffset();
+        assertArrayEquals(filled(24, 1), Arrays.copyOfRange(raw, blocks, blocks + 24));
+        assertArrayEquals(filled(24, 2), Arrays.copyOfRange(raw, data, data + 24));
+    }
+
+    @Test
+    public void testReadWrapper() throws IOException {
+        final SchematicWrapper wrapper = new SchematicWrapper();
+        wrapper.writeWidth((short) 1);
+        wrapper.writeHeight((short) 1);
+        wrapper.writeLength((short) 5);
+        wrapper.writeBlocks(filled(5, 3));
+        final File file = this.folder.newFile();
+        wrapper.saveChangesToFile(file.getPath());
+
+        final SchematicHeader header = SchematicHeader.read(file.toPath());
+        assertEquals(5, header.getLength());
+        assertFalse(header.getMaterials().isPresent());
+        assertEquals(0, header.getTileEntityCount());
+        assertEquals(-1, header.getDataOffset());
+        assertEquals(5, header.getBlocksLength());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNoDimensions() throws IOException {
+        SchematicHeader.read(this.write(new ShortTag("Width", (short) 4)).toPath());
+    }
+}
@@ -0,0 +1,95 @@
+package com.tree_bit.rcdl.schematic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+
+@SuppressWarnings("javadoc")
+public class TestSchematicLoader {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private final byte[] blocks = new byte[4 * 3 * 2];
+    private final byte[] data = new byte[4 * 3 * 2];
+
+    @Before
+    public void setUp() throws IOException {
+        for (int i = 0; i < this.blocks.length; i++) {
+            this.blocks[i] = (byte) i;
+            this.data[i] = (byte) (i % 16);
+        }
+        final SchematicWrapper wrapper = new SchematicWrapper();
+        wrapper.writeWidth((short) 4);
+        wrapper.writeHeight((short) 3);
+        wrapper.writeLength((short) 2);
+        wrapper.writeBlocks(this.blocks);
+        wrapper.writeData(this.data);
+        this.file = this.folder.newFile("test.schematic");
+        wrapper.saveChangesToFile(this.file.getPath());
+    }
+
+    @Test
+    public void testLoadAll() throws IOException {
+        final LoadedSchematic s = new SchematicLoader(ESchematicFields.WIDTH, ESchematicFields.HEIGHT, ESchematicFields.LENGTH,
+                ESchematicFields.BLOCKS, ESchematicFields.DATA).load(this.file.toPath());
+        assertEquals(4, s.getWidth());
+        assertEquals(3, s.getHeight());
+        assertEquals(2, s.getLength());
+        assertArrayEquals(this.blocks, s.getBlocks());
+        assertArrayEquals(this.data, s.getData());
+        assertEquals(this.blocks.length, s.getArrayLength(ESchematicFields.BLOCKS));
+    }
+
+    @Test
+    public void testLoadSelected() throws IOException {
+        final LoadedSchematic s = new SchematicLoader(ESchematicFields.WIDTH).load(this.file.toPath());
+        assertTrue(s.contains(ESchematicFields.WIDTH));
+        assertFalse(s.contains(ESchematicFields.BLOCKS));
+        assertEquals(4, s.getWidth());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNotLoaded() throws IOException {
+        new SchematicLoader(ESchematicFields.WIDTH).load(this.file.toPath()).getBlocks();
+    }
+
+    @Test
+    public void testMissingField() throws IOException {
+        final LoadedSchematic s = new SchematicLoader(ESchematicFields.MATERIALS, ESchematicFields.WIDTH).load(this.file.toPath());
+        assertFalse(s.contains(ESchematicFields.MATERIALS));
+        assertEquals(4, s.getWidth());
+    }
+
+    @Test
+    public void testIntoBuffer() throws IOException {
+        final byte[] buffer = new byte[100];
+        final LoadedSchematic s = new SchematicLoader().into(ESchematicFields.BLOCKS, buffer).load(this.file.toPath());
+        assertSame(buffer, s.getBlocks());
+        assertEquals(this.blocks.length, s.getArrayLength(ESchematicFields.BLOCKS));
+        assertArrayEquals(this.blocks, Arrays.copyOf(buffer, this.blocks.length));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBufferTooSmall() throws IOException {
+        new SchematicLoader().into(ESchematicFields.DATA, new byte[2]).load(this.file.toPath());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIntoNoArray() {
+        new SchematicLoader().into(ESchematicFields.WIDTH, new byte[2]);
+    }
+}
@@ -0,0 +1,111 @@
+package com.tree_bit.rcdl.schematic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.tree_bit.rcdl.blocks.Block;
+import com.tree_bit.rcdl.blocks.BlockID;
+import com.tree_bit.rcdl.blocks.Repeater;
+import com.tree_bit.rcdl.blocks.Repeater.Delay;
+import com.tree_bit.rcdl.blocks.dv.OrientationNESW;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+
+@SuppressWarnings("javadoc")
+public class TestSchematicVolume {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Block repeater = Block.getInstance(BlockID.REPEATER_ON, Repeater.getInstance(OrientationNESW.East, Delay.D2));
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testIndex() {
+        final SchematicVolume volume = new SchematicVolume(2, 3, 4);
+        assertEquals(24, volume.getVolume());
+        assertEquals(0, volume.index(0, 0, 0));
+        assertEquals(1, volume.index(1, 0, 0));
+        assertEquals(2, volume.index(0, 0, 1));
+        assertEquals(8, volume.index(0, 1, 0));
+        assertEquals(((2 * 4) + 3) * 2 + 1, volume.index(1, 2, 3));
+    }
+
+    @Test
+    public void testGetSet() {
+        final SchematicVolume volume = new SchematicVolume(2, 3, 4);
+        assertSame(Block.getInstance(BlockID.AIR), volume.getBlock(1, 1, 1));
+
+        volume.setBlock(1, 2, 3, this.repeater);
+        assertSame(this.repeater, volume.getBlock(1, 2, 3));
+        assertEquals(94, volume.getId(1, 2, 3));
+        assertEquals(5, volume.getMeta(1, 2, 3));
+        final int index = volume.index(1, 2, 3);
+        assertEquals(94, volume.getId(index));
+        assertEquals(5, volume.getMeta(index));
+        assertEquals(this.repeater.getStateId(), volume.getStateId(index));
+
+        volume.setRaw(0, 0, 0, 57, 0);
+        assertSame(Block.getInstance(BlockID.DIAMOND_BLOCK), volume.getBlock(0, 0, 0));
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testBounds() {
+        final SchematicVolume volume = new SchematicVolume(2, 3, 4);
+        final int[][] invalid = {{2, 0, 0}, {0, 3, 0}, {0, 0, 4}, {-1, 0, 0}, {0, -1, 0}, {0, 0, -1}};
+        for (final int[] c : invalid) {
+            try {
+                volume.getId(c[0], c[1], c[2]);
+                throw new AssertionError("No exception for " + c[0] + " " + c[1] + " " + c[2]);
+            } catch (final IndexOutOfBoundsException e) {
+                // expected
+            }
+        }
+    }
+
+    @SuppressWarnings("static-method")
+    @Test(expected = IllegalArgumentException.class)
+    public void testArrayMismatch() {
+        new SchematicVolume(2, 2, 2, new byte[8], new byte[7]);
+    }
+
+    @Test
+    public void testFillReplace() {
+        final SchematicVolume volume = new SchematicVolume(4, 4, 4);
+        volume.fill(this.repeater);
+        volume.setBlock(0, 0, 0, Block.getInstance(BlockID.STONE));
+        assertEquals(63, volume.replace(this.repeater, Block.getInstance(BlockID.DIRT)));
+        assertSame(Block.getInstance(BlockID.DIRT), volume.getBlock(3, 3, 3));
+        assertSame(Block.getInstance(BlockID.STONE), volume.getBlock(0, 0, 0));
+    }
+
+    @Test
+    public void testWrapperRoundTrip() throws IOException {
+        final SchematicVolume volume = new SchematicVolume(3, 2, 5);
+        volume.setBlock(2, 1, 4, this.repeater);
+        final SchematicWrapper wrapper = new SchematicWrapper();
+        volume.writeTo(wrapper);
+        // No copies
+        assertSame(volume.getBlocks(), wrapper.readBlocks());
+        assertSame(volume.getData(), wrapper.readData());
+        final SchematicVolume view = SchematicVolume.of(wrapper);
+        assertSame(volume.getBlocks(), view.getBlocks());
+
+        final File file = this.folder.newFile("volume.schematic");
+        wrapper.saveChangesToFile(file.getPath());
+        final SchematicVolume loaded = SchematicVolume.of(new SchematicWrapper(file.getPath()));
+        assertEquals(3, loaded.getWidth());
+        assertEquals(2, loaded.getHeight());
+        assertEquals(5, loaded.getLength());
+        assertSame(this.repeater, loaded.getBlock(2, 1, 4));
+        assertArrayEquals(volume.getData(), loaded.getData());
+    }
+}
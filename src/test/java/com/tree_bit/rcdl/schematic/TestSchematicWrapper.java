@@ -0,0 +1,140 @@
+package com.tree_bit.rcdl.schematic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+
+
+@SuppressWarnings("javadoc")
+public class TestSchematicWrapper {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteRead() {
+        final SchematicWrapper wrapper = new SchematicWrapper();
+        wrapper.writeWidth((short) 2);
+        wrapper.writeHeight((short) 3);
+        wrapper.writeLength((short) 4);
+        wrapper.writeBlocks(new byte[] {1, 2});
+        // Replaces the previous value
+        wrapper.writeWidth((short) 5);
+        assertEquals(5, wrapper.readWidth());
+        assertEquals(3, wrapper.readHeight());
+        assertEquals(4, wrapper.readLength());
+        assertArrayEquals(new byte[] {1, 2}, wrapper.readBlocks());
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        final SchematicWrapper wrapper = new SchematicWrapper();
+        wrapper.writeWidth((short) 1);
+        wrapper.writeHeight((short) 1);
+        wrapper.writeLength((short) 2);
+        wrapper.writeBlocks(new byte[] {1, 2});
+        wrapper.writeData(new byte[] {3, 4});
+        final File file = new File(this.folder.getRoot(), "sub/test.schematic");
+        wrapper.saveChangesToFile(file.getPath());
+
+        final SchematicWrapper loaded = new SchematicWrapper(file.getPath());
+        assertEquals(2, loaded.readLength());
+        assertArrayEquals(new byte[] {3, 4}, loaded.readData());
+
+        // Changing the loaded wrapper keeps the other fields
+        loaded.writeData(new byte[] {5, 6});
+        loaded.saveChangesToFile(file.getPath());
+        final SchematicWrapper reloaded = new SchematicWrapper(file.getPath());
+        assertArrayEquals(new byte[] {1, 2}, reloaded.readBlocks());
+        assertArrayEquals(new byte[] {5, 6}, reloaded.readData());
+    }
+
+    @Test
+    public void testSaveLevels() throws IOException {
+        final SchematicWrapper wrapper = new SchematicWrapper();
+        wrapper.writeBlocks(new byte[100000]);
+        final File fast = new File(this.folder.getRoot(), "fast.schematic");
+        final File small = new File(this.folder.getRoot(), "small.schematic");
+        final File stored = new File(this.folder.getRoot(), "stored.schematic");
+        wrapper.saveChangesToFile(fast.toPath(), Deflater.BEST_SPEED);
+        wrapper.saveChangesToFile(small.toPath(), Deflater.BEST_COMPRESSION);
+        wrapper.saveChangesToFile(stored.toPath(), Deflater.NO_COMPRESSION);
+        assertTrue(small.length() <= fast.length());
+        assertTrue(stored.length() > 100000);
+        assertArrayEquals(new byte[100000], new SchematicWrapper(fast.getPath()).readBlocks());
+        assertArrayEquals(new byte[100000], new SchematicWrapper(small.getPath()).readBlocks());
+        assertArrayEquals(new byte[100000], new SchematicWrapper(stored.getPath()).readBlocks());
+        // No temporary files are left
+        assertEquals(3, this.folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testSavePermissions() throws IOException {
+        final Path root = this.folder.getRoot().toPath();
+        assumeTrue(Files.getFileAttributeView(root, PosixFileAttributeView.class) != null);
+        final SchematicWrapper wrapper = new SchematicWrapper();
+        wrapper.writeBlocks(new byte[] {1, 2});
+
+        // A new file gets the default permissions
+        final Path reference = Files.createFile(root.resolve("reference"));
+        final Path file = root.resolve("test.schematic");
+        wrapper.saveChangesToFile(file, Deflater.BEST_SPEED);
+        assertEquals(Files.getPosixFilePermissions(reference), Files.getPosixFilePermissions(file));
+
+        // An existing file keeps its permissions
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r-----"));
+        wrapper.saveChangesToFile(file, Deflater.BEST_SPEED);
+        assertEquals(PosixFilePermissions.fromString("rw-r-----"), Files.getPosixFilePermissions(file));
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("r--r--r--"));
+        wrapper.saveChangesToFile(file, Deflater.BEST_SPEED);
+        assertEquals(PosixFilePermissions.fromString("r--r--r--"), Files.getPosixFilePermissions(file));
+        assertArrayEquals(new byte[] {1, 2}, new SchematicWrapper(file.toString()).readBlocks());
+    }
+
+    @Test
+    public void testSaveParallel() throws IOException {
+        final byte[] blocks = new byte[1 << 20];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = (byte) (i % 251);
+        }
+        final SchematicWrapper wrapper = new SchematicWrapper();
+        wrapper.writeBlocks(blocks);
+        final File file = new File(this.folder.getRoot(), "parallel.schematic");
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            wrapper.saveChangesToFile(file.toPath(), Deflater.BEST_SPEED, pool);
+        } finally {
+            pool.shutdown();
+        }
+        assertArrayEquals(blocks, new SchematicWrapper(file.getPath()).readBlocks());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSaveInvalidLevel() throws IOException {
+        new SchematicWrapper().saveChangesToFile(new File(this.folder.getRoot(), "x").toPath(), 10);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testReadMissing() {
+        new SchematicWrapper().readBlocks();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyPath() throws IOException {
+        new SchematicWrapper("");
+    }
+}
@@ -0,0 +1,156 @@
+package com.tree_bit.rcdl.schematic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.tree_bit.rcdl.blocks.Axis;
+import com.tree_bit.rcdl.blocks.Block;
+import com.tree_bit.rcdl.blocks.BlockID;
+import com.tree_bit.rcdl.blocks.PlacementInvalidException;
+import com.tree_bit.rcdl.blocks.Repeater;
+import com.tree_bit.rcdl.blocks.Repeater.Delay;
+import com.tree_bit.rcdl.blocks.dv.OrientationNESW;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+
+@SuppressWarnings("javadoc")
+public class TestVolumeTransform {
+
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void setUp() {
+        pool = new ForkJoinPool(3);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    /** Random volume of valid block states */
+    private static SchematicVolume random(final int w, final int h, final int l) {
+        final SchematicVolume volume = new SchematicVolume(w, h, l);
+        final Random random = new Random(7);
+        for (int i = 0; i < volume.getVolume(); i++) {
+            final int raw = Block.stateIdToRaw(random.nextInt(Block.getStateCount()));
+            volume.getBlocks()[i] = (byte) (raw >>> 4);
+            volume.getData()[i] = (byte) (raw & 0x0F);
+        }
+        return volume;
+    }
+
+    private static Block expected(final Block block, final int degree, final Set<Axis> plain) {
+        try {
+            return (plain == null) ? block.rotate(Axis.Y, degree) : block.mirror(plain);
+        } catch (final PlacementInvalidException | IllegalArgumentException e) {
+            return block;
+        }
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testRotateDirection() {
+        final SchematicVolume volume = new SchematicVolume(3, 1, 2);
+        final Block east = Block.getInstance(BlockID.REPEATER_ON, Repeater.getInstance(OrientationNESW.East, Delay.D1));
+        volume.setBlock(2, 0, 0, east);
+
+        // Clockwise viewed from above: east -> south, +x -> +z
+        final SchematicVolume rotated = VolumeTransform.rotateY(90).apply(volume, pool);
+        assertEquals(2, rotated.getWidth());
+        assertEquals(3, rotated.getLength());
+        assertSame(Block.getInstance(BlockID.REPEATER_ON, Repeater.getInstance(OrientationNESW.South, Delay.D1)), rotated.getBlock(1, 0, 2));
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testMatchesBlockTransforms() {
+        final SchematicVolume volume = random(5, 3, 4);
+        final int w = 5;
+        final int l = 4;
+        for (final int degree : new int[] {0, 90, 180, 270}) {
+            final SchematicVolume rotated = VolumeTransform.rotateY(degree).apply(volume, pool);
+            for (int y = 0; y < 3; y++) {
+                for (int z = 0; z < l; z++) {
+                    for (int x = 0; x < w; x++) {
+                        final Block target;
+                        switch (degree) {
+                            case 90:
+                                target = rotated.getBlock(l - 1 - z, y, x);
+                                break;
+                            case 180:
+                                target = rotated.getBlock(w - 1 - x, y, l - 1 - z);
+                                break;
+                            case 270:
+                                target = rotated.getBlock(z, y, w - 1 - x);
+                                break;
+                            default:
+                                target = rotated.getBlock(x, y, z);
+                        }
+                        final Block block = volume.getBlock(x, y, z);
+                        assertSame(degree == 0 ? block : expected(block, degree, null), target);
+                    }
+                }
+            }
+        }
+
+        final Set<Axis> xy = Axis.plain(Axis.X, Axis.Y);
+        final Set<Axis> zy = Axis.plain(Axis.Z, Axis.Y);
+        final SchematicVolume mirrorZ = VolumeTransform.mirror(xy).apply(volume, pool);
+        final SchematicVolume mirrorX = VolumeTransform.mirror(zy).apply(volume, pool);
+        for (int y = 0; y < 3; y++) {
+            for (int z = 0; z < l; z++) {
+                for (int x = 0; x < w; x++) {
+                    final Block block = volume.getBlock(x, y, z);
+                    assertSame(expected(block, 0, xy), mirrorZ.getBlock(x, y, l - 1 - z));
+                    assertSame(expected(block, 0, zy), mirrorX.getBlock(w - 1 - x, y, z));
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testInverse() {
+        // Large enough to be split into several tasks
+        final SchematicVolume volume = random(64, 40, 48);
+        assertSameVolume(volume, VolumeTransform.rotateY(-90).apply(VolumeTransform.rotateY(90).apply(volume, pool), pool));
+        assertSameVolume(volume, VolumeTransform.rotateY(180).apply(VolumeTransform.rotateY(180).apply(volume, pool), pool));
+        for (final Axis normal : Axis.values()) {
+            final VolumeTransform mirror = VolumeTransform.mirror(EnumSet.complementOf(EnumSet.of(normal)));
+            assertSameVolume(volume, mirror.apply(mirror.apply(volume, pool), pool));
+        }
+    }
+
+    private static void assertSameVolume(final SchematicVolume expected, final SchematicVolume actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertEquals(expected.getLength(), actual.getLength());
+        assertArrayEquals(expected.getBlocks(), actual.getBlocks());
+        assertArrayEquals(expected.getData(), actual.getData());
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testUnknownRawKept() {
+        final SchematicVolume volume = new SchematicVolume(1, 1, 1, new byte[] {(byte) 250}, new byte[] {9});
+        final SchematicVolume rotated = VolumeTransform.rotateY(90).apply(volume);
+        assertEquals(250, rotated.getId(0));
+        assertEquals(9, rotated.getMeta(0));
+    }
+
+    @SuppressWarnings("static-method")
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDegree() {
+        VolumeTransform.rotateY(45);
+    }
+}
@@ -0,0 +1,199 @@
+package com.tree_bit.rcdl.schematic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.jnbt.CompoundTag;
+import org.jnbt.IntTag;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+@SuppressWarnings("javadoc")
+public class TestWorldScanner {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExecutorService executor;
+    private Path world;
+    private Path broken;
+    private Path corrupt;
+
+    /** Expected world coordinates "x,z" of all readable chunks */
+    private final Set<String> expected = new HashSet<>();
+
+    @Before
+    public void setUp() throws IOException {
+        this.executor = Executors.newFixedThreadPool(3);
+        this.world = this.folder.getRoot().toPath();
+        try (RegionWriter writer = RegionWriter.open(this.world.resolve("region/r.0.0.mca"))) {
+            for (int i = 0; i < 100; i++) {
+                final int x = i % 32;
+                final int z = i / 32;
+                writer.writeChunk(x, z, TestRegionReader.chunk(x, z));
+                this.expected.add(x + "," + z);
+            }
+        }
+        try (RegionWriter writer = RegionWriter.open(this.world.resolve("DIM-1/region/r.-1.2.mca"))) {
+            writer.writeChunk(3, 4, TestRegionReader.chunk(-29, 68));
+            writer.writeChunk(31, 0, TestRegionReader.chunk(-1, 64));
+            this.expected.add("-29,68");
+            this.expected.add("-1,64");
+        }
+        // One valid chunk, one of unknown compression and one JNBT fails on
+        this.corrupt = this.world.resolve("region/r.5.5.mca");
+        final Map<Integer, byte[]> chunks = new HashMap<>();
+        chunks.put(Integer.valueOf(0), TestRegionReader.compress(TestRegionReader.chunk(160, 160), RegionReader.ZLIB));
+        chunks.put(Integer.valueOf(1), new byte[] {9, 1, 2, 3});
+        chunks.put(Integer.valueOf(2), TestRegionReader.negativeArrayChunk());
+        TestRegionReader.writeRegion(this.corrupt, chunks);
+        this.expected.add("160,160");
+
+        this.broken = this.world.resolve("region/r.1.0.mca");
+        Files.write(this.broken, new byte[100]);
+        Files.write(this.world.resolve("level.dat"), new byte[100]);
+    }
+
+    @After
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    private static String coordinates(final WorldScanner.Chunk chunk) {
+        final CompoundTag level = (CompoundTag) chunk.getTag().getValue().get("Level");
+        assertEquals(chunk.getChunkX(), ((IntTag) level.getValue().get("xPos")).getValue().intValue());
+        assertEquals(chunk.getChunkZ(), ((IntTag) level.getValue().get("zPos")).getValue().intValue());
+        assertTrue(chunk.getStoredBytes() > 0);
+        return chunk.getChunkX() + "," + chunk.getChunkZ();
+    }
+
+    private void checkProgress(final WorldScanner.Progress progress) {
+        assertTrue(progress.isDone());
+        assertEquals(4, progress.getRegions());
+        assertEquals(4, progress.getRegionsDone());
+        assertEquals(this.expected.size(), progress.getChunks());
+        assertEquals(3, progress.getFailedChunks());
+        assertEquals(1, progress.getFailedRegions());
+        assertEquals(new HashSet<>(Arrays.asList(this.broken, this.corrupt)), progress.getFailures().keySet());
+        assertTrue(progress.getStoredBytes() > 0);
+        assertTrue(progress.getElapsedNanos() > 0);
+        assertTrue(progress.getChunksPerSecond() > 0);
+        assertEquals(progress.getElapsedNanos(), progress.getElapsedNanos());
+    }
+
+    @Test
+    public void testScan() throws IOException {
+        final Set<String> found = ConcurrentHashMap.newKeySet();
+        final WorldScanner.Progress progress = new WorldScanner(this.executor, 2, 4).scan(this.world, c -> {
+            assertTrue(found.add(coordinates(c)));
+        });
+        assertEquals(this.expected, found);
+        this.checkProgress(progress);
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        final WorldScanner.Progress progress = new WorldScanner.Progress();
+        final List<String> found;
+        try (Stream<WorldScanner.Chunk> chunks = new WorldScanner(this.executor, 3, 2).stream(this.world, progress)) {
+            found = chunks.map(TestWorldScanner::coordinates).collect(Collectors.toList());
+        }
+        assertEquals(this.expected.size(), found.size());
+        assertEquals(this.expected, new HashSet<>(found));
+        this.checkProgress(progress);
+    }
+
+    @Test(timeout = 10000)
+    public void testStreamSlowConsumer() throws IOException, InterruptedException {
+        final WorldScanner.Progress progress = new WorldScanner.Progress();
+        final Set<String> found = new HashSet<>();
+        try (Stream<WorldScanner.Chunk> chunks = new WorldScanner(this.executor, 2, 1).stream(this.world, progress)) {
+            final Iterator<WorldScanner.Chunk> iterator = chunks.iterator();
+            while (iterator.hasNext()) {
+                // The workers wait for the full queue
+                Thread.sleep(1);
+                found.add(coordinates(iterator.next()));
+            }
+        }
+        assertEquals(this.expected, found);
+        this.checkProgress(progress);
+    }
+
+    @Test
+    public void testStreamClosedEarly() throws IOException, InterruptedException {
+        final WorldScanner.Progress progress = new WorldScanner.Progress();
+        try (Stream<WorldScanner.Chunk> chunks = new WorldScanner(this.executor, 1, 1).stream(this.world, progress)) {
+            assertEquals(3, chunks.limit(3).count());
+        }
+        // The blocked worker notices the cancellation
+        for (int i = 0; (i < 100) && !progress.isDone(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(progress.isDone());
+        // Back-pressure: the worker didn't read far ahead of the consumer
+        assertTrue(progress.getChunks() <= 5);
+    }
+
+    @Test
+    public void testVisitorFailure() throws IOException {
+        final RuntimeException error = new IllegalStateException("test");
+        try {
+            new WorldScanner(this.executor, 2, 4).scan(this.world, c -> {
+                throw error;
+            });
+            fail();
+        } catch (final IllegalStateException e) {
+            assertSame(error, e);
+        }
+    }
+
+    @Test
+    public void testEmptyWorld() throws IOException {
+        final Path empty = this.folder.newFolder().toPath();
+        final WorldScanner.Progress progress = new WorldScanner().scan(empty, c -> fail());
+        assertTrue(progress.isDone());
+        assertEquals(0, progress.getRegions());
+        try (Stream<WorldScanner.Chunk> chunks = new WorldScanner().stream(empty)) {
+            assertEquals(0, chunks.count());
+        }
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    public void testProgressUsedOnce() throws IOException {
+        final WorldScanner.Progress progress = new WorldScanner.Progress();
+        assertFalse(progress.isDone());
+        assertEquals(-1, progress.getRegions());
+        assertEquals(0, progress.getElapsedNanos());
+        progress.start(0);
+        try {
+            progress.start(0);
+            fail();
+        } catch (final IllegalStateException e) {
+            // Expected
+        }
+    }
+}